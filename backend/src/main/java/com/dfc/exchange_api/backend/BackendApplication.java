@@ -3,13 +3,9 @@ package com.dfc.exchange_api.backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.context.annotation.Bean;
-import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
-@EnableRetry
 @EnableScheduling
 @EnableCaching
 public class BackendApplication {
@@ -18,12 +14,4 @@ public class BackendApplication {
         SpringApplication.run(BackendApplication.class, args);
     }
 
-    /**
-     * Creating a RestTemplate bean for external API HTTP Connection
-     */
-    @Bean
-    RestTemplate restTemplate(){
-        return new RestTemplate();
-    }
-
 }
@@ -1,6 +1,7 @@
 package com.dfc.exchange_api.backend.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
@@ -10,17 +11,26 @@ import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class CacheConfig {
+    /**
+     * Configuration of the exchangeRate cache, built as an asynchronous loading cache by the RateStore. Entries are
+     * reloaded in the background once they are older than the refresh period, while the old value keeps being served,
+     * and are only expired, with a random jitter, if they weren't refreshed in the meantime.
+     */
     @Bean
-    public Caffeine<Object, Object> caffeineConfig() {
+    public Caffeine<Object, Object> caffeineConfig(@Value("${cache.refresh.seconds}") long cacheRefreshSeconds,
+                                                   @Value("${cache.expiry.seconds}") long cacheExpirySeconds,
+                                                   @Value("${cache.expiry.jitter.seconds}") long cacheExpiryJitterSeconds) {
         return Caffeine.newBuilder()
-                .expireAfterWrite(60, TimeUnit.SECONDS)
+                .refreshAfterWrite(cacheRefreshSeconds, TimeUnit.SECONDS)
+                .expireAfter(new JitteredExpiry(cacheExpirySeconds, cacheExpiryJitterSeconds))
                 .recordStats();
     }
 
+    /**
+     * The exchangeRate cache is registered in this manager by the RateStore, as it requires a loader
+     */
     @Bean
-    public CacheManager cacheManager(Caffeine caffeine) {
-        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
-        caffeineCacheManager.setCaffeine(caffeine);
-        return caffeineCacheManager;
+    public CacheManager cacheManager() {
+        return new CaffeineCacheManager();
     }
 }
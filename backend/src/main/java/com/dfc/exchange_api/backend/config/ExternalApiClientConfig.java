@@ -0,0 +1,180 @@
+package com.dfc.exchange_api.backend.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+@Configuration
+public class ExternalApiClientConfig {
+    public static final String REACTOR_NETTY_ENGINE = "reactor-netty";
+    public static final String JDK_ENGINE = "jdk";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalApiClientConfig.class);
+    @Value("${external.api.client.engine}")
+    private String ENGINE;
+    @Value("${external.api.client.max.connections}")
+    private int MAX_CONNECTIONS;
+    @Value("${external.api.client.pending.acquire.max}")
+    private int PENDING_ACQUIRE_MAX;
+    @Value("${external.api.client.pending.acquire.timeout.millis}")
+    private long PENDING_ACQUIRE_TIMEOUT_MILLIS;
+    @Value("${external.api.client.max.idle.millis}")
+    private long MAX_IDLE_MILLIS;
+    @Value("${external.api.client.connect.timeout.millis}")
+    private long CONNECT_TIMEOUT_MILLIS;
+    @Value("${external.api.client.write.timeout.millis}")
+    private long WRITE_TIMEOUT_MILLIS;
+    @Value("${external.api.client.response.timeout.millis}")
+    private long RESPONSE_TIMEOUT_MILLIS;
+    @Value("${external.api.client.compression.enabled}")
+    private boolean COMPRESSION_ENABLED;
+    private ConnectionProvider connectionProvider;
+
+    /**
+     * WebClient used by the ExternalApiService to call the External API. Its HTTP engine, either Reactor Netty or the
+     * JDK's HttpClient, is chosen by the external.api.client.engine property; both are configured with the same pool
+     * limits, timeouts and compression, as far as each engine supports them.
+     */
+    @Bean
+    public WebClient externalApiWebClient() {
+        WebClient.Builder builder = WebClient.builder()
+                .defaultCookie("cookieKey", "cookieValue")
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+
+        switch(ENGINE){
+            case REACTOR_NETTY_ENGINE -> builder.clientConnector(this.reactorNettyConnector());
+            case JDK_ENGINE -> {
+                builder.clientConnector(this.jdkConnector());
+                builder.filter(this.responseTimeout());
+
+                if(COMPRESSION_ENABLED){
+                    builder.filter(this.gzipDecoding());
+                }
+            }
+            default -> throw new IllegalStateException("Unknown external.api.client.engine: " + ENGINE
+                    + "; expected " + REACTOR_NETTY_ENGINE + " or " + JDK_ENGINE);
+        }
+
+        LOGGER.info("Calling the External API with the {} HTTP client", ENGINE);
+        return builder.build();
+    }
+
+    @PreDestroy
+    public void closeConnections() {
+        if(connectionProvider != null){
+            connectionProvider.dispose();
+        }
+    }
+
+    /**
+     * Auxiliary method that builds the Reactor Netty connector, with a dedicated connection pool: at most
+     * MAX_CONNECTIONS connections are opened, at most PENDING_ACQUIRE_MAX requests wait for one of them to be released,
+     * and connections idle for longer than MAX_IDLE_MILLIS are evicted in the background. The event loop and the DNS
+     * resolver are warmed up right away, instead of on the first request.
+     * @return the Reactor Netty connector
+     */
+    private ClientHttpConnector reactorNettyConnector() {
+        connectionProvider = ConnectionProvider.builder("external-api")
+                .maxConnections(MAX_CONNECTIONS)
+                .pendingAcquireMaxCount(PENDING_ACQUIRE_MAX)
+                .pendingAcquireTimeout(Duration.ofMillis(PENDING_ACQUIRE_TIMEOUT_MILLIS))
+                .maxIdleTime(Duration.ofMillis(MAX_IDLE_MILLIS))
+                .evictInBackground(Duration.ofMillis(MAX_IDLE_MILLIS))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) CONNECT_TIMEOUT_MILLIS)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(COMPRESSION_ENABLED)
+                .responseTimeout(Duration.ofMillis(RESPONSE_TIMEOUT_MILLIS))
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new WriteTimeoutHandler(WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)));
+
+        httpClient.warmup().block();
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    /**
+     * Auxiliary method that builds the JDK HttpClient connector, with the connect timeout, on HTTP/1.1, as the Reactor Netty
+     * connector is. The JDK client has no limit on the number of connections nor on the pending requests, nor a write
+     * timeout, and it neither requests nor decodes compressed responses, which is handled by the gzipDecoding filter. Its
+     * cache of idle connections is shared by the whole JVM, and is only sized through the jdk.httpclient.connectionPoolSize
+     * and jdk.httpclient.keepalive.timeout system properties, read once, when the first HttpClient is created; they are
+     * left to the command line, rather than set from external.api.client.max.connections and
+     * external.api.client.max.idle.millis, since that would change every other HttpClient in the JVM, and be ignored
+     * whenever one was created first.
+     * @return the JDK HttpClient connector
+     */
+    private ClientHttpConnector jdkConnector() {
+        java.net.http.HttpClient httpClient = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MILLIS))
+                .build();
+
+        return new JdkClientHttpConnector(httpClient);
+    }
+
+    /**
+     * Auxiliary filter that fails a request whose response didn't start within RESPONSE_TIMEOUT_MILLIS, as Reactor
+     * Netty's response timeout does
+     * @return the filter function
+     */
+    private ExchangeFilterFunction responseTimeout() {
+        return (request, next) -> next.exchange(request).timeout(Duration.ofMillis(RESPONSE_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * Auxiliary filter that requests gzip-compressed responses, and decompresses them before they are decoded
+     * @return the filter function
+     */
+    private ExchangeFilterFunction gzipDecoding() {
+        return (request, next) -> next.exchange(ClientRequest.from(request).header(HttpHeaders.ACCEPT_ENCODING, "gzip").build())
+                .map(response -> !"gzip".equalsIgnoreCase(response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+                        ? response
+                        : response.mutate()
+                                .headers(headers -> {
+                                    headers.remove(HttpHeaders.CONTENT_ENCODING);
+                                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                                })
+                                .body(body -> DataBufferUtils.join(body).map(this::gunzip).flux())
+                                .build());
+    }
+
+    /**
+     * Auxiliary method that decompresses a gzip-compressed response body
+     * @param compressed - the compressed body, which is released
+     * @return the decompressed body
+     */
+    private DataBuffer gunzip(DataBuffer compressed) {
+        try(InputStream inputStream = new GZIPInputStream(compressed.asInputStream(true))){
+            return DefaultDataBufferFactory.sharedInstance.wrap(inputStream.readAllBytes());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not decompress the response of the External API", ex);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.dfc.exchange_api.backend.config;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caffeine expiry policy that expires each entry a fixed time after it was written, plus a random jitter, so that
+ * entries written together do not all expire at the same instant
+ */
+public class JitteredExpiry implements Expiry<Object, Object> {
+    private final long expiryNanos;
+    private final long jitterNanos;
+
+    public JitteredExpiry(long expirySeconds, long jitterSeconds) {
+        this.expiryNanos = TimeUnit.SECONDS.toNanos(expirySeconds);
+        this.jitterNanos = TimeUnit.SECONDS.toNanos(jitterSeconds);
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return expiryNanos + ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        // A refreshed entry gets a new, independently jittered, lifetime
+        return this.expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
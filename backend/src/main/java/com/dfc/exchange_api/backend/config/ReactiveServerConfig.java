@@ -0,0 +1,20 @@
+package com.dfc.exchange_api.backend.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+    /**
+     * When the application runs as a reactive web application (spring.main.web-application-type=reactive), it is served
+     * by Netty, instead of the Tomcat server bundled for the servlet stack, so that requests waiting on the External API
+     * hold no thread at all
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
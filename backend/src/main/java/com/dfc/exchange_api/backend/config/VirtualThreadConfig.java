@@ -0,0 +1,64 @@
+package com.dfc.exchange_api.backend.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Configuration that runs the servlet stack on virtual threads. A virtual thread that waits inside a synchronized block
+ * or method stays pinned to its carrier thread, so the state the request threads contend on, such as that of the circuit
+ * breaker and the quota of the External API, and the flush of the snapshot file, is guarded by a ReentrantLock instead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    /**
+     * Factory of the virtual threads on which the requests and scheduled jobs are run. Virtual threads are only available
+     * from Java 21 onwards, while the application is still built for Java 17, so they are created reflectively; on an
+     * older runtime, the application fails to start, instead of silently falling back to platform threads.
+     */
+    @Bean
+    public ThreadFactory virtualThreadFactory() {
+        try{
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "virtual-", 0L);
+            LOGGER.info("Running requests and scheduled jobs on virtual threads");
+
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads require a Java 21 runtime; set threads.virtual.enabled=false to run on platform threads", ex);
+        }
+    }
+
+    /**
+     * Tomcat handles each request on a new virtual thread, instead of on its bounded pool of platform threads, so that
+     * the number of requests blocked on the External API is no longer capped by the size of that pool
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(ThreadFactory virtualThreadFactory) {
+        return protocolHandler -> protocolHandler.setExecutor(task -> virtualThreadFactory.newThread(task).start());
+    }
+
+    /**
+     * The @Scheduled jobs, such as the refresh of the supported currencies and the flush of the snapshot file, are run on
+     * virtual threads as well
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadFactory virtualThreadFactory) {
+        ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+        taskScheduler.setThreadFactory(virtualThreadFactory);
+        return taskScheduler;
+    }
+}
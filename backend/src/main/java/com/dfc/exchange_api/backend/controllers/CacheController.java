@@ -99,4 +99,15 @@ public class CacheController {
 
         return ResponseEntity.ok().body(cacheService.getAllStatistics());
     }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Valid response",
+                    content = @Content),})
+    @Operation(summary = "Get the priority ranking of the base currencies, by their estimated number of recent lookups")
+    @GetMapping("/statistics/demand")
+    public ResponseEntity<Object> getDemandRanking() {
+        LOGGER.info("Received a request on the GET /cache/statistics/demand endpoint");
+
+        return ResponseEntity.ok().body(cacheService.getDemandRanking());
+    }
 }
@@ -2,6 +2,8 @@ package com.dfc.exchange_api.backend.controllers;
 
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
+import com.dfc.exchange_api.backend.models.ConversionItem;
+import com.dfc.exchange_api.backend.models.ConversionItemResult;
 import com.dfc.exchange_api.backend.services.ConversionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,12 +11,18 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Map;
 
 @Tag(name = "2. Conversion Controller", description = "Endpoint to convert amounts from a supplied currency")
@@ -22,6 +30,8 @@ import java.util.Map;
 @Validated
 @RequestMapping("/api/v1/convert")
 public class ConversionController {
+    public static final int MAX_BATCH_SIZE = 100_000;
+    public static final String TEXT_CSV_VALUE = "text/csv";
     private static final Logger LOGGER = LoggerFactory.getLogger(ConversionController.class);
     private ConversionService conversionService;
 
@@ -35,7 +45,12 @@ public class ConversionController {
      * @param from - the code of currency A
      * @param to - the codes of the specified list of currencies for the conversion, separated by commas
      * @param amount - the amount to be converted
-     * @return a map containing as key the codes of the currencies to be converted to, and as value the value of the conversion
+     * @param deadlineMillis - the optional time budget of the request, in milliseconds, overriding the default one
+     * @return a map containing as key the codes of the currencies to be converted to, and as value the value of the conversion.
+     * The age of the exchange rates, and the instant in which they were fetched, are reported in the Age and
+     * X-Rates-Fetched-At headers. The response is emitted without holding a server thread while the External API is
+     * contacted; in case the deadline is exceeded first, the conversions are calculated from the exchange rates already at
+     * hand, and the currencies missing from the map are listed in the X-Rates-Missing header.
      * @throws InvalidCurrencyException - In case either the currency A, or the specified currency B are not supported or have an invalid code,
      * this exception is thrown with HTTP status BAD REQUEST.
      * @throws ExternalApiConnectionError - In case communication with the External API fails, this exception is thrown
@@ -50,13 +65,45 @@ public class ConversionController {
                     content = @Content),})
     @Operation(summary = "Get the conversion of a specified amount from currency A o a list of specified currencies, separated by commas")
     @GetMapping
-    public Map<String, Double> getConversionFromCurrency(
+    public Mono<ResponseEntity<Map<String, Double>>> getConversionFromCurrency(
             @Parameter(description = "The code of currency A", required = true) @RequestParam(name = "from") String from,
             @Parameter(description = "The codes of the specified currencies, separated by commas", required = true) @RequestParam(name = "to") String to,
-            @Parameter(description = "The amount to be converted", required = true) @RequestParam(name = "amount") @PositiveOrZero(message = "Amount must be non-negative!") Double amount)
+            @Parameter(description = "The amount to be converted", required = true) @RequestParam(name = "amount") @PositiveOrZero(message = "Amount must be non-negative!") Double amount,
+            @Parameter(description = "The time budget of the request, in milliseconds") @RequestHeader(name = ExchangeController.DEADLINE_HEADER, required = false) @Positive(message = "Deadline must be positive!") Long deadlineMillis)
             throws InvalidCurrencyException, ExternalApiConnectionError {
         LOGGER.info("Received a request on the GET /convert endpoint");
 
-        return conversionService.getConversionFromCurrency(from.toUpperCase(), to.toUpperCase(), amount);
+        return conversionService.getConversionFromCurrency(from.toUpperCase(), to.toUpperCase(), amount, deadlineMillis).map(FreshnessHeaders::ok);
+    }
+
+    /**
+     * This endpoint converts a batch of amounts, each from a currency A to a currency B, in a single call. The items may
+     * have different currencies A, and every conversion is calculated from a single snapshot of exchange rates, in which
+     * the exchange rates of each currency A are resolved once.
+     * @param items - the conversions to be made, each holding the code of currency A (from), the code of currency B (to),
+     * and the amount to be converted; at most MAX_BATCH_SIZE of them
+     * @param deadlineMillis - the optional time budget of the request, in milliseconds, overriding the default one
+     * @return a list holding the result of each conversion, in the order of the items: either its value, or the error
+     * that prevented it, such as an unsupported currency or a negative amount, which doesn't fail the other items. The
+     * freshness of the exchange rates is reported in the same headers as the GET /convert endpoint.
+     * @throws ExternalApiConnectionError - In case communication with the External API fails, this exception is thrown
+     * with Http Status SERVICE UNAVAILABLE.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, with the result or error of each item",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Error connecting to external API",
+                    content = @Content),})
+    @Operation(summary = "Convert a batch of amounts, each from a currency A to a currency B")
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<List<ConversionItemResult>>> getConversionForBatch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The conversions to be made", required = true) @RequestBody @NotEmpty(message = "Batch must not be empty!") @Size(max = MAX_BATCH_SIZE, message = "Batch must not exceed " + MAX_BATCH_SIZE + " items!") List<ConversionItem> items,
+            @Parameter(description = "The time budget of the request, in milliseconds") @RequestHeader(name = ExchangeController.DEADLINE_HEADER, required = false) @Positive(message = "Deadline must be positive!") Long deadlineMillis)
+            throws ExternalApiConnectionError {
+        LOGGER.info("Received a request on the POST /convert/batch endpoint with {} items", items.size());
+
+        return conversionService.getConversionForBatch(items, deadlineMillis).map(FreshnessHeaders::ok);
     }
 }
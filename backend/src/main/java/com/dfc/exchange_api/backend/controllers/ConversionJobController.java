@@ -0,0 +1,141 @@
+package com.dfc.exchange_api.backend.controllers;
+
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotCompletedException;
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotFoundException;
+import com.dfc.exchange_api.backend.models.ConversionJob;
+import com.dfc.exchange_api.backend.services.ConversionJobService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Controller of the conversion jobs, whose files are uploaded as multipart requests of the servlet stack. It is therefore
+ * only served when the application runs on the servlet stack (the default), as the POST /convert/stream endpoint is.
+ */
+@Tag(name = "5. Conversion Job Controller", description = "Endpoints to convert files of amounts in the background")
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/v1/convert/jobs")
+public class ConversionJobController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversionJobController.class);
+    private ConversionJobService conversionJobService;
+
+    public ConversionJobController(ConversionJobService conversionJobService) {
+        this.conversionJobService = conversionJobService;
+    }
+
+    /**
+     * This endpoint submits a conversion job, for a file of amounts too large to be converted within a single call. The
+     * file holds one record per line, in the same formats as the POST /convert/stream endpoint: newline-delimited JSON
+     * objects holding from, to and amount, or CSV rows of from,to,amount. The job is converted in the background, against
+     * a single snapshot of exchange rates, and survives a restart of the application.
+     * @param file - the uploaded file
+     * @param format - the format of the file, either NDJSON or CSV; in case it isn't given, it is derived from the
+     * content type, or the extension, of the file, defaulting to NDJSON
+     * @return the queued job, holding its id, with the URL at which its progress is polled in the Location header
+     * @throws IOException - In case the uploaded file can't be stored.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job queued",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Missing file or invalid format supplied",
+                    content = @Content),})
+    @Operation(summary = "Submit a file of amounts, sent as newline-delimited JSON or CSV, to be converted in the background")
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ConversionJob> submitJob(
+            @Parameter(description = "The file of amounts to be converted", required = true) @RequestPart(name = "file") MultipartFile file,
+            @Parameter(description = "The format of the file, either NDJSON or CSV") @RequestParam(name = "format", required = false) Format format)
+            throws IOException {
+        LOGGER.info("Received a request on the POST /convert/jobs endpoint");
+
+        ConversionJob job;
+
+        try(InputStream content = file.getInputStream()){
+            job = conversionJobService.submit(content, file.getOriginalFilename(), format != null ? format : this.formatOf(file));
+        }
+
+        return ResponseEntity.accepted().location(URI.create("/api/v1/convert/jobs/" + job.getId())).body(job);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Valid response",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "No job was found",
+                    content = @Content),})
+    @Operation(summary = "Get the status and progress of a conversion job")
+    @GetMapping("/{id}")
+    public ResponseEntity<ConversionJob> getJob(@PathVariable(name = "id") String id) throws ConversionJobNotFoundException {
+        LOGGER.info("Received a request on the GET /convert/jobs/{id} endpoint");
+
+        return ResponseEntity.ok(conversionJobService.getJob(id));
+    }
+
+    /**
+     * This endpoint downloads the result file of a completed conversion job, holding the result of each record, in the
+     * order of the records, and in the format of the uploaded file: either its value, or the error that prevented it.
+     * @param id - the id of the job
+     * @return the result file
+     * @throws ConversionJobNotFoundException - In case there is no job with the given id, this exception is thrown with
+     * Http Status NOT FOUND.
+     * @throws ConversionJobNotCompletedException - In case the job hasn't completed yet, or has failed, this exception is
+     * thrown with Http Status CONFLICT.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Valid response",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "No job was found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Job not completed",
+                    content = @Content),})
+    @Operation(summary = "Download the result file of a completed conversion job")
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Resource> getJobResult(@PathVariable(name = "id") String id)
+            throws ConversionJobNotFoundException, ConversionJobNotCompletedException {
+        LOGGER.info("Received a request on the GET /convert/jobs/{id}/result endpoint");
+
+        ConversionJob job = conversionJobService.getJob(id);
+        Resource result = new FileSystemResource(conversionJobService.getResult(id));
+        boolean csv = job.getFormat() == Format.CSV;
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(csv ? ConversionController.TEXT_CSV_VALUE : MediaType.APPLICATION_NDJSON_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(id + (csv ? ".csv" : ".ndjson")).build().toString())
+                .body(result);
+    }
+
+    /**
+     * Auxiliary method that derives the format of an uploaded file from its content type, or its extension
+     * @param file - the uploaded file
+     * @return CSV, in case the file is a CSV file; NDJSON otherwise
+     */
+    private Format formatOf(MultipartFile file) {
+        String contentType = file.getContentType();
+        String fileName = file.getOriginalFilename();
+
+        if((contentType != null && contentType.startsWith(ConversionController.TEXT_CSV_VALUE))
+                || (fileName != null && fileName.toLowerCase().endsWith(".csv"))){
+            return Format.CSV;
+        }
+
+        return Format.NDJSON;
+    }
+}
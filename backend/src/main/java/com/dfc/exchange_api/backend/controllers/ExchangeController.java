@@ -2,6 +2,7 @@ package com.dfc.exchange_api.backend.controllers;
 
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
+import com.dfc.exchange_api.backend.models.RateResult;
 import com.dfc.exchange_api.backend.services.ExchangeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,16 +10,24 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Positive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 @Tag(name = "1. Exchange Controller", description = "Endpoint to determine the exchange rate from a given currency")
 @RestController
+@Validated
 @RequestMapping("/api/v1/exchange")
 public class ExchangeController {
+    public static final String DEADLINE_HEADER = "X-Request-Deadline-Millis";
     private static final Logger LOGGER = LoggerFactory.getLogger(ExchangeController.class);
     private ExchangeService exchangeService;
 
@@ -27,15 +36,26 @@ public class ExchangeController {
     }
 
     /**
-     * This endpoint is used to fetch the exchange rates from a currency A, passed as a required from parameter.
+     * This endpoint is used to fetch the exchange rates from a currency A, passed as a from parameter.
      * Users can pass an optional "to" parameter - if this is passed, the endpoint will return the exchange rate from currency
-     * A to a specific currency B; otherwise, it will return all the exchange rates from A to all supported currencies.
-     * @param from - the code of currency A
-     * @param to - the optional code of currency B
-     * @return A map with the value of the exchange rate from A to the specified currencies, with their code being the key,
-     * and the value being the exchange rate.
-     * @throws InvalidCurrencyException - In case either the currency A, or the specified currency B are not supported or have an invalid code,
-     * this exception is thrown with HTTP status BAD REQUEST.
+     * A to a specific currency B, or to a list of currencies, with their codes being separated by commas; otherwise, it
+     * will return all the exchange rates from A to all supported currencies.
+     * Instead of the from parameter, users can pass a "pairs" parameter, holding a list of currency pairs separated by
+     * commas, such as USDEUR,GBPJPY, which may span many currencies A. Every exchange rate of a list, or of the pairs, is
+     * read from a single snapshot of exchange rates, with the External API being contacted at most once.
+     * @param from - the code of currency A; required, unless pairs are passed
+     * @param to - the optional code of currency B, or codes of the list of currencies, separated by commas
+     * @param pairs - the optional currency pairs, each being the code of a currency A followed by the code of a currency
+     * B, separated by commas
+     * @param deadlineMillis - the optional time budget of the request, in milliseconds, overriding the default one
+     * @return A map with the value of the exchange rate from A to the specified currencies, with their code (or the pair,
+     * in case pairs are passed) being the key, and the value being the exchange rate. The age of the exchange rates, and
+     * the instant in which they were fetched, are reported in the Age and X-Rates-Fetched-At headers. The response is
+     * emitted without holding a server thread while the External API is contacted; in case the deadline is exceeded first,
+     * the exchange rates already at hand are returned, and the currencies (or pairs) missing from the map are listed in the
+     * X-Rates-Missing header.
+     * @throws InvalidCurrencyException - In case any of the currencies is not supported or has an invalid code, or in case
+     * either both or neither of from and pairs are passed, this exception is thrown with HTTP status BAD REQUEST.
      * @throws ExternalApiConnectionError - In case communication with the External API fails, this exception is thrown
      * with Http Status BAD GATEWAY.
      */
@@ -46,24 +66,53 @@ public class ExchangeController {
                     content = @Content),
             @ApiResponse(responseCode = "402", description = "Error connecting to external API",
                     content = @Content),})
-    @Operation(summary = "Get the exchange rates from currency A to either a currency B (if \"to\" is present) or all supported currencies (if \"to\" is absent)")
+    @Operation(summary = "Get the exchange rates from currency A to either a currency B or a list of currencies (if \"to\" is present) or all supported currencies (if \"to\" is absent), or the exchange rates of a list of currency pairs (if \"pairs\" is present)")
     @GetMapping
-    public Map<String, Double> getExchangeRateFromCurrency(
-            @Parameter(description = "The code of currency A", required = true) @RequestParam(name = "from") String from,
-            @Parameter(description = "The code of currency B") @RequestParam(name = "to", required = false) String to)
+    public Mono<ResponseEntity<Map<String, Double>>> getExchangeRateFromCurrency(
+            @Parameter(description = "The code of currency A") @RequestParam(name = "from", required = false) String from,
+            @Parameter(description = "The code of currency B, or the codes of a list of currencies, separated by commas") @RequestParam(name = "to", required = false) String to,
+            @Parameter(description = "The currency pairs, such as USDEUR, separated by commas") @RequestParam(name = "pairs", required = false) String pairs,
+            @Parameter(description = "The time budget of the request, in milliseconds") @RequestHeader(name = DEADLINE_HEADER, required = false) @Positive(message = "Deadline must be positive!") Long deadlineMillis)
             throws InvalidCurrencyException, ExternalApiConnectionError {
         LOGGER.info("Received a request on the GET /exchange endpoint");
 
-        if(to != null){
+        if((from == null) == (pairs == null) || (pairs != null && to != null)){
+            return Mono.error(new InvalidCurrencyException("Either a from currency, or a list of pairs, must be provided!"));
+        }
+
+        if(pairs != null){
+            // Exchange Rates for a list of Currency Pairs
+            LOGGER.info("Request for the exchange rates of currency pairs");
+
+            return exchangeService.getExchangeRateForPairs(this.splitCodes(pairs), deadlineMillis).map(FreshnessHeaders::ok);
+        }else if(to != null && to.contains(",")){
+            // Exchange Rates for a list of Currencies
+            LOGGER.info("Request for a list of exchange rates");
+
+            return exchangeService.getExchangeRateForCurrencies(from.toUpperCase(), this.splitCodes(to), deadlineMillis).map(FreshnessHeaders::ok);
+        }else if(to != null){
             // Exchange Rate for a Specific Currency
             LOGGER.info("Request for a specific exchange rate");
+            String toCode = to.toUpperCase();
 
-            return Map.of(to.toUpperCase(), exchangeService.getExchangeRateForSpecificCurrency(from.toUpperCase(), to.toUpperCase()));
+            return exchangeService.getExchangeRateForSpecificCurrency(from.toUpperCase(), toCode, deadlineMillis)
+                    .map(exchangeRate -> FreshnessHeaders.ok(new RateResult<>(
+                            exchangeRate.isPartial() ? Map.of() : Map.of(toCode, exchangeRate.getValue()),
+                            exchangeRate.getSnapshot(), exchangeRate.getMissingCodes())));
         }else{
             // Exchange Rate for all Currencies
             LOGGER.info("Request for all exchange rates");
 
-            return exchangeService.getExchangeRateForAll(from.toUpperCase());
+            return exchangeService.getExchangeRateForAll(from.toUpperCase(), deadlineMillis).map(FreshnessHeaders::ok);
         }
     }
+
+    /**
+     * Auxiliary method that splits a list of codes, separated by commas, into distinct upper case codes
+     * @param codes - the list of codes
+     * @return the codes, in the order they were passed
+     */
+    private List<String> splitCodes(String codes) {
+        return Arrays.stream(codes.split(",")).map(code -> code.trim().toUpperCase()).distinct().toList();
+    }
 }
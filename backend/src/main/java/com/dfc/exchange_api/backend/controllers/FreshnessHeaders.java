@@ -0,0 +1,61 @@
+package com.dfc.exchange_api.backend.controllers;
+
+import com.dfc.exchange_api.backend.models.RateResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Auxiliary class that reports, in the response headers, the freshness of the exchange rates a response was computed
+ * from: the standard Age header, holding their age in seconds, along with the instant in which they were fetched from the
+ * external API, and the version of their snapshot; exchange rates served past their expiry are marked as stale. The
+ * requested currencies missing from a partial response are listed as well.
+ */
+final class FreshnessHeaders {
+    static final String FETCHED_AT_HEADER = "X-Rates-Fetched-At";
+    static final String VERSION_HEADER = "X-Rates-Version";
+    static final String STALE_HEADER = "X-Rates-Stale";
+    static final String MISSING_HEADER = "X-Rates-Missing";
+
+    private FreshnessHeaders() {
+    }
+
+    /**
+     * Builds a 200 OK response holding the value of a RateResult, along with its freshness headers
+     * @param result - the RateResult to be returned
+     * @return the response
+     */
+    static <T> ResponseEntity<T> ok(RateResult<T> result) {
+        return ResponseEntity.ok().headers(headers(result)).body(result.getValue());
+    }
+
+    /**
+     * Starts a 200 OK response computed from a snapshot, such as a stream, whose body is written separately, along with
+     * the freshness headers of the snapshot
+     * @param snapshot - the snapshot the response is computed from
+     * @return the builder of the response
+     */
+    static ResponseEntity.BodyBuilder ok(RateSnapshot snapshot) {
+        return ResponseEntity.ok().headers(headers(new RateResult<>(null, snapshot)));
+    }
+
+    private static HttpHeaders headers(RateResult<?> result) {
+        HttpHeaders headers = new HttpHeaders();
+
+        if(result.hasSnapshot()){
+            headers.set(HttpHeaders.AGE, String.valueOf(Math.max(0, result.getAge().getSeconds())));
+            headers.set(FETCHED_AT_HEADER, result.getSnapshot().getFetchedAt().toString());
+            headers.set(VERSION_HEADER, String.valueOf(result.getSnapshot().getVersion()));
+
+            if(result.getSnapshot().isStale()){
+                headers.set(STALE_HEADER, "true");
+            }
+        }
+
+        if(result.isPartial()){
+            headers.set(MISSING_HEADER, String.join(",", result.getMissingCodes()));
+        }
+
+        return headers;
+    }
+}
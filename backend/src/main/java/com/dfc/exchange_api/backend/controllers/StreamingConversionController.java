@@ -0,0 +1,89 @@
+package com.dfc.exchange_api.backend.controllers;
+
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.services.StreamingConversionService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Positive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Controller of the streamed conversions, which reads the request body, and writes the response, as blocking streams of
+ * the servlet stack. It is therefore only served when the application runs on the servlet stack (the default); on the
+ * reactive stack, the POST /convert/stream endpoint isn't available.
+ */
+@Tag(name = "2. Conversion Controller", description = "Endpoint to convert amounts from a supplied currency")
+@RestController
+@Validated
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/v1/convert")
+public class StreamingConversionController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingConversionController.class);
+    private StreamingConversionService streamingConversionService;
+
+    public StreamingConversionController(StreamingConversionService streamingConversionService) {
+        this.streamingConversionService = streamingConversionService;
+    }
+
+    /**
+     * This endpoint converts a stream of amounts, each from a currency A to a currency B, too large to be sent as a single
+     * JSON array, such as the files of a nightly reconciliation. The request body is read incrementally, one record per
+     * line, either as newline-delimited JSON objects holding from, to and amount, or as CSV rows of from,to,amount, and the
+     * result of each record is streamed back in the same format, in the order of the records, so that memory use doesn't
+     * grow with the size of the stream. Every record is converted against the same snapshot of exchange rates, pinned
+     * before the stream is read. No server thread is held while the exchange rates are loaded; the stream is then
+     * converted on a thread of the asynchronous request executor, so that a slow client slows down the reading of the
+     * request body.
+     * @param contentType - the content type of the request body, either application/x-ndjson or text/csv
+     * @param deadlineMillis - the optional time budget for pinning the exchange rates, in milliseconds
+     * @param body - the stream of records
+     * @return the response the results are streamed to, with the freshness of the exchange rates reported in the same
+     * headers as the GET /convert endpoint. A malformed record, or a record with an unsupported currency or a negative
+     * amount, is reported in its result, without stopping the stream.
+     * @throws ExternalApiConnectionError - In case the exchange rates can't be loaded before the stream is read, this
+     * exception is thrown with Http Status SERVICE UNAVAILABLE.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream processed, with the result or error of each record",
+                    content = @Content),
+            @ApiResponse(responseCode = "415", description = "Unsupported content type supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Error connecting to external API",
+                    content = @Content),})
+    @Operation(summary = "Convert a stream of amounts, sent as newline-delimited JSON or CSV, each from a currency A to a currency B")
+    @PostMapping(value = "/stream", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ConversionController.TEXT_CSV_VALUE})
+    public Mono<ResponseEntity<StreamingResponseBody>> getConversionForStream(
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(description = "The time budget for pinning the exchange rates, in milliseconds") @RequestHeader(name = ExchangeController.DEADLINE_HEADER, required = false) @Positive(message = "Deadline must be positive!") Long deadlineMillis,
+            InputStream body)
+            throws ExternalApiConnectionError {
+        LOGGER.info("Received a request on the POST /convert/stream endpoint");
+
+        Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(ConversionController.TEXT_CSV_VALUE)) ? Format.CSV : Format.NDJSON;
+        MediaType responseType = format == Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType(MediaType.APPLICATION_NDJSON, StandardCharsets.UTF_8);
+
+        return streamingConversionService.getRateSnapshot(deadlineMillis)
+                .map(snapshot -> FreshnessHeaders.ok(snapshot)
+                        .contentType(responseType)
+                        .body(output -> streamingConversionService.convert(body, output, format, snapshot)));
+    }
+}
@@ -0,0 +1,10 @@
+package com.dfc.exchange_api.backend.exceptions;
+
+/**
+ * Exception thrown when the result of a conversion job is requested before the job completed
+ */
+public class ConversionJobNotCompletedException extends RuntimeException{
+    public ConversionJobNotCompletedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.dfc.exchange_api.backend.exceptions;
+
+/**
+ * Exception thrown when a conversion job is not found
+ */
+public class ConversionJobNotFoundException extends RuntimeException{
+    public ConversionJobNotFoundException(String message) {
+        super(message);
+    }
+}
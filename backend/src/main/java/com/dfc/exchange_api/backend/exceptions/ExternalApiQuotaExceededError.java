@@ -0,0 +1,11 @@
+package com.dfc.exchange_api.backend.exceptions;
+
+/**
+ * Exception thrown when a call to the External API is rejected, without being made, since it is over the budget of calls
+ * to the External API
+ */
+public class ExternalApiQuotaExceededError extends ExternalApiConnectionError {
+    public ExternalApiQuotaExceededError(String message) {
+        super(message);
+    }
+}
@@ -53,4 +53,20 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(apiError);
     }
 
+    @ExceptionHandler(ConversionJobNotFoundException.class)
+    protected ResponseEntity<Object> handleConversionJobNotFound(ConversionJobNotFoundException ex) {
+        ErrorDetails apiError = new ErrorDetails(HttpStatus.NOT_FOUND);
+        apiError.setMessage(ex.getMessage());
+        apiError.setTimestamp(LocalDateTime.now());
+        return buildResponseEntity(apiError);
+    }
+
+    @ExceptionHandler(ConversionJobNotCompletedException.class)
+    protected ResponseEntity<Object> handleConversionJobNotCompleted(ConversionJobNotCompletedException ex) {
+        ErrorDetails apiError = new ErrorDetails(HttpStatus.CONFLICT);
+        apiError.setMessage(ex.getMessage());
+        apiError.setTimestamp(LocalDateTime.now());
+        return buildResponseEntity(apiError);
+    }
+
 }
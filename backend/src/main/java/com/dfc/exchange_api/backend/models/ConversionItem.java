@@ -0,0 +1,17 @@
+package com.dfc.exchange_api.backend.models;
+
+import lombok.*;
+
+/**
+ * A conversion requested in a batch: an amount to be converted from a Currency A to a Currency B
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class ConversionItem {
+    private String from;
+    private String to;
+    private Double amount;
+}
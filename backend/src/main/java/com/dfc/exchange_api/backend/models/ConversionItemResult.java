@@ -0,0 +1,30 @@
+package com.dfc.exchange_api.backend.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Result of a conversion requested in a batch, holding either the converted value, or the error that prevented the
+ * conversion, so that a single invalid item doesn't fail the whole batch
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConversionItemResult {
+    private String from;
+    private String to;
+    private Double amount;
+    private Double value;
+    private String error;
+
+    public static ConversionItemResult converted(ConversionItem item, String from, String to, double value) {
+        return new ConversionItemResult(from, to, item.getAmount(), value, null);
+    }
+
+    public static ConversionItemResult failed(ConversionItem item, String error) {
+        return new ConversionItemResult(item.getFrom(), item.getTo(), item.getAmount(), null, error);
+    }
+}
@@ -0,0 +1,66 @@
+package com.dfc.exchange_api.backend.models;
+
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Domain entity representing an asynchronous conversion job: a file of conversion records, uploaded to be converted in
+ * the background, whose progress is polled until its result file can be downloaded. Jobs are stored in the H2 database,
+ * so that the jobs submitted before a restart are resumed afterwards.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class ConversionJob {
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    @Enumerated(EnumType.STRING)
+    private Format format;
+
+    private String fileName;
+    // The size of the uploaded file, and how much of it was converted, in bytes, from which the progress is computed
+    private long inputBytes;
+    private long processedBytes;
+    private long processedRecords;
+    private long failedRecords;
+    // The version of the snapshot of exchange rates pinned for the whole job, once it started
+    private Long snapshotVersion;
+    private String error;
+
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant completedAt;
+
+    public ConversionJob(String id, Format format, String fileName, long inputBytes, Instant submittedAt) {
+        this.id = id;
+        this.status = Status.QUEUED;
+        this.format = format;
+        this.fileName = fileName;
+        this.inputBytes = inputBytes;
+        this.submittedAt = submittedAt;
+    }
+
+    /**
+     * Gets the progress of the job, as the percentage of the uploaded file converted so far
+     * @return the progress, from 0 to 100
+     */
+    public double getProgress() {
+        if(status == Status.COMPLETED){
+            return 100.0;
+        }
+
+        return inputBytes == 0 ? 0.0 : Math.min(100.0, 100.0 * processedBytes / inputBytes);
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.*;
 
 /**
@@ -18,7 +19,8 @@ import lombok.*;
 @EqualsAndHashCode
 public class Currency {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "currency_seq")
+    @SequenceGenerator(name = "currency_seq", sequenceName = "currency_seq", allocationSize = 50)
     @ToString.Exclude
     private Long id;
 
@@ -0,0 +1,54 @@
+package com.dfc.exchange_api.backend.models;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable index that assigns each supported Currency code a small, dense int index, used to address the rows and
+ * columns of the RateMatrix without any string manipulation on the lookup path
+ */
+public final class CurrencyIndex {
+    private final String[] codes;
+    private final Map<String, Integer> indexes;
+
+    public CurrencyIndex(Collection<String> codes) {
+        this(codes.toArray(new String[0]));
+    }
+
+    /**
+     * Builds the index over an array of distinct currency codes, which is owned by the index from then on
+     * @param codes - the currency codes, in the order of their indexes
+     */
+    public CurrencyIndex(String[] codes) {
+        this.codes = codes;
+        this.indexes = new HashMap<>(this.codes.length * 2);
+
+        for (int i = 0; i < this.codes.length; i++) {
+            this.indexes.put(this.codes[i], i);
+        }
+    }
+
+    /**
+     * Gets the index assigned to a currency code
+     * @param code - the code of the currency
+     * @return the index of the currency; or -1, in case the code isn't indexed
+     */
+    public int indexOf(String code) {
+        Integer index = indexes.get(code);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets the currency code assigned to an index
+     * @param index - the index of the currency
+     * @return the code of the currency
+     */
+    public String codeOf(int index) {
+        return codes[index];
+    }
+
+    public int size() {
+        return codes.length;
+    }
+}
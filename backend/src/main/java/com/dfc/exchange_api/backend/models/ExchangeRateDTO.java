@@ -1,19 +1,166 @@
 package com.dfc.exchange_api.backend.models;
 
-import lombok.*;
+import com.dfc.exchange_api.backend.utils.PayloadHash;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * DTO object to retrieve the required fields from the call to External API's /latest endpoint, which returns
- * the latest Exchange Rates for a given Currency
+ * the latest Exchange Rates for a given Currency. The rates are held as parallel arrays of currency codes and primitive
+ * doubles, decoded straight from the JSON tokens by a streaming deserializer, without boxing any rate, nor building an
+ * intermediate map; the codes are the field names canonicalized by Jackson, shared across responses.
  */
-@Getter
-@Setter
-@NoArgsConstructor
-@AllArgsConstructor
-@ToString
-public class ExchangeRateDTO {
-    private Map<String, Double> rates;
+@JsonDeserialize(using = ExchangeRateDTO.Deserializer.class)
+public final class ExchangeRateDTO {
+    private final String[] codes;
+    private final double[] rates;
 
+    public ExchangeRateDTO(String[] codes, double[] rates) {
+        this.codes = codes;
+        this.rates = rates;
+    }
+
+    public ExchangeRateDTO(Map<String, Double> rates) {
+        this(rates.keySet().toArray(new String[0]), rates.values().stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    /**
+     * Checks whether the response held a rates object
+     * @return true, in case the rates were present; false otherwise
+     */
+    public boolean hasRates() {
+        return codes != null;
+    }
+
+    public int size() {
+        return codes == null ? 0 : codes.length;
+    }
+
+    public String getCode(int index) {
+        return codes[index];
+    }
+
+    public double getRate(int index) {
+        return rates[index];
+    }
+
+    /**
+     * Gets the fetched rates as a map, built on each call; it isn't used when loading the exchange rates
+     * @return a Map<String, Double> containing the exchange rate for each currency; or null, in case the response held
+     * no rates object
+     */
+    public Map<String, Double> getRates() {
+        if(codes == null){
+            return null;
+        }
+
+        Map<String, Double> ratesByCode = new LinkedHashMap<>(codes.length * 2);
+
+        for(int i = 0; i < codes.length; i++){
+            ratesByCode.put(codes[i], rates[i]);
+        }
+
+        return ratesByCode;
+    }
+
+    /**
+     * Gets the hash of the fetched codes and rates, which is equal for two responses holding the same rates, in the same
+     * order
+     * @return the 64-bit hash of the rates
+     */
+    public long getPayloadHash() {
+        PayloadHash payloadHash = new PayloadHash();
+
+        for(int i = 0; i < this.size(); i++){
+            payloadHash.add(codes[i]).add(rates[i]);
+        }
+
+        return payloadHash.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ExchangeRateDTO(" + this.size() + " rates)";
+    }
+
+    /**
+     * Streaming deserializer of the /latest response, which reads the tokens of the rates object into growing arrays, and
+     * skips every other field of the response
+     */
+    public static final class Deserializer extends StdDeserializer<ExchangeRateDTO> {
+        private static final int INITIAL_CAPACITY = 256;
+
+        public Deserializer() {
+            super(ExchangeRateDTO.class);
+        }
+
+        @Override
+        public ExchangeRateDTO deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if(parser.currentToken() != JsonToken.START_OBJECT){
+                return (ExchangeRateDTO) context.handleUnexpectedToken(ExchangeRateDTO.class, parser);
+            }
+
+            ExchangeRateDTO exchangeRates = new ExchangeRateDTO(null, null);
+
+            while(parser.nextToken() == JsonToken.FIELD_NAME){
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if("rates".equals(field) && value == JsonToken.START_OBJECT){
+                    exchangeRates = this.readRates(parser);
+                }else{
+                    parser.skipChildren();
+                }
+            }
+
+            return exchangeRates;
+        }
+
+        /**
+         * Auxiliary method that reads the rates object, whose START_OBJECT token is the current one. Only finite, positive
+         * numbers are read; any other value, such as null, a string, a boolean, or a nested object or array, is skipped, so
+         * that it is neither served as a rate, nor derails the reading of the following ones
+         * @param parser - the parser of the response
+         * @return the DTO holding the read rates
+         */
+        private ExchangeRateDTO readRates(JsonParser parser) throws IOException {
+            String[] codes = new String[INITIAL_CAPACITY];
+            double[] rates = new double[INITIAL_CAPACITY];
+            int size = 0;
+
+            while(parser.nextToken() == JsonToken.FIELD_NAME){
+                String code = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if(value != JsonToken.VALUE_NUMBER_INT && value != JsonToken.VALUE_NUMBER_FLOAT){
+                    parser.skipChildren();
+                    continue;
+                }
+
+                double rate = parser.getDoubleValue();
+
+                if(!Double.isFinite(rate) || rate <= 0){
+                    continue;
+                }
+
+                if(size == codes.length){
+                    codes = Arrays.copyOf(codes, size * 2);
+                    rates = Arrays.copyOf(rates, size * 2);
+                }
+
+                codes[size] = code;
+                rates[size++] = rate;
+            }
+
+            return new ExchangeRateDTO(Arrays.copyOf(codes, size), Arrays.copyOf(rates, size));
+        }
+    }
 }
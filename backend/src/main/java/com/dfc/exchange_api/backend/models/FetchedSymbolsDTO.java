@@ -1,5 +1,6 @@
 package com.dfc.exchange_api.backend.models;
 
+import com.dfc.exchange_api.backend.utils.PayloadHash;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -17,4 +18,20 @@ import java.util.TreeMap;
 public class FetchedSymbolsDTO {
     @JsonProperty("symbols")
     private TreeMap<String, CurrencyDTO> symbols;
+
+    /**
+     * Gets the hash of the fetched symbols, which is equal for two responses holding the same currencies
+     * @return the 64-bit hash of the symbols
+     */
+    public long getPayloadHash() {
+        PayloadHash payloadHash = new PayloadHash();
+
+        if(symbols != null){
+            for(CurrencyDTO currency: symbols.values()){
+                payloadHash.add(currency.getCode()).add(currency.getDescription());
+            }
+        }
+
+        return payloadHash.get();
+    }
 }
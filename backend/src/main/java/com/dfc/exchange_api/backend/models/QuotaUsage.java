@@ -0,0 +1,24 @@
+package com.dfc.exchange_api.backend.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+/**
+ * Domain entity representing the calls made to the external API in a calendar month (UTC), against its monthly limit.
+ * It is stored in the H2 database, so that a restart doesn't reset the budget of the month.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class QuotaUsage {
+    // The calendar month, as in 2023-08
+    @Id
+    private String yearMonth;
+
+    private long calls;
+}
@@ -0,0 +1,145 @@
+package com.dfc.exchange_api.backend.models;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable, dense matrix holding the exchange rate between every pair of supported currencies. Rates are stored as
+ * primitive doubles in a single row-major array, in which each row corresponds to a base currency, and are addressed
+ * using the indexes assigned by a CurrencyIndex.
+ */
+public final class RateMatrix {
+    private final String anchorCode;
+    private final CurrencyIndex currencyIndex;
+    private final double[] rates;
+
+    private RateMatrix(String anchorCode, CurrencyIndex currencyIndex, double[] rates) {
+        this.anchorCode = anchorCode;
+        this.currencyIndex = currencyIndex;
+        this.rates = rates;
+    }
+
+    /**
+     * Builds the full matrix of cross rates from the exchange rates of the anchor currency, in which the rate from
+     * a currency A to a currency B is given by anchor -> B / anchor -> A.
+     * @param anchorCode - the code of the anchor currency
+     * @param anchorRates - the exchange rates from the anchor currency to every currency, including itself
+     * @return the built RateMatrix
+     */
+    public static RateMatrix fromAnchorRates(String anchorCode, Map<String, Double> anchorRates) {
+        String[] codes = new String[anchorRates.size()];
+        double[] anchorVector = new double[anchorRates.size()];
+        int i = 0;
+
+        for (Map.Entry<String, Double> anchorRate : anchorRates.entrySet()) {
+            codes[i] = anchorRate.getKey();
+            anchorVector[i++] = anchorRate.getValue();
+        }
+
+        return fromAnchorVector(anchorCode, codes, anchorVector);
+    }
+
+    /**
+     * Builds the full matrix of cross rates from the exchange rates of the anchor currency, given as parallel arrays, as
+     * decoded from the external API, without boxing any rate. Both arrays are owned, and sorted by currency code, by the
+     * matrix from then on.
+     * @param anchorCode - the code of the anchor currency
+     * @param codes - the distinct codes of every currency, including the anchor currency
+     * @param anchorVector - the exchange rate from the anchor currency to the currency with the same position in codes
+     * @return the built RateMatrix
+     */
+    public static RateMatrix fromAnchorVector(String anchorCode, String[] codes, double[] anchorVector) {
+        sortByCode(codes, anchorVector);
+
+        CurrencyIndex currencyIndex = new CurrencyIndex(codes);
+        int size = currencyIndex.size();
+
+        double[] rates = new double[size * size];
+        for (int from = 0; from < size; from++) {
+            int row = from * size;
+
+            for (int to = 0; to < size; to++) {
+                rates[row + to] = anchorVector[to] / anchorVector[from];
+            }
+        }
+
+        return new RateMatrix(anchorCode, currencyIndex, rates);
+    }
+
+    /**
+     * Gets the exchange rate from a Currency A to a Currency B, as a primitive double, so that no lookup allocates
+     * @param fromCode - the code of Currency A
+     * @param toCode - the code of Currency B
+     * @return the exchange rate; or NaN, in case either currency isn't in the matrix
+     */
+    public double getRate(String fromCode, String toCode) {
+        int from = currencyIndex.indexOf(fromCode);
+        int to = currencyIndex.indexOf(toCode);
+
+        if (from < 0 || to < 0) {
+            return Double.NaN;
+        }
+
+        return rates[from * currencyIndex.size() + to];
+    }
+
+    /**
+     * Gets the exchange rates from a Currency A to every currency in the matrix
+     * @param fromCode - the code of Currency A
+     * @return a Map<String, Double> containing the exchange rate for each currency (with their code being the key of
+     * the map); or null, in case Currency A isn't in the matrix
+     */
+    public Map<String, Double> getRates(String fromCode) {
+        int from = currencyIndex.indexOf(fromCode);
+
+        if (from < 0) {
+            return null;
+        }
+
+        int size = currencyIndex.size();
+        double[] row = Arrays.copyOfRange(rates, from * size, (from + 1) * size);
+        Map<String, Double> exchangeRates = new LinkedHashMap<>(size * 2);
+
+        for (int to = 0; to < size; to++) {
+            exchangeRates.put(currencyIndex.codeOf(to), row[to]);
+        }
+
+        return exchangeRates;
+    }
+
+    public boolean contains(String code) {
+        return currencyIndex.indexOf(code) >= 0;
+    }
+
+    public String getAnchorCode() {
+        return anchorCode;
+    }
+
+    public int size() {
+        return currencyIndex.size();
+    }
+
+    /**
+     * Auxiliary method that sorts the parallel arrays of codes and rates by code, in place. The external API returns its
+     * rates already sorted, apart from the anchor currency, so an insertion sort runs in close to linear time.
+     * @param codes - the currency codes
+     * @param anchorVector - the exchange rates, in the same order as the codes
+     */
+    private static void sortByCode(String[] codes, double[] anchorVector) {
+        for (int i = 1; i < codes.length; i++) {
+            String code = codes[i];
+            double rate = anchorVector[i];
+            int j = i - 1;
+
+            while (j >= 0 && codes[j].compareTo(code) > 0) {
+                codes[j + 1] = codes[j];
+                anchorVector[j + 1] = anchorVector[j];
+                j--;
+            }
+
+            codes[j + 1] = code;
+            anchorVector[j + 1] = rate;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.dfc.exchange_api.backend.models;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Result of an operation computed from a pinned RateSnapshot, carrying, along with the computed value, the freshness
+ * metadata of the exchange rates it was derived from, so that it can be reported to the client, and the codes of the
+ * requested currencies it is missing, in case it could only be partially computed.
+ * @param <T> - the type of the computed value
+ */
+public final class RateResult<T> {
+    private final T value;
+    private final RateSnapshot snapshot;
+    private final List<String> missingCodes;
+
+    public RateResult(T value, RateSnapshot snapshot) {
+        this(value, snapshot, List.of());
+    }
+
+    /**
+     * @param value - the computed value
+     * @param snapshot - the RateSnapshot the value was derived from; or null, in case no exchange rate was required
+     * @param missingCodes - the codes of the requested currencies whose exchange rates weren't in the snapshot
+     */
+    public RateResult(T value, RateSnapshot snapshot, List<String> missingCodes) {
+        this.value = value;
+        this.snapshot = snapshot;
+        this.missingCodes = missingCodes;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public RateSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public boolean hasSnapshot() {
+        return snapshot != null;
+    }
+
+    public List<String> getMissingCodes() {
+        return missingCodes;
+    }
+
+    public boolean isPartial() {
+        return !missingCodes.isEmpty();
+    }
+
+    /**
+     * Gets the age of the exchange rates the value was derived from
+     * @return the time elapsed since the exchange rates were fetched from the external API; or Duration.ZERO, in case no
+     * exchange rate was required
+     */
+    public Duration getAge() {
+        return snapshot == null ? Duration.ZERO : Duration.between(snapshot.getFetchedAt(), Instant.now());
+    }
+}
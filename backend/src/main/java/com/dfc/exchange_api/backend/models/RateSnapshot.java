@@ -0,0 +1,125 @@
+package com.dfc.exchange_api.backend.models;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned snapshot of the exchange rates published by the RateStore. A request pins a single snapshot for
+ * its whole computation, so every rate in a response is derived from the same set of anchor rates, regardless of any
+ * refresh published in the meantime. The rows of the hottest base currencies are materialized once, when the snapshot is
+ * built, and shared by every request reading them; the rows of any other base currency are derived on each request.
+ */
+public final class RateSnapshot {
+    private final long version;
+    private final Instant fetchedAt;
+    private final Instant staleAt;
+    private final RateMatrix rateMatrix;
+    private final Map<String, Map<String, Double>> materializedRates;
+
+    public RateSnapshot(long version, Instant fetchedAt, RateMatrix rateMatrix) {
+        this(version, fetchedAt, Instant.MAX, rateMatrix);
+    }
+
+    public RateSnapshot(long version, Instant fetchedAt, Instant staleAt, RateMatrix rateMatrix) {
+        this(version, fetchedAt, staleAt, rateMatrix, List.of());
+    }
+
+    /**
+     * @param version - the version of the snapshot
+     * @param fetchedAt - the instant in which the exchange rates were fetched from the external API
+     * @param staleAt - the instant from which the exchange rates are served as stale
+     * @param rateMatrix - the matrix of exchange rates
+     * @param hotCodes - the codes of the base currencies whose rows are materialized, so that requests reading them share
+     * a single map, instead of deriving it from the matrix; those not in the snapshot are ignored
+     */
+    public RateSnapshot(long version, Instant fetchedAt, Instant staleAt, RateMatrix rateMatrix, Collection<String> hotCodes) {
+        this.version = version;
+        this.fetchedAt = fetchedAt;
+        this.staleAt = staleAt;
+        this.rateMatrix = rateMatrix;
+        this.materializedRates = materializeRates(rateMatrix, hotCodes);
+    }
+
+    /**
+     * Gets the exchange rate from a Currency A to a Currency B
+     * @param fromCode - the code of Currency A
+     * @param toCode - the code of Currency B
+     * @return the exchange rate; or NaN, in case either currency isn't in the snapshot
+     */
+    public double getRate(String fromCode, String toCode) {
+        return rateMatrix.getRate(fromCode, toCode);
+    }
+
+    /**
+     * Gets the exchange rates from a Currency A to every currency in the snapshot
+     * @param fromCode - the code of Currency A
+     * @return an unmodifiable Map<String, Double> containing the exchange rate for each currency; or null, in case
+     * Currency A isn't in the snapshot
+     */
+    public Map<String, Double> getRates(String fromCode) {
+        Map<String, Double> rates = materializedRates.get(fromCode);
+
+        if(rates != null){
+            return rates;
+        }
+
+        rates = rateMatrix.getRates(fromCode);
+        return rates == null ? null : Collections.unmodifiableMap(rates);
+    }
+
+    private static Map<String, Map<String, Double>> materializeRates(RateMatrix rateMatrix, Collection<String> fromCodes) {
+        Map<String, Map<String, Double>> materializedRates = new HashMap<>();
+
+        for(String fromCode: fromCodes){
+            Map<String, Double> rates = rateMatrix.getRates(fromCode);
+
+            if(rates != null){
+                materializedRates.put(fromCode, Collections.unmodifiableMap(rates));
+            }
+        }
+
+        return Map.copyOf(materializedRates);
+    }
+
+    public boolean contains(String code) {
+        return rateMatrix.contains(code);
+    }
+
+    /**
+     * Gets the codes of the requested currencies that aren't in the snapshot, to be reported as missing from a response
+     * computed from it
+     * @param codes - the codes of the requested currencies
+     * @return the distinct codes of the missing currencies, sorted; or an empty list, in case none is missing
+     */
+    public List<String> getMissingCodes(Collection<String> codes) {
+        return codes.stream().filter(code -> !this.contains(code)).distinct().sorted().toList();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * Checks whether the exchange rates are stale, that is, older than they would be allowed to be kept in the cache
+     * @return true, in case the exchange rates are stale; false otherwise
+     */
+    public boolean isStale() {
+        return Instant.now().isAfter(staleAt);
+    }
+
+    public RateMatrix getRateMatrix() {
+        return rateMatrix;
+    }
+
+    public String getAnchorCode() {
+        return rateMatrix.getAnchorCode();
+    }
+}
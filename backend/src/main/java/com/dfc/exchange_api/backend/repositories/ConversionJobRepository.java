@@ -0,0 +1,16 @@
+package com.dfc.exchange_api.backend.repositories;
+
+import com.dfc.exchange_api.backend.models.ConversionJob;
+import com.dfc.exchange_api.backend.models.ConversionJob.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ConversionJobRepository extends JpaRepository<ConversionJob, String> {
+    List<ConversionJob> findByStatusInOrderBySubmittedAt(Collection<Status> statuses);
+    List<ConversionJob> findByCompletedAtBefore(Instant completedAt);
+}
@@ -0,0 +1,9 @@
+package com.dfc.exchange_api.backend.repositories;
+
+import com.dfc.exchange_api.backend.models.QuotaUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface QuotaUsageRepository extends JpaRepository<QuotaUsage, String> {
+}
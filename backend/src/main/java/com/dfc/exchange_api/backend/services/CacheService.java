@@ -1,6 +1,7 @@
 package com.dfc.exchange_api.backend.services;
 
 import com.dfc.exchange_api.backend.exceptions.CacheNotFoundException;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +11,8 @@ import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,15 +24,25 @@ public class CacheService {
     private static final Logger LOGGER = LoggerFactory.getLogger(CacheService.class);
     private static final String INPUT_REGEX = "[\n\r]";
     private CacheManager cacheManager;
+    private RateStore rateStore;
+    private ExternalApiCircuitBreaker circuitBreaker;
+    private ExternalApiQuota quota;
+    private DemandTracker demandTracker;
 
-    public CacheService(CacheManager cacheManager) {
+    public CacheService(CacheManager cacheManager, RateStore rateStore, ExternalApiCircuitBreaker circuitBreaker,
+                        ExternalApiQuota quota, DemandTracker demandTracker) {
         this.cacheManager = cacheManager;
+        this.rateStore = rateStore;
+        this.circuitBreaker = circuitBreaker;
+        this.quota = quota;
+        this.demandTracker = demandTracker;
     }
 
     // CACHE MANAGEMENT ENDPOINTS
 
     /**
-     * Gets all the entries in the exchangeRate cache
+     * Gets all the entries in the exchangeRate cache. Each stored snapshot of exchange rates is presented as the exchange
+     * rates from its anchor currency, with keys in the format ANCHOR_CODE.
      * @return an object containing the cache entries
      * @throws CacheNotFoundException - In case the cache has not been initialized
      */
@@ -42,7 +55,12 @@ public class CacheService {
             Map<Object, Object> cacheEntries = new HashMap<>();
 
             com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
-            nativeCache.asMap().forEach(cacheEntries::put);
+            nativeCache.asMap().values().forEach(value -> {
+                if(value instanceof RateSnapshot snapshot){
+                    String anchorCode = snapshot.getAnchorCode();
+                    snapshot.getRates(anchorCode).forEach((code, rate) -> cacheEntries.put(anchorCode + "_" + code, rate));
+                }
+            });
 
             return cacheEntries;
         }
@@ -52,40 +70,35 @@ public class CacheService {
     }
 
     /**
-     * Gets all of the keys registered in the exchangeRate cache
+     * Gets all of the keys registered in the exchangeRate cache, in the format ANCHOR_CODE
      * @return an object containing the cache keys
      * @throws CacheNotFoundException - In case the cache has not been initialized
      */
     public Object getAllCacheKeys() throws CacheNotFoundException {
-        LOGGER.info("Searching for all cache entries");
-        CaffeineCache caffeineCache = (CaffeineCache) cacheManager.getCache(CACHE_NAME);
-
-        if(caffeineCache != null){
-            LOGGER.info("Cache entries found");
-
-            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
-
-            return nativeCache.asMap().keySet();
-        }
-
-        LOGGER.info("No cache was found");
-        throw new CacheNotFoundException("No cache was found");
+        return ((Map<?, ?>) this.getAllCacheEntries()).keySet();
     }
 
     /**
-     * Gets the value associated with a given key in the cache.
+     * Gets the value associated with a given key in the cache. The key is in the format FROM_TO, and the value is the
+     * exchange rate between both currencies, read from the stored snapshot of exchange rates.
      * @param key - The key of the entry to be retrieved
      * @return either the correpsonding value, or null, if the key is not stored in the cache
      */
     public Object getSingleValue(@PathVariable(name = "key") String key) throws CacheNotFoundException {
-        Cache cache = cacheManager.getCache(CACHE_NAME);
+        CaffeineCache caffeineCache = (CaffeineCache) cacheManager.getCache(CACHE_NAME);
+
+        if (caffeineCache != null) {
+            String[] codes = key.split("_");
 
-        if (cache != null) {
-            Cache.ValueWrapper value = cache.get(key);
+            if (codes.length == 2) {
+                for (Object value : caffeineCache.getNativeCache().asMap().values()) {
+                    double exchangeRate = value instanceof RateSnapshot snapshot ? snapshot.getRate(codes[0], codes[1]) : Double.NaN;
 
-            if (value != null) {
-                LOGGER.info("Cache entry found for key: {}", key.replaceAll(INPUT_REGEX, "_"));
-                return value.get();
+                    if (!Double.isNaN(exchangeRate)) {
+                        LOGGER.info("Cache entry found for key: {}", key.replaceAll(INPUT_REGEX, "_"));
+                        return exchangeRate;
+                    }
+                }
             }
         }else{
             throw new CacheNotFoundException("No cache was found");
@@ -96,7 +109,7 @@ public class CacheService {
     }
 
     /**
-     * Clears the cache
+     * Clears the cache, discarding the currently published snapshot of exchange rates
      * @throws CacheNotFoundException - In case the cache has not been initialized
      */
     public void deleteAllCacheEntries() throws CacheNotFoundException {
@@ -106,6 +119,7 @@ public class CacheService {
         if(cache != null){
             LOGGER.info("Cleared the cache successfully");
             cache.clear();
+            rateStore.clear();
         }else{
             LOGGER.info("No cache was found");
             throw new CacheNotFoundException("No cache was found");
@@ -116,7 +130,10 @@ public class CacheService {
     // CACHE STATISTICS ENDPOINTS
 
     /**
-     * Returns cache statistics, such as number of hits, misses and number of evictions
+     * Returns cache statistics, such as number of hits, misses and number of evictions, along with the version of the
+     * last published snapshot of exchange rates, and the instant in which its rates were fetched, and their age in seconds.
+     * The state of the circuit breaker around the external API, and its number of transitions, are also returned, along
+     * with the consumption of the budget of calls to the external API.
      * @return A Map containing said statistics
      * @throws CacheNotFoundException - In case the cache has not been initialized
      */
@@ -134,6 +151,16 @@ public class CacheService {
             cacheStats.put("hits", stats.hitCount());
             cacheStats.put("misses", stats.missCount());
             cacheStats.put("evictions", stats.evictionCount());
+            cacheStats.put("version", rateStore.getVersion());
+            cacheStats.put("circuitBreaker", circuitBreaker.getStatistics());
+            cacheStats.put("upstreamQuota", quota.getStatistics());
+
+            RateSnapshot snapshot = rateStore.getPublishedSnapshot();
+
+            if(snapshot != null){
+                cacheStats.put("fetchedAt", snapshot.getFetchedAt().toString());
+                cacheStats.put("ageSeconds", Duration.between(snapshot.getFetchedAt(), Instant.now()).getSeconds());
+            }
 
             return cacheStats;
 
@@ -142,4 +169,14 @@ public class CacheService {
         LOGGER.info("No cache was found");
         throw new CacheNotFoundException("No cache was found");
     }
+
+    /**
+     * Returns the priority ranking of the base currencies, by their recent number of lookups, as estimated by the
+     * DemandTracker. The rows of the hottest ones are materialized whenever a snapshot is published.
+     * @return A Map, ordered from the hottest base currency, containing the estimated number of lookups of each one
+     */
+    public Map<String, Long> getDemandRanking() {
+        LOGGER.info("Ranking the base currencies by demand");
+        return demandTracker.getRanking();
+    }
 }
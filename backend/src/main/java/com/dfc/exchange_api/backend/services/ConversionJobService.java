@@ -0,0 +1,419 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotCompletedException;
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotFoundException;
+import com.dfc.exchange_api.backend.models.ConversionItemResult;
+import com.dfc.exchange_api.backend.models.ConversionJob;
+import com.dfc.exchange_api.backend.models.ConversionJob.Status;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.repositories.ConversionJobRepository;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.LineReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service that runs asynchronous conversion jobs, for workloads too large to be converted within a single HTTP call, even
+ * a streamed one. An uploaded file of conversion records, either newline-delimited JSON or CSV, is stored in the jobs
+ * directory, and its job is queued in the H2 database, to be run in the background; the client then polls the job's
+ * progress, and downloads its result file once completed.
+ * Jobs are run one at a time, in the order they were submitted, by a dispatcher thread, which splits the uploaded file into
+ * chunks of records, and converts them in parallel on a bounded pool of worker threads, against a single snapshot of
+ * exchange rates pinned for the whole job, so that its results are consistent. The converted chunks are written to the
+ * result file in their original order, and only a bounded number of chunks is in flight at any time, so that memory use
+ * doesn't grow with the size of the file. The progress of a job is stored after each chunk. Jobs queued or running when
+ * the application stopped are resumed on restart, with a running job being converted again from its start, against a
+ * newly pinned snapshot.
+ */
+@Service
+public class ConversionJobService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversionJobService.class);
+    private static final String INPUT_SUFFIX = ".in";
+    private static final String RESULT_SUFFIX = ".out";
+    private static final String PARTIAL_SUFFIX = ".out.tmp";
+    @Value("${conversion.job.directory}")
+    private String DIRECTORY;
+    @Value("${conversion.job.workers}")
+    private int WORKERS;
+    @Value("${conversion.job.chunk.records}")
+    private int CHUNK_RECORDS;
+    @Value("${conversion.job.retention.hours}")
+    private long RETENTION_HOURS;
+    private ConversionJobRepository conversionJobRepository;
+    private StreamingConversionService streamingConversionService;
+    private ExecutorService dispatcher;
+    private ExecutorService workerPool;
+
+    public ConversionJobService(ConversionJobRepository conversionJobRepository, StreamingConversionService streamingConversionService) {
+        this.conversionJobRepository = conversionJobRepository;
+        this.streamingConversionService = streamingConversionService;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger workerCount = new AtomicInteger();
+
+        this.dispatcher = Executors.newSingleThreadExecutor(task -> new Thread(task, "conversion-job-dispatcher"));
+        this.workerPool = Executors.newFixedThreadPool(WORKERS, task -> new Thread(task, "conversion-job-worker-" + workerCount.incrementAndGet()));
+    }
+
+    /**
+     * Stops running jobs on shutdown. A job interrupted while running stays marked as running in the database, and is
+     * converted again from its start on restart.
+     */
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    /**
+     * Resumes, once the application is ready, the jobs that were queued or running when it stopped, in the order they
+     * were submitted
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        List<ConversionJob> pendingJobs = conversionJobRepository.findByStatusInOrderBySubmittedAt(List.of(Status.QUEUED, Status.RUNNING));
+
+        for(ConversionJob job: pendingJobs){
+            LOGGER.info("Resuming the {} conversion job {}", job.getStatus(), job.getId());
+            this.deleteQuietly(this.pathOf(job.getId(), PARTIAL_SUFFIX));
+
+            job.setStatus(Status.QUEUED);
+            job.setProcessedBytes(0);
+            job.setProcessedRecords(0);
+            job.setFailedRecords(0);
+            job.setSnapshotVersion(null);
+            job.setStartedAt(null);
+            conversionJobRepository.save(job);
+
+            dispatcher.execute(() -> this.run(job.getId()));
+        }
+    }
+
+    /**
+     * Submits a conversion job, storing the uploaded file in the jobs directory, and queueing the job to be run
+     * @param content - the content of the uploaded file
+     * @param fileName - the original name of the uploaded file
+     * @param format - the format of both the records and the results
+     * @return the queued job
+     * @throws IOException - in case the uploaded file can't be stored
+     */
+    public ConversionJob submit(InputStream content, String fileName, Format format) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path input = this.pathOf(id, INPUT_SUFFIX);
+
+        Files.createDirectories(input.getParent());
+        Files.copy(content, input, StandardCopyOption.REPLACE_EXISTING);
+
+        ConversionJob job = conversionJobRepository.save(new ConversionJob(id, format, fileName, Files.size(input), Instant.now()));
+        LOGGER.info("Queued the conversion job {}, of {} bytes", id, job.getInputBytes());
+
+        dispatcher.execute(() -> this.run(id));
+        return job;
+    }
+
+    /**
+     * Gets a conversion job, holding its status and progress
+     * @param id - the id of the job
+     * @return the job
+     * @throws ConversionJobNotFoundException - in case there is no job with the given id
+     */
+    public ConversionJob getJob(String id) throws ConversionJobNotFoundException {
+        return conversionJobRepository.findById(id)
+                .orElseThrow(() -> new ConversionJobNotFoundException("Conversion job " + id + " not found"));
+    }
+
+    /**
+     * Gets the result file of a completed conversion job, holding the result of each record, in the order of the records
+     * @param id - the id of the job
+     * @return the path of the result file
+     * @throws ConversionJobNotFoundException - in case there is no job with the given id
+     * @throws ConversionJobNotCompletedException - in case the job hasn't completed, or has failed
+     */
+    public Path getResult(String id) throws ConversionJobNotFoundException, ConversionJobNotCompletedException {
+        ConversionJob job = this.getJob(id);
+
+        if(job.getStatus() != Status.COMPLETED){
+            throw new ConversionJobNotCompletedException("Conversion job " + id + " is " + job.getStatus().name().toLowerCase());
+        }
+
+        return this.pathOf(id, RESULT_SUFFIX);
+    }
+
+    /**
+     * Deletes the jobs completed, or failed, longer ago than the retention period, along with their files. This method is
+     * scheduled to run periodically.
+     */
+    @Scheduled(initialDelayString = "${conversion.job.purge.millis}", fixedRateString = "${conversion.job.purge.millis}")
+    public void purge() {
+        for(ConversionJob job: conversionJobRepository.findByCompletedAtBefore(Instant.now().minus(Duration.ofHours(RETENTION_HOURS)))){
+            this.deleteQuietly(this.pathOf(job.getId(), INPUT_SUFFIX));
+            this.deleteQuietly(this.pathOf(job.getId(), RESULT_SUFFIX));
+            conversionJobRepository.delete(job);
+
+            LOGGER.info("Purged the conversion job {}", job.getId());
+        }
+    }
+
+    /**
+     * Runs a queued job, on the dispatcher thread: pins the snapshot of exchange rates, converts the chunks of the
+     * uploaded file on the worker pool, and writes their results to a partial result file, which replaces the result file
+     * once every chunk was converted
+     * @param id - the id of the job
+     */
+    void run(String id) {
+        Optional<ConversionJob> queuedJob = conversionJobRepository.findById(id).filter(job -> job.getStatus() == Status.QUEUED);
+
+        if(queuedJob.isEmpty()){
+            return;
+        }
+
+        ConversionJob job = queuedJob.get();
+        RateSnapshot snapshot;
+
+        try{
+            snapshot = streamingConversionService.getRateSnapshot(null).block();
+        } catch (RuntimeException ex) {
+            // Any failure, not only a failure to contact the External API, must finish the job, or it is polled forever
+            this.fail(job, ex.getMessage());
+            return;
+        }
+
+        if(snapshot == null){
+            this.fail(job, "The exchange rates could not be loaded");
+            return;
+        }
+
+        job.setStatus(Status.RUNNING);
+        job.setStartedAt(Instant.now());
+        job.setSnapshotVersion(snapshot.getVersion());
+        conversionJobRepository.save(job);
+        LOGGER.info("Running the conversion job {}, at version {}", id, snapshot.getVersion());
+
+        Path partialResult = this.pathOf(id, PARTIAL_SUFFIX);
+
+        try(CountingInputStream input = new CountingInputStream(Files.newInputStream(this.pathOf(id, INPUT_SUFFIX)));
+            OutputStream output = new BufferedOutputStream(Files.newOutputStream(partialResult))){
+            this.convert(job, input, output, snapshot);
+        } catch (IOException | ExecutionException | RuntimeException ex) {
+            LOGGER.warn("The conversion job {} failed: {}", id, ex.getMessage());
+            this.deleteQuietly(partialResult);
+            this.fail(job, "The conversion failed: " + ex.getMessage());
+            return;
+        } catch (InterruptedException ex) {
+            // Shutting down - the job is converted again on restart
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try{
+            Files.move(partialResult, this.pathOf(id, RESULT_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.deleteQuietly(this.pathOf(id, INPUT_SUFFIX));
+        } catch (IOException ex) {
+            this.fail(job, "The result file could not be stored: " + ex.getMessage());
+            return;
+        }
+
+        job.setStatus(Status.COMPLETED);
+        job.setProcessedBytes(job.getInputBytes());
+        job.setCompletedAt(Instant.now());
+        conversionJobRepository.save(job);
+        LOGGER.info("Completed the conversion job {}, with {} records, {} of them failed", id, job.getProcessedRecords(), job.getFailedRecords());
+    }
+
+    /**
+     * Auxiliary method that splits the uploaded file into chunks, submits them to the worker pool, and writes their
+     * results in order, storing the progress of the job after each chunk. At most twice as many chunks as workers are in
+     * flight, so that the reading of the file waits for the workers, instead of buffering it.
+     * @param job - the running job
+     * @param input - the uploaded file
+     * @param output - the partial result file
+     * @param snapshot - the snapshot of exchange rates pinned for the whole job
+     */
+    private void convert(ConversionJob job, CountingInputStream input, OutputStream output, RateSnapshot snapshot)
+            throws IOException, ExecutionException, InterruptedException {
+        Format format = job.getFormat();
+        LineReader reader = streamingConversionService.openReader(input);
+        Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+        Writer header = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        long lineNumber = 0;
+
+        streamingConversionService.writeHeader(header, format);
+        header.flush();
+
+        while(true){
+            Chunk chunk = this.readChunk(reader, lineNumber + 1, input);
+
+            if(chunk.lines().isEmpty()){
+                break;
+            }
+
+            lineNumber += chunk.lines().size();
+            inFlight.add(workerPool.submit(() -> this.convertChunk(chunk, format, snapshot)));
+
+            if(inFlight.size() >= WORKERS * 2){
+                this.writeChunk(job, inFlight.poll().get(), output);
+            }
+        }
+
+        while(!inFlight.isEmpty()){
+            this.writeChunk(job, inFlight.poll().get(), output);
+        }
+    }
+
+    /**
+     * Auxiliary method that reads the next chunk of lines of the uploaded file
+     * @param reader - the reader of the lines of the file
+     * @param firstLineNumber - the number of the first line of the chunk
+     * @param input - the file, which counts the bytes read so far
+     * @return the chunk, holding no line at the end of the file
+     */
+    private Chunk readChunk(LineReader reader, long firstLineNumber, CountingInputStream input) throws IOException {
+        List<String> lines = new ArrayList<>(CHUNK_RECORDS);
+        int[] lengths = new int[CHUNK_RECORDS];
+        StringBuilder line = new StringBuilder();
+        int length;
+
+        while(lines.size() < CHUNK_RECORDS && (length = reader.readLine(line)) >= 0){
+            lengths[lines.size()] = length;
+            lines.add(line.toString());
+        }
+
+        return new Chunk(firstLineNumber, lines, lengths, input.getCount());
+    }
+
+    /**
+     * Auxiliary method that converts the records of a chunk, on a worker thread
+     * @param chunk - the chunk
+     * @param format - the format of both the records and the results
+     * @param snapshot - the snapshot of exchange rates pinned for the whole job
+     * @return the results of the chunk, encoded in UTF-8
+     */
+    private ChunkResult convertChunk(Chunk chunk, Format format, RateSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(results, StandardCharsets.UTF_8));
+        long records = 0;
+        long failedRecords = 0;
+
+        for(int i = 0; i < chunk.lines().size(); i++){
+            String line = chunk.lines().get(i);
+            long lineNumber = chunk.firstLineNumber() + i;
+
+            if(streamingConversionService.isSkipped(line, lineNumber, format)){
+                continue;
+            }
+
+            ConversionItemResult result = streamingConversionService.convertRecord(line, chunk.lengths()[i], lineNumber, format, snapshot);
+            streamingConversionService.writeResult(writer, result, format);
+
+            records++;
+            if(result.getError() != null){
+                failedRecords++;
+            }
+        }
+
+        writer.flush();
+        return new ChunkResult(results.toByteArray(), records, failedRecords, chunk.endOffset());
+    }
+
+    /**
+     * Auxiliary method that writes the results of a chunk to the partial result file, and stores the progress of the job
+     * @param job - the running job
+     * @param result - the results of the chunk
+     * @param output - the partial result file
+     */
+    private void writeChunk(ConversionJob job, ChunkResult result, OutputStream output) throws IOException {
+        output.write(result.output());
+
+        job.setProcessedRecords(job.getProcessedRecords() + result.records());
+        job.setFailedRecords(job.getFailedRecords() + result.failedRecords());
+        job.setProcessedBytes(result.endOffset());
+        conversionJobRepository.save(job);
+    }
+
+    private void fail(ConversionJob job, String error) {
+        LOGGER.warn("The conversion job {} failed: {}", job.getId(), error);
+
+        job.setStatus(Status.FAILED);
+        job.setError(error);
+        job.setCompletedAt(Instant.now());
+        conversionJobRepository.save(job);
+    }
+
+    private Path pathOf(String id, String suffix) {
+        return Path.of(DIRECTORY).toAbsolutePath().resolve(id + suffix);
+    }
+
+    private void deleteQuietly(Path file) {
+        try{
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            LOGGER.warn("Could not delete {}: {}", file, ex.getMessage());
+        }
+    }
+
+    /**
+     * A chunk of lines of an uploaded file, along with the number of its first line, the full length of each line, and
+     * the offset of the file, in bytes, up to which it was read
+     */
+    private record Chunk(long firstLineNumber, List<String> lines, int[] lengths, long endOffset) {}
+
+    /**
+     * The results of a chunk, encoded in UTF-8, along with the number of records converted, and of those that failed
+     */
+    private record ChunkResult(byte[] output, long records, long failedRecords, long endOffset) {}
+
+    /**
+     * Input stream counting the bytes read from it, from which the progress of a job is computed
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        private CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+
+            if(value >= 0){
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+
+            if(read > 0){
+                count += read;
+            }
+            return read;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
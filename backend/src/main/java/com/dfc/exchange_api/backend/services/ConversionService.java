@@ -1,11 +1,14 @@
 package com.dfc.exchange_api.backend.services;
 
-import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
-import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import com.dfc.exchange_api.backend.models.ConversionItem;
+import com.dfc.exchange_api.backend.models.ConversionItemResult;
+import com.dfc.exchange_api.backend.models.RateResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -13,100 +16,201 @@ import java.util.stream.Collectors;
 @Service
 public class ConversionService {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConversionService.class);
-    private CurrencyRepository currencyRepository;
+    private CurrencyRegistry currencyRegistry;
     private ExchangeService exchangeService;
 
-    public ConversionService(CurrencyRepository currencyRepository, ExchangeService exchangeService) {
-        this.currencyRepository = currencyRepository;
+    public ConversionService(CurrencyRegistry currencyRegistry, ExchangeService exchangeService) {
+        this.currencyRegistry = currencyRegistry;
         this.exchangeService = exchangeService;
     }
 
     /**
      * This method returns the conversion value of a specified amount from a Currency A to a list of Currencies B desired by the user.
-     * To do so, one of 2 executions path can happen for each of the currencies in list B:
-     *      1. We will fetch the exchange rate of A -> B from the exchangeRate cache,
-     *          in case it's stored there. We then calculate the conversion based on this rate.
-     *      2. If the exchanged rate of A -> B is not in the exchangeRate cache, we will fetch it from the external API, do the
-     *          conversion calculation, and store the fetched rate in its cache.
+     * To do so, a single snapshot of exchange rates is pinned for the whole list, so that every conversion is calculated
+     * from the same set of rates:
+     *      1. If the currently published snapshot, stored in the exchangeRate cache, holds the exchange rates of A -> B for
+     *          every currency in list B, the conversions are calculated from it.
+     *      2. Otherwise, the exchange rates are fetched from the external API, and the conversions are calculated from the
+     *          newly published snapshot.
+     * The snapshot is pinned within the default request deadline.
      * @param fromCode - the fromCode of Currency A
      * @param toCurrencies - the list of supplied currencies to convert to, separated by commas
      * @param amount - the desired amount to be converted
-     * @return a Map<String, Double> containing the conversion value for each supported currency (with their code being
-     * the key of the map)
-     * @throws InvalidCurrencyException - thrown when the user has passed an invalid code, with an HTTP Status BAD REQUEST
-     * @throws ExternalApiConnectionError - in case of an error in the connection to the External API
+     * @return a Mono emitting a RateResult holding a Map<String, Double> containing the conversion value for each supported
+     * currency (with their code being the key of the map), along with the snapshot it was calculated from; or an
+     * InvalidCurrencyException, when the user has passed an invalid code, or an ExternalApiConnectionError, in case of an
+     * error in the connection to the External API
      */
-    public Map<String, Double> getConversionFromCurrency(String fromCode, String toCurrencies, Double amount) throws InvalidCurrencyException, ExternalApiConnectionError {
+    public Mono<RateResult<Map<String, Double>>> getConversionFromCurrency(String fromCode, String toCurrencies, Double amount) {
+        return this.getConversionFromCurrency(fromCode, toCurrencies, amount, null);
+    }
+
+    /**
+     * This method returns the conversion value of a specified amount from a Currency A to a list of Currencies B, as
+     * described above, within a given request deadline. In case the deadline is exceeded, the conversions are calculated
+     * from the last published snapshot, and the currencies whose exchange rates it doesn't hold are listed as missing.
+     * @param fromCode - the fromCode of Currency A
+     * @param toCurrencies - the list of supplied currencies to convert to, separated by commas
+     * @param amount - the desired amount to be converted
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one
+     * @return a Mono emitting a RateResult holding a Map<String, Double> containing the conversion value for each currency
+     * in the snapshot (with their code being the key of the map), along with the snapshot it was calculated from and the
+     * missing currencies; or an InvalidCurrencyException, when the user has passed an invalid code, or an
+     * ExternalApiConnectionError, in case of an error in the connection to the External API
+     */
+    public Mono<RateResult<Map<String, Double>>> getConversionFromCurrency(String fromCode, String toCurrencies, Double amount, Long deadlineMillis) {
         // Verifying if the currencies are supported by the service
         if (!this.checkIfCurrencyExists(fromCode)) {
             LOGGER.info("The passed currency is not supported by the service!");
-            throw new InvalidCurrencyException("Invalid currency code " + fromCode + " provided!");
+            return Mono.error(new InvalidCurrencyException("Invalid currency code " + fromCode + " provided!"));
         }
 
         List<String> currencyToConvertCodes = Arrays.asList(toCurrencies.split(","));
 
-        currencyToConvertCodes.forEach(x -> {
-                if (!this.checkIfCurrencyExists(x)) {
-                    LOGGER.info("The passed currency {} is not supported by the service!", x);
-                    throw new InvalidCurrencyException("Invalid currency code " + x + " provided!");
-                }
+        for (String x : currencyToConvertCodes) {
+            if (!this.checkIfCurrencyExists(x)) {
+                LOGGER.info("The passed currency {} is not supported by the service!", x);
+                return Mono.error(new InvalidCurrencyException("Invalid currency code " + x + " provided!"));
             }
-        );
-
-        // The currencies are verified
-        Map<String, Double> conversionValue = new HashMap<>();
-        StringBuilder symbolsBuilder = new StringBuilder();                 // Will store symbols of currencies to be fetched from External API
-        String symbols;                                                     // Will store the result of the StringBuilder
+        }
 
         // Edge case -> amount == 0
         if(amount == 0.0){
-            return currencyToConvertCodes.stream().collect(
+            return Mono.just(new RateResult<>(currencyToConvertCodes.stream().collect(
                     Collectors.toMap(
                             currency -> currency,
                             currency -> 0.0
                     )
-            );
+            ), null));
         }
 
-        // Checking if the passed Currencies exchange rate is in the cache or not; If not, contacting the External API
-        currencyToConvertCodes.forEach(supportedCurrency -> {
-            Double exchangeRate = exchangeService.getExchangeRateFromCache(fromCode, supportedCurrency);
+        // Pinning a single snapshot of exchange rates for every conversion; contacting the External API if needed
+        return exchangeService.getRateSnapshot(fromCode, currencyToConvertCodes, deadlineMillis).map(snapshot -> {
+            Map<String, Double> conversionValue = new HashMap<>();
 
-            if (exchangeRate == null) {
-                // Not in exchange cage - exchange rate needs to be retrieved from External API
-                symbolsBuilder.append(supportedCurrency).append(",");
-            }else{
-                // ExchangeRate in ExchangeRate Cache
-                conversionValue.put(supportedCurrency, exchangeRate*amount);
+            currencyToConvertCodes.forEach(supportedCurrency -> {
+                double exchangeRate = snapshot.getRate(fromCode, supportedCurrency);
+
+                if (!Double.isNaN(exchangeRate)) {
+                    conversionValue.put(supportedCurrency, exchangeRate*amount);
+                }
+            });
+
+            LOGGER.info("Finalizing processing the call to /convert endpoint with parameters: fromCode - {}, at version {}", fromCode.replaceAll("[\n\r]", "_"), snapshot.getVersion());
+            return new RateResult<>(conversionValue, snapshot, snapshot.getMissingCodes(currencyToConvertCodes));
+        });
+    }
+
+    /**
+     * This method converts a batch of amounts, each from a Currency A to a Currency B, in a single call. Every item is
+     * validated against the in-memory CurrencyRegistry, and an invalid one is reported as failed, in its position of the
+     * result, instead of failing the whole batch. The valid items are grouped by their base currency, and a single
+     * snapshot of exchange rates is pinned for the whole batch, as described in ExchangeService.getBatchRateSnapshot, so that
+     * the exchange rates of each base currency are resolved once, and the conversions of its items are read from them.
+     * @param items - the conversions to be made
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one
+     * @return a Mono emitting a RateResult holding the result of each conversion, in the order of the items, along with
+     * the snapshot they were calculated from and the requested currencies it is missing; or an
+     * ExternalApiConnectionError, in case of an error in the connection to the External API
+     */
+    public Mono<RateResult<List<ConversionItemResult>>> getConversionForBatch(List<ConversionItem> items, Long deadlineMillis) {
+        ConversionItemResult[] results = new ConversionItemResult[items.size()];
+        // The positions of the valid items, grouped by their base currency
+        Map<String, List<Integer>> itemsByBase = new LinkedHashMap<>();
+        Set<String> toCodes = new HashSet<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            ConversionItem item = items.get(i);
+            String error = this.validate(item);
+
+            if (error != null) {
+                results[i] = ConversionItemResult.failed(item, error);
+            } else {
+                itemsByBase.computeIfAbsent(item.getFrom().toUpperCase(), code -> new ArrayList<>()).add(i);
+                toCodes.add(item.getTo().toUpperCase());
             }
+        }
+
+        if (itemsByBase.isEmpty()) {
+            return Mono.just(new RateResult<>(Arrays.asList(results), null));
+        }
+
+        // Pinning a single snapshot of exchange rates for the whole batch; contacting the External API if needed
+        return exchangeService.getBatchRateSnapshot(itemsByBase.keySet(), toCodes, deadlineMillis).map(snapshot -> {
+            itemsByBase.forEach((fromCode, positions) -> {
+                // Resolving the exchange rates from each base currency once, for all of its items
+                Map<String, Double> exchangeRates = snapshot.getRates(fromCode);
+
+                for (int position : positions) {
+                    ConversionItem item = items.get(position);
+                    String toCode = item.getTo().toUpperCase();
+                    Double exchangeRate = exchangeRates == null ? null : exchangeRates.get(toCode);
+
+                    results[position] = exchangeRate == null
+                            ? ConversionItemResult.failed(item, "The exchange rate from " + fromCode + " to " + toCode + " is not available")
+                            : ConversionItemResult.converted(item, fromCode, toCode, exchangeRate * item.getAmount());
+                }
+            });
+
+            List<String> requestedCodes = new ArrayList<>(toCodes);
+            requestedCodes.addAll(itemsByBase.keySet());
+
+            LOGGER.info("Finalizing processing the call to /convert/batch endpoint with {} items from {} base currencies, at version {}", items.size(), itemsByBase.size(), snapshot.getVersion());
+            return new RateResult<>(Arrays.asList(results), snapshot, snapshot.getMissingCodes(requestedCodes));
         });
+    }
+
+    /**
+     * This method converts a single item of a stream of conversions, from an already pinned snapshot of exchange rates,
+     * which isn't reloaded in case it doesn't hold the item's currencies
+     * @param item - the conversion to be made
+     * @param snapshot - the snapshot pinned for the whole stream
+     * @return the result of the conversion, holding either its value, or the error that prevented it
+     */
+    public ConversionItemResult getConversionForItem(ConversionItem item, RateSnapshot snapshot) {
+        String error = this.validate(item);
+
+        if (error != null) {
+            return ConversionItemResult.failed(item, error);
+        }
+
+        String fromCode = item.getFrom().toUpperCase();
+        String toCode = item.getTo().toUpperCase();
+        double exchangeRate = snapshot.getRate(fromCode, toCode);
+
+        return Double.isNaN(exchangeRate)
+                ? ConversionItemResult.failed(item, "The exchange rate from " + fromCode + " to " + toCode + " is not available")
+                : ConversionItemResult.converted(item, fromCode, toCode, exchangeRate * item.getAmount());
+    }
 
-        // In case there is the need for it, contact the external API to retrieve new exchange rates
-        if(!symbolsBuilder.isEmpty()){
-            // There are currencies not present in the cache
-            symbols = symbolsBuilder.toString();
-        }else{
-            LOGGER.info("No need to fetch exchange rates from external API");
-            return conversionValue;
+    /**
+     * Auxiliary method that validates an item of a batch of conversions
+     * @param item - the item to be validated
+     * @return the reason why the item is invalid; or null, in case it is valid
+     */
+    private String validate(ConversionItem item) {
+        if (item.getFrom() == null || !this.checkIfCurrencyExists(item.getFrom().toUpperCase())) {
+            return "Invalid currency code " + item.getFrom() + " provided!";
         }
 
-        // Fetching from external API for any Currency not in Cache
-        Map<String, Double> fetchedExchangeRates = exchangeService.getExchangeRatesFromExternalAPI(fromCode, symbols);
+        if (item.getTo() == null || !this.checkIfCurrencyExists(item.getTo().toUpperCase())) {
+            return "Invalid currency code " + item.getTo() + " provided!";
+        }
 
-        fetchedExchangeRates.entrySet().forEach(entry -> entry.setValue(entry.getValue() * amount));
-        conversionValue.putAll(fetchedExchangeRates);
+        if (item.getAmount() == null || item.getAmount() < 0 || item.getAmount().isNaN()) {
+            return "Amount must be non-negative!";
+        }
 
-        LOGGER.info("Finalizing processing the call to /exchange/{currency}/all endpoint with parameters: fromCode - {}", fromCode.replaceAll("[\n\r]", "_"));
-        return conversionValue;
+        return null;
     }
 
     /**
      * Auxiliary method that checks if a code passed as a parameter by the user in an API request belongs to a supported
-     * currency or not.
+     * currency or not, by looking it up in the in-memory CurrencyRegistry.
      * @param code - the code of the Currency to be checked
      * @return a boolean representing whether the code is supported or not by the API
      */
     private boolean checkIfCurrencyExists(String code) {
-        return currencyRepository.existsByCode(code);
+        return currencyRegistry.contains(code);
     }
 }
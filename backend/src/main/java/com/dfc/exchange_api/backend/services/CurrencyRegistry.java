@@ -0,0 +1,80 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.models.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory registry of the currencies supported by the service, used for every validation and lookup of a currency
+ * code, so that no request has to query the database. The registry is an immutable index of codes to currencies, rebuilt
+ * by the CurrencyService whenever the supported currencies are persisted, and swapped in through a single atomic
+ * reference; the H2 database is kept only as its persistence backing.
+ */
+@Service
+public class CurrencyRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CurrencyRegistry.class);
+    private final AtomicReference<Index> currentIndex = new AtomicReference<>(new Index(Map.of(), List.of(), 0));
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    /**
+     * Replaces the registry with a new immutable index of the given currencies, with the next version number
+     * @param currencies - every currency supported by the service
+     */
+    public void rebuild(Collection<Currency> currencies) {
+        Map<String, Currency> currenciesByCode = new HashMap<>();
+
+        for(Currency currency: currencies){
+            currenciesByCode.put(currency.getCode(), currency);
+        }
+
+        currentIndex.set(new Index(Map.copyOf(currenciesByCode), List.copyOf(currencies), versionSequence.incrementAndGet()));
+        LOGGER.info("Rebuilt the registry of {} supported currencies", currenciesByCode.size());
+    }
+
+    /**
+     * Checks whether a currency is supported by the service
+     * @param code - the code of the currency
+     * @return true, in case the currency is in the registry; false otherwise
+     */
+    public boolean contains(String code) {
+        return code != null && currentIndex.get().currenciesByCode().containsKey(code);
+    }
+
+    /**
+     * Looks up a supported currency by its code
+     * @param code - the code of the currency
+     * @return an Optional containing the currency; or an empty Optional, in case it isn't in the registry
+     */
+    public Optional<Currency> findByCode(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(currentIndex.get().currenciesByCode().get(code));
+    }
+
+    /**
+     * Gets every currency supported by the service
+     * @return an unmodifiable list of the currencies in the registry
+     */
+    public List<Currency> getAll() {
+        return currentIndex.get().currencies();
+    }
+
+    public int size() {
+        return currentIndex.get().currenciesByCode().size();
+    }
+
+    /**
+     * Gets the version of the registry, which changes whenever it is rebuilt, so that anything derived from the supported
+     * currencies can tell whether it is still current
+     * @return the version number; or 0, in case the registry was never built
+     */
+    public long getVersion() {
+        return currentIndex.get().version();
+    }
+
+    private record Index(Map<String, Currency> currenciesByCode, List<Currency> currencies, long version) {
+    }
+}
@@ -5,10 +5,12 @@ import com.dfc.exchange_api.backend.models.Currency;
 import com.dfc.exchange_api.backend.models.CurrencyDTO;
 import com.dfc.exchange_api.backend.models.FetchedSymbolsDTO;
 import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
 
@@ -18,62 +20,104 @@ public class CurrencyService {
 
     private CurrencyRepository currencyRepository;
     private ExternalApiService externalApiService;
+    private CurrencyRegistry currencyRegistry;
+    private TransactionTemplate transactionTemplate;
+    // The hash of the last fetched symbols reconciled with the repository
+    private volatile Long lastPayloadHash;
 
-    public CurrencyService(CurrencyRepository currencyRepository, ExternalApiService externalApiService) {
+    public CurrencyService(CurrencyRepository currencyRepository, ExternalApiService externalApiService,
+                           CurrencyRegistry currencyRegistry, TransactionTemplate transactionTemplate) {
         this.currencyRepository = currencyRepository;
         this.externalApiService = externalApiService;
+        this.currencyRegistry = currencyRegistry;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Seeds the in-memory CurrencyRegistry, at startup, with the currencies stored in the repository by a previous run,
+     * so that requests are validated against them even while the External API can't be reached.
+     */
+    @PostConstruct
+    public void loadStoredCurrencies() {
+        currencyRegistry.rebuild(currencyRepository.findAll());
     }
 
     /**
      * This method will fetch the supported currencies form the External API. To do so, it will contact the /symbols
-     * endpoint. Then, it will parse the obtained JSON Object, corresponding to an array in which each entry is a currency,
-     * and will create an instance of the Currency object. In the end, it will save all Currency objects in the currency repository,
-     * thus storing it in the in-memory H2 database.
+     * endpoint, and will then reconcile the fetched symbols with the currencies stored in the repository, thus storing them
+     * in the in-memory H2 database.
      * This method is scheduled to run every hour, to check whether the list of supported symbols by the External API has been
-     * updated or not. Thus, before adding a currency to the repository, we check whether or not that currency is already stored
-     * (to avoid the creation of duplicates).
+     * updated or not. Thus, the reconciliation is computed as a single in-memory diff between the fetched symbols and the
+     * stored currencies, read with one query: the new currencies are inserted, and the no longer supported ones are deleted,
+     * in batched statements within a single transaction. In case the set of symbols is unchanged, the repository is not
+     * written at all. Once the repository is up to date, the in-memory CurrencyRegistry is rebuilt from the stored
+     * currencies, and atomically replaces the previous one. In case the fetched symbols hash the same as the last ones
+     * reconciled, neither the repository nor the registry are touched.
      */
     @Scheduled(initialDelay = 3600000, fixedRate = 3600000)
     public void fetchSupportedCurrencies() {
-        List<Currency> supportedCurrencies = new ArrayList<>();
-
         // Fetching supported currencies by the external API
         LOGGER.info("Fetching list of supported currencies by the external API....");
 
         try {
-            FetchedSymbolsDTO fetchedCurrencies = externalApiService.getAvailableCurrencies();
-
-            // Fetching any previously supported currencies that are no longer supported
-            Set<String> currentlySupportedCurrencies = fetchedCurrencies.getSymbols().keySet();
-            List<Currency> outdatedCurrencies = currencyRepository.findAll()
-                    .stream()
-                    .filter(currency -> !currentlySupportedCurrencies.contains(currency.getCode()))
-                    .toList();
-
-            // Deleting no longer supported currencies
-            if(!outdatedCurrencies.isEmpty()){
-                LOGGER.info("Detected outdated currencies. They will be removed from the repository.");
-                currencyRepository.deleteAll(outdatedCurrencies);
+            FetchedSymbolsDTO fetchedSymbolsDTO = externalApiService.getAvailableCurrencies();
+            long payloadHash = fetchedSymbolsDTO.getPayloadHash();
+
+            if (lastPayloadHash != null && lastPayloadHash == payloadHash) {
+                LOGGER.info("The fetched symbols are unchanged since they were last reconciled.");
+                return;
             }
 
-            // Checking if any of the fetched currencies is new; adding new currencies to the repository
-            for (Map.Entry<String, CurrencyDTO> entry : fetchedCurrencies.getSymbols().entrySet()) {
-                CurrencyDTO currentFetchedCurrency = entry.getValue();
-                String description = currentFetchedCurrency.getDescription();
-                String code = currentFetchedCurrency.getCode();
+            Map<String, CurrencyDTO> fetchedSymbols = fetchedSymbolsDTO.getSymbols();
+            List<Currency> storedCurrencies = currencyRepository.findAll();
+
+            // Computing the diff between the fetched symbols and the stored currencies
+            Set<String> storedCodes = new HashSet<>();
+            List<Currency> retainedCurrencies = new ArrayList<>();
+            List<Currency> outdatedCurrencies = new ArrayList<>();
 
-                if (currencyRepository.findByCode(code).isEmpty()) {
-                    // If currency is not already in the repository
-                    Currency currentCurrency = new Currency(description, code);
+            for (Currency currency : storedCurrencies) {
+                storedCodes.add(currency.getCode());
+
+                if (fetchedSymbols.containsKey(currency.getCode())) {
+                    retainedCurrencies.add(currency);
+                } else {
+                    outdatedCurrencies.add(currency);
+                }
+            }
+
+            List<Currency> newCurrencies = new ArrayList<>();
+
+            for (CurrencyDTO fetchedCurrency : fetchedSymbols.values()) {
+                if (!storedCodes.contains(fetchedCurrency.getCode())) {
+                    Currency currentCurrency = new Currency(fetchedCurrency.getDescription(), fetchedCurrency.getCode());
                     LOGGER.info("Fetched currency: {}", currentCurrency);
-                    supportedCurrencies.add(currentCurrency);
+                    newCurrencies.add(currentCurrency);
                 }
             }
 
-            if (!supportedCurrencies.isEmpty()) {
-                LOGGER.info("Adding new supported currencies to the repository.");
-                currencyRepository.saveAll(supportedCurrencies);
+            if (outdatedCurrencies.isEmpty() && newCurrencies.isEmpty()) {
+                LOGGER.info("The list of supported currencies is unchanged.");
+                currencyRegistry.rebuild(storedCurrencies);
+                lastPayloadHash = payloadHash;
+                return;
             }
+
+            // Applying the diff to the repository
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!outdatedCurrencies.isEmpty()) {
+                    LOGGER.info("Detected {} outdated currencies. They will be removed from the repository.", outdatedCurrencies.size());
+                    currencyRepository.deleteAllInBatch(outdatedCurrencies);
+                }
+
+                if (!newCurrencies.isEmpty()) {
+                    LOGGER.info("Adding {} new supported currencies to the repository.", newCurrencies.size());
+                    retainedCurrencies.addAll(currencyRepository.saveAll(newCurrencies));
+                }
+            });
+
+            currencyRegistry.rebuild(retainedCurrencies);
+            lastPayloadHash = payloadHash;
         }
         catch(ExternalApiConnectionError e){
                 LOGGER.info("Could not connext to External API");
@@ -82,10 +126,10 @@ public class CurrencyService {
 
     /**
      * Method used to get all the currencies supported by this API, called by the REST endpoint associated with this
-     * call.
+     * call. The currencies are read from the in-memory CurrencyRegistry, rather than from the repository.
      * @return the list of supported currencies
      */
     public List<Currency> getSupportedCurrencies(){
-        return currencyRepository.findAll();
+        return currencyRegistry.getAll();
     }
 }
@@ -0,0 +1,97 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.models.Currency;
+import com.dfc.exchange_api.backend.utils.CountMinSketch;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Service that tracks how often the exchange rates from each base currency are looked up, in a decaying count-min sketch,
+ * so that the hottest base currencies can be prioritized. Since every cross rate is derived from a single call to the
+ * external API, for the anchor currency, the ranking doesn't change which exchange rates are fetched; it decides which
+ * rows of the matrix are materialized as soon as a snapshot is published, while the rows of cold base currencies are
+ * only derived when requested. The recorded frequencies are halved periodically, so the ranking follows recent traffic.
+ */
+@Service
+public class DemandTracker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemandTracker.class);
+    @Value("${exchange.demand.sketch.width}")
+    private int SKETCH_WIDTH;
+    @Value("${exchange.demand.hot.size}")
+    private int HOT_SIZE;
+    private CurrencyRegistry currencyRegistry;
+    private CountMinSketch sketch;
+
+    public DemandTracker(CurrencyRegistry currencyRegistry) {
+        this.currencyRegistry = currencyRegistry;
+    }
+
+    @PostConstruct
+    public void buildSketch() {
+        this.sketch = new CountMinSketch(SKETCH_WIDTH);
+    }
+
+    /**
+     * Records a lookup of the exchange rates from a base currency
+     * @param code - the code of the base currency
+     */
+    public void record(String code) {
+        sketch.increment(code);
+    }
+
+    /**
+     * Records the estimated frequencies of base currencies at once, as restored from the snapshot file at startup, so that
+     * their rows are materialized before any request is received
+     * @param frequencies - the estimated frequency of each base currency
+     */
+    public void seed(Map<String, Long> frequencies) {
+        frequencies.forEach((code, frequency) -> sketch.add(code, frequency));
+    }
+
+    /**
+     * Ages the recorded frequencies, by halving them. This method is scheduled to run periodically.
+     */
+    @Scheduled(initialDelayString = "${exchange.demand.decay.millis}", fixedRateString = "${exchange.demand.decay.millis}")
+    public void decay() {
+        sketch.halve();
+        LOGGER.debug("Halved the recorded lookups of each base currency");
+    }
+
+    /**
+     * Gets the supported currencies that were looked up as a base currency, ranked by their estimated frequency
+     * @return a Map, ordered from the hottest base currency to the coldest one, containing the estimated frequency of
+     * each base currency (with their code being the key of the map)
+     */
+    public Map<String, Long> getRanking() {
+        List<Map.Entry<String, Long>> frequencies = new ArrayList<>();
+
+        for(Currency currency: currencyRegistry.getAll()){
+            long frequency = sketch.estimate(currency.getCode());
+
+            if(frequency > 0){
+                frequencies.add(Map.entry(currency.getCode(), frequency));
+            }
+        }
+
+        frequencies.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Long> ranking = new LinkedHashMap<>();
+        frequencies.forEach(frequency -> ranking.put(frequency.getKey(), frequency.getValue()));
+
+        return ranking;
+    }
+
+    /**
+     * Gets the hottest base currencies, whose rows are materialized when a snapshot is published
+     * @return the codes of, at most, the configured number of hottest base currencies, from the hottest one
+     */
+    public List<String> getHottestCodes() {
+        return this.getRanking().keySet().stream().limit(HOT_SIZE).toList();
+    }
+}
@@ -3,194 +3,361 @@ package com.dfc.exchange_api.backend.services;
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
 import com.dfc.exchange_api.backend.models.Currency;
-import com.dfc.exchange_api.backend.models.ExchangeRateDTO;
-import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import com.dfc.exchange_api.backend.models.RateResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
 
 @Service
 public class ExchangeService {
-    @Value("${cache.name}")
-    private String CACHE_NAME;
     private static final Logger LOGGER = LoggerFactory.getLogger(ExchangeService.class);
     private static final String INPUT_REGEX = "[\n\r]";
-    private ExternalApiService apiService;
-    private CurrencyRepository currencyRepository;
-    private CurrencyService currencyService;
-    private CacheManager cacheManager;
+    private static final int CODE_LENGTH = 3;
+    private static final int PAIR_LENGTH = CODE_LENGTH * 2;
+    @Value("${request.deadline.millis}")
+    private long DEFAULT_DEADLINE_MILLIS;
+    @Value("${request.deadline.max.millis}")
+    private long MAX_DEADLINE_MILLIS;
+    private CurrencyRegistry currencyRegistry;
+    private RateStore rateStore;
+    private DemandTracker demandTracker;
 
-    public ExchangeService(ExternalApiService apiService, CurrencyRepository currencyRepository, CurrencyService currencyService, CacheManager cacheManager) {
-        this.apiService = apiService;
-        this.currencyRepository = currencyRepository;
-        this.currencyService = currencyService;
-        this.cacheManager = cacheManager;
+    public ExchangeService(CurrencyRegistry currencyRegistry, RateStore rateStore, DemandTracker demandTracker) {
+        this.currencyRegistry = currencyRegistry;
+        this.rateStore = rateStore;
+        this.demandTracker = demandTracker;
     }
 
     /**
-     * This method returns the exchange rate from a currency A to a currency B. It implements the @Cacheable annotation,
-     * meaning that it will first check the exchangeRate cache, which stores each individual exchange rate from a currency A to a
-     * currency B, to see if the value is already stored. If it isn't, it contacts the external API at the /latest endpoint.
+     * This method returns the exchange rate from a currency A to a currency B. It will first check the currently published
+     * snapshot of exchange rates, which holds the matrix of exchange rates between every supported currency, to see if the
+     * rate is already stored. If it isn't, it contacts the external API at the /latest endpoint to publish a new snapshot.
+     * The result is emitted without holding the calling thread while the external API is contacted, within the default
+     * request deadline, as described in getRateSnapshot.
      * @param fromCode - the code for Currency A
      * @param toCode - the code for Currency B
-     * @return the exchange rate
-     * @throws InvalidCurrencyException - if either of the currency codes passed as parameters by the user is not supported
-     * by the API, throws this exception with the HTTP Status BAD REQUEST
-     * @throws ExternalApiConnectionError - in case of an error in the connection to the External API
+     * @return a Mono emitting a RateResult holding the exchange rate, along with the snapshot it was read from; or an
+     * InvalidCurrencyException, if either of the currency codes passed as parameters by the user is not supported by the
+     * API, or an ExternalApiConnectionError, in case of an error in the connection to the External API
      */
-    @Cacheable(value = "exchangeRate", key = "#fromCode + '_' + #toCode")
-    public Double getExchangeRateForSpecificCurrency(String fromCode, String toCode) throws InvalidCurrencyException, ExternalApiConnectionError {
+    public Mono<RateResult<Double>> getExchangeRateForSpecificCurrency(String fromCode, String toCode) {
+        return this.getExchangeRateForSpecificCurrency(fromCode, toCode, null);
+    }
+
+    /**
+     * This method returns the exchange rate from a currency A to a currency B, as described above, within a given request
+     * deadline. In case the deadline is exceeded, and the exchange rate of B isn't in the published snapshot, the result
+     * holds no exchange rate, and lists B as missing.
+     * @param fromCode - the code for Currency A
+     * @param toCode - the code for Currency B
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one
+     * @return a Mono emitting a RateResult holding the exchange rate, or null, in case it is missing, along with the
+     * snapshot it was read from; or an InvalidCurrencyException, if either of the currency codes passed as parameters by
+     * the user is not supported by the API, or an ExternalApiConnectionError, in case of an error in the connection to the
+     * External API
+     */
+    public Mono<RateResult<Double>> getExchangeRateForSpecificCurrency(String fromCode, String toCode, Long deadlineMillis) {
         // Verifying if the passed currencies are supported by the service
         if (!this.checkIfCurrencyExists(fromCode) || !this.checkIfCurrencyExists(toCode)) {
             LOGGER.info("One of the passed currencies is not supported by the service!");
-            throw new InvalidCurrencyException("Invalid currency code(s) provided!");
+            return Mono.error(new InvalidCurrencyException("Invalid currency code(s) provided!"));
         }
 
-        // Fetching from external API (Not done if in Cache
-        LOGGER.info("Finalizing processing the call to /exchange/{from} endpoint with parameters: from - {}; to - {}", fromCode.replaceAll(INPUT_REGEX, "_"), toCode.replaceAll(INPUT_REGEX,"_"));
-        return this.getExchangeRatesFromExternalAPI(fromCode, toCode).get(toCode);
+        return this.getRateSnapshot(fromCode, List.of(toCode), deadlineMillis).map(snapshot -> {
+            LOGGER.info("Finalizing processing the call to /exchange/{from} endpoint with parameters: from - {}; to - {}", fromCode.replaceAll(INPUT_REGEX, "_"), toCode.replaceAll(INPUT_REGEX,"_"));
+            double exchangeRate = snapshot.getRate(fromCode, toCode);
+
+            return new RateResult<>(Double.isNaN(exchangeRate) ? null : exchangeRate, snapshot, snapshot.getMissingCodes(List.of(toCode)));
+        });
     }
 
 
     /**
-     * This method returns all the exchange rates for a given currency. To do so, it will first check, for each supported currency,
-     * if the exchange rate is currently stored in the exchangeRate cache. If it is, that will be the rate returned for the specific currency.
-     * In case there is a currency not stored in the cache, the external API will be contacted at the /latest endpoint,
-     * using the currency as the base parameter, and the concatenated symbols of the uncached currencies as the symbols parameter,
-     * via the ExternalApiService.
-     * @param fromCode - the fromCode of the currency to be fetched
-     * @return a Map<String, Double> containing the exchange rate for each supported currency (with their code being
-     * the key of the map)
-     * @throws InvalidCurrencyException - thrown when the user has passed an invalid code, with an HTTP Status BAD REQUEST
-     * @throws ExternalApiConnectionError - in case of an error in the connection to the External API
+     * This method returns the exchange rates from a currency A to a list of currencies, in a single pass: a single
+     * snapshot of exchange rates is pinned for the whole list, as described in getRateSnapshot, so that the External API
+     * is contacted at most once, in case the snapshot doesn't hold every currency of the list.
+     * @param fromCode - the code for Currency A
+     * @param toCodes - the codes of the currencies in the list
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one
+     * @return a Mono emitting a RateResult holding a Map<String, Double> containing the exchange rate for each currency of
+     * the list in the snapshot, in the order of the list (with their code being the key of the map), along with the
+     * snapshot it was read from and the missing currencies; or an InvalidCurrencyException, naming every currency code
+     * not supported by the API, or an ExternalApiConnectionError, in case of an error in the connection to the
+     * External API
      */
-    public Map<String, Double> getExchangeRateForAll(String fromCode) throws InvalidCurrencyException, ExternalApiConnectionError {
-        // Verifying if the currency is supported by the service
+    public Mono<RateResult<Map<String, Double>>> getExchangeRateForCurrencies(String fromCode, List<String> toCodes, Long deadlineMillis) {
+        Set<String> invalidCodes = new LinkedHashSet<>();
+
+        // Verifying if the passed currencies are supported by the service
         if (!this.checkIfCurrencyExists(fromCode)) {
-            LOGGER.info("The passed currency is not supported by the service!");
-            throw new InvalidCurrencyException("Invalid currency code provided!");
+            invalidCodes.add(fromCode);
+        }
+
+        for (String toCode : toCodes) {
+            if (!this.checkIfCurrencyExists(toCode)) {
+                invalidCodes.add(toCode);
+            }
         }
 
-        Map<String, Double> exchangeRates = new HashMap<>();
-        StringBuilder symbolsBuilder = new StringBuilder();                 // Will store symbols of currencies to be fetched from External API
-        String symbols;                                                     // Will store the result of the StringBuilder
-
-        /* Looping the list of supported Currencies, to check for each one if they are stored in the Cache or if
-        the external API needs to be contacted */
-        currencyRepository.findAll().stream()
-                .map(Currency::getCode)
-                .forEach(supportedCurrency -> {
-                    Double supportedCurrencyRate = this.getExchangeRateFromCache(fromCode, supportedCurrency);
-
-                    if(supportedCurrencyRate == null){
-                        // Not in cache - needs to be fetched from the External API
-                        symbolsBuilder.append(supportedCurrency).append(",");
-                    }else{
-                        exchangeRates.put(supportedCurrency, supportedCurrencyRate);
-                    }
+        if (!invalidCodes.isEmpty()) {
+            String codes = String.join(", ", invalidCodes);
+            LOGGER.info("The passed currencies {} are not supported by the service!", codes.replaceAll(INPUT_REGEX, "_"));
+            return Mono.error(new InvalidCurrencyException("Invalid currency code(s) " + codes + " provided!"));
+        }
+
+        return this.getRateSnapshot(fromCode, toCodes, deadlineMillis).map(snapshot -> {
+            Map<String, Double> exchangeRates = new LinkedHashMap<>();
+
+            for(String toCode: toCodes){
+                double exchangeRate = snapshot.getRate(fromCode, toCode);
+
+                if(!Double.isNaN(exchangeRate)){
+                    exchangeRates.put(toCode, exchangeRate);
+                }
+            }
+
+            LOGGER.info("Finalizing processing the call to /exchange endpoint with parameters: from - {}; {} currencies", fromCode.replaceAll(INPUT_REGEX, "_"), toCodes.size());
+            return new RateResult<>(exchangeRates, snapshot, snapshot.getMissingCodes(toCodes));
         });
+    }
+
+    /**
+     * This method returns the exchange rates of a list of currency pairs, which may span many base currencies, such as
+     * USDEUR or GBPJPY, in a single pass: a single snapshot of exchange rates is pinned for every pair, as described in
+     * getBatchRateSnapshot, so that the External API is contacted at most once, for all of the base currencies, in case
+     * the snapshot doesn't hold every currency of the pairs.
+     * @param pairs - the currency pairs, each being the code of a Currency A followed by the code of a Currency B
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one
+     * @return a Mono emitting a RateResult holding a Map<String, Double> containing the exchange rate of each pair in the
+     * snapshot, in the order of the list (with the pair being the key of the map), along with the snapshot it was read
+     * from and the pairs it is missing; or an InvalidCurrencyException, if any of the pairs is malformed, or has a currency
+     * not supported by the API, or an ExternalApiConnectionError, in case of an error in the connection to the External API
+     */
+    public Mono<RateResult<Map<String, Double>>> getExchangeRateForPairs(List<String> pairs, Long deadlineMillis) {
+        Set<String> fromCodes = new LinkedHashSet<>();
+        Set<String> toCodes = new HashSet<>();
+
+        // Verifying if the passed pairs are made of currencies supported by the service
+        for (String pair : pairs) {
+            if (pair.length() != PAIR_LENGTH || !this.checkIfCurrencyExists(this.fromCodeOf(pair)) || !this.checkIfCurrencyExists(this.toCodeOf(pair))) {
+                LOGGER.info("The passed pair {} is not supported by the service!", pair.replaceAll(INPUT_REGEX, "_"));
+                return Mono.error(new InvalidCurrencyException("Invalid currency pair " + pair + " provided!"));
+            }
 
-        // In case there is the need for it, contact the external API to retrieve new exchange rates
-        if(!symbolsBuilder.isEmpty()){
-            // There are currencies not present in the cache
-            symbols = symbolsBuilder.toString();
-        }else{
-            LOGGER.info("No need to fetch exchange rates from external API");
-            return exchangeRates;
+            fromCodes.add(this.fromCodeOf(pair));
+            toCodes.add(this.toCodeOf(pair));
         }
 
-        // Fetching from external API
-        exchangeRates.putAll(this.getExchangeRatesFromExternalAPI(fromCode, symbols));
+        return this.getBatchRateSnapshot(fromCodes, toCodes, deadlineMillis).map(snapshot -> {
+            Map<String, Double> exchangeRates = new LinkedHashMap<>();
+            List<String> missingPairs = new ArrayList<>();
 
-        LOGGER.info("Finalizing processing the call to /exchange/{from}/all endpoint with parameters: fromCode - {}", fromCode.replaceAll(INPUT_REGEX, "_"));
-        return exchangeRates;
+            for(String pair: pairs){
+                double exchangeRate = snapshot.getRate(this.fromCodeOf(pair), this.toCodeOf(pair));
+
+                if(!Double.isNaN(exchangeRate)){
+                    exchangeRates.put(pair, exchangeRate);
+                } else {
+                    missingPairs.add(pair);
+                }
+            }
+
+            LOGGER.info("Finalizing processing the call to /exchange endpoint with {} pairs from {} base currencies", pairs.size(), fromCodes.size());
+            return new RateResult<>(exchangeRates, snapshot, missingPairs.stream().distinct().sorted().toList());
+        });
+    }
+
+    /**
+     * This method returns all the exchange rates for a given currency. To do so, it will first check if the currently
+     * published snapshot of exchange rates contains the currency. If it does, the currency's row of the matrix is returned.
+     * Otherwise, the external API will be contacted once at the /latest endpoint, using the anchor currency as the base
+     * parameter, via the RateStore, and the row is read from the newly published snapshot, within the default request
+     * deadline, as described in getRateSnapshot.
+     * @param fromCode - the fromCode of the currency to be fetched
+     * @return a Mono emitting a RateResult holding a Map<String, Double> containing the exchange rate for each supported
+     * currency (with their code being the key of the map), along with the snapshot it was read from; or an
+     * InvalidCurrencyException, when the user has passed an invalid code, or an ExternalApiConnectionError, in case of an
+     * error in the connection to the External API
+     */
+    public Mono<RateResult<Map<String, Double>>> getExchangeRateForAll(String fromCode) {
+        return this.getExchangeRateForAll(fromCode, null);
     }
 
     /**
-     * Checks if the exchange rate from a Currency A to a Currency B is stored in the Cache. If it is, it will return this
-     * rate; otherwise, will return null.
+     * This method returns all the exchange rates for a given currency, as described above, within a given request
+     * deadline. The supported currencies whose exchange rates aren't in the snapshot the rates were read from are listed
+     * as missing.
+     * @param fromCode - the fromCode of the currency to be fetched
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one
+     * @return a Mono emitting a RateResult holding a Map<String, Double> containing the exchange rate for each currency in
+     * the snapshot (with their code being the key of the map), along with the snapshot it was read from; or an
+     * InvalidCurrencyException, when the user has passed an invalid code, or an ExternalApiConnectionError, in case of an
+     * error in the connection to the External API
+     */
+    public Mono<RateResult<Map<String, Double>>> getExchangeRateForAll(String fromCode, Long deadlineMillis) {
+        // Verifying if the currency is supported by the service
+        if (!this.checkIfCurrencyExists(fromCode)) {
+            LOGGER.info("The passed currency is not supported by the service!");
+            return Mono.error(new InvalidCurrencyException("Invalid currency code provided!"));
+        }
+
+        return this.getRateSnapshot(fromCode, List.of(), deadlineMillis).map(snapshot -> {
+            LOGGER.info("Finalizing processing the call to /exchange/{from}/all endpoint with parameters: fromCode - {}", fromCode.replaceAll(INPUT_REGEX, "_"));
+            List<String> supportedCodes = currencyRegistry.getAll().stream().map(Currency::getCode).toList();
+
+            return new RateResult<>(snapshot.getRates(fromCode), snapshot, snapshot.getMissingCodes(supportedCodes));
+        });
+    }
+
+    /**
+     * Gets the snapshot of exchange rates a request should pin for its whole computation, as described below, within the
+     * request's deadline. In case the snapshot isn't emitted within the deadline, the request stops waiting for it, and
+     * the last published snapshot is pinned instead, even if it doesn't hold every requested currency, so that a partial
+     * response is computed from the exchange rates already at hand; the load of the exchange rates isn't cancelled, since
+     * it is shared by every request, and publishes them for the next ones.
      * @param fromCode - the code of Currency A
-     * @param toCode - the code of Currency B
-     * @return the exchange rate stored in the cache; or null, in case there isn't any value in the cache
+     * @param toCodes - the codes of the currencies whose exchange rates from A are required
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one. It is capped
+     * by the configured maximum deadline
+     * @return a Mono emitting the RateSnapshot to be pinned by the request; or an ExternalApiConnectionError, in case of an
+     * error in the connection to the External API, or if the deadline was exceeded, and there is no published snapshot
+     * holding currency A
+     */
+    public Mono<RateSnapshot> getRateSnapshot(String fromCode, Collection<String> toCodes, Long deadlineMillis) {
+        return this.withinDeadline(this.getRateSnapshot(fromCode, toCodes), deadlineMillis, fromCode);
+    }
+
+    /**
+     * Gets the single snapshot of exchange rates a batch of conversions should pin, from many base currencies at once, so
+     * that every conversion in the batch is derived from the same set of anchor rates. As every exchange rate is derived
+     * from the anchor rates, the current snapshot is used if it holds every requested currency; otherwise, the exchange
+     * rates are reloaded from the external API once, for the whole batch. The lookup of each base currency is recorded
+     * once by the DemandTracker. In case the snapshot isn't emitted within the deadline, the last published snapshot is
+     * pinned instead, and the conversions whose exchange rates it doesn't hold are left to be reported as failed.
+     * @param fromCodes - the codes of the base currencies
+     * @param toCodes - the codes of the currencies whose exchange rates from the base currencies are required
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one. It is capped
+     * by the configured maximum deadline
+     * @return a Mono emitting the RateSnapshot to be pinned by the batch; or an ExternalApiConnectionError, in case of an
+     * error in the connection to the External API, or if the deadline was exceeded, and there is no published snapshot
      */
-    public Double getExchangeRateFromCache(String fromCode, String toCode) {
-        Cache exchangeRateCache = cacheManager.getCache(CACHE_NAME);
-
-        if(exchangeRateCache != null){
-            // Create the cache key
-            String cacheKey = fromCode + "_" + toCode;
-
-            // Try to fetch from the cache
-            Cache.ValueWrapper cachedValue = exchangeRateCache.get(cacheKey);
-            if(cachedValue == null){
-                // Not in cache - needs to be fetched from the External API
-                LOGGER.info("The exchange rate for {} is not in the cache", toCode.replaceAll(INPUT_REGEX, "_"));
-                return null;
-            }else{
-                LOGGER.info("The exchange rate for {} is fetched from the cache", toCode.replaceAll(INPUT_REGEX, "_"));
-                return (Double) cachedValue.get();
+    public Mono<RateSnapshot> getBatchRateSnapshot(Collection<String> fromCodes, Collection<String> toCodes, Long deadlineMillis) {
+        fromCodes.forEach(demandTracker::record);
+
+        return this.withinDeadline(rateStore.getSnapshotReactive().flatMap(snapshot -> {
+            if(fromCodes.stream().allMatch(snapshot::contains) && toCodes.stream().allMatch(snapshot::contains)){
+                LOGGER.info("The exchange rates from {} base currencies are fetched from the cache, at version {}", fromCodes.size(), snapshot.getVersion());
+                return Mono.just(snapshot);
             }
-        }else{
-            LOGGER.info("Cache not found");
-            return null;
-        }
+
+            // Not in the current snapshot - needs to be reloaded from the External API, once for every base currency
+            LOGGER.info("Fetching from external API the required exchange rates from {} base currencies", fromCodes.size());
+            return rateStore.reloadSnapshotReactive();
+        }), deadlineMillis, null);
     }
 
     /**
-     * Fetches, from the external API, the exchange rates from a Currency A to any set of currencies provided on the
-     * symbols string.
-     * @param fromCode - The code of currency A
-     * @param symbols - A String containing the codes of all currencies form which the exchange rates from A will be fetched
-     *                from the external API. Each code is separated by a comma.
-     * @return A Map<String, Double>, in which the key is the code of a currency, and the value is it's exchange rate from A
+     * Gets the current snapshot of exchange rates, to be pinned by a stream of conversions whose currencies aren't known
+     * up front, loading it from the external API in case the cache is empty. The snapshot isn't reloaded for currencies
+     * it doesn't hold, which are reported as failed conversions instead. In case the snapshot isn't emitted within the
+     * deadline, the last published snapshot is pinned instead.
+     * @param deadlineMillis - the time budget for pinning the snapshot, in milliseconds; or null, for the default one. It
+     * is capped by the configured maximum deadline
+     * @return a Mono emitting the current RateSnapshot; or an ExternalApiConnectionError, in case of an error in the
+     * connection to the External API, or if the deadline was exceeded, and there is no published snapshot
      */
-    public Map<String, Double> getExchangeRatesFromExternalAPI(String fromCode, String symbols){
-        LOGGER.info("Fetching from external API the required exchange rates from {}", fromCode.replaceAll(INPUT_REGEX, "_"));
+    public Mono<RateSnapshot> getCurrentRateSnapshot(Long deadlineMillis) {
+        return this.withinDeadline(rateStore.getSnapshotReactive(), deadlineMillis, null);
+    }
 
-        Map<String, Double> exchangeRates = new HashMap<>();
-        Cache exchangeRateCache = cacheManager.getCache(CACHE_NAME);
-        ExchangeRateDTO fetchedRates = apiService.getLatestExchanges(fromCode, Optional.of(symbols));
+    /**
+     * Auxiliary method that bounds the wait for a snapshot by a request deadline, capped by the configured maximum one.
+     * Once the deadline is exceeded, the last published snapshot is emitted instead, provided it holds the base currency
+     * the request requires, if any
+     * @param snapshot - the Mono emitting the snapshot
+     * @param deadlineMillis - the time budget of the request, in milliseconds; or null, for the default one
+     * @param fromCode - the code of the base currency the published snapshot must hold; or null, in case any snapshot will do
+     * @return a Mono emitting the snapshot, or the last published one; or an ExternalApiConnectionError, in case the
+     * deadline was exceeded, and there is no published snapshot holding the base currency
+     */
+    private Mono<RateSnapshot> withinDeadline(Mono<RateSnapshot> snapshot, Long deadlineMillis, String fromCode) {
+        Duration deadline = Duration.ofMillis(Math.min(deadlineMillis == null ? DEFAULT_DEADLINE_MILLIS : deadlineMillis, MAX_DEADLINE_MILLIS));
 
-        for(String key: fetchedRates.getRates().keySet()){
-            Optional<Currency> exchangedCurrency = currencyRepository.findByCode(key);
+        return snapshot.timeout(deadline, Mono.defer(() -> {
+            RateSnapshot publishedSnapshot = rateStore.getPublishedSnapshot();
+            String rates = fromCode == null ? "the exchange rates" : "the exchange rates from " + fromCode.replaceAll(INPUT_REGEX, "_");
 
-            if(exchangedCurrency.isPresent()){
-                String exchangedCurrencyCode = exchangedCurrency.get().getCode();
-                Double exchangeValue = fetchedRates.getRates().get(key);
+            if(publishedSnapshot == null || (fromCode != null && !publishedSnapshot.contains(fromCode))){
+                LOGGER.warn("The deadline of {} ms was exceeded before {} were loaded", deadline.toMillis(), rates);
+                return Mono.error(new ExternalApiConnectionError((fromCode == null ? "The exchange rates" : "The exchange rates from " + fromCode)
+                        + " could not be loaded within the request deadline"));
+            }
 
-                exchangeRates.put(exchangedCurrencyCode, exchangeValue);
+            LOGGER.warn("The deadline of {} ms was exceeded; serving {} at version {}", deadline.toMillis(), rates, publishedSnapshot.getVersion());
+            return Mono.just(publishedSnapshot);
+        }));
+    }
 
-                // Saving the new value in the cache
-                if(exchangeRateCache != null){
-                    exchangeRateCache.put(fromCode + "_" + exchangedCurrencyCode, exchangeValue);
-                }
-            }else{
-                // A fetched currency isn't in the list of supported values. This means the list of supported symbols by the external
-                // API has been updated since application startup, or that they have conversion rates for a symbol not present
-                // in their /symbols endpoint. We should call the method to fetch currencies from the external API
-                LOGGER.info("Fetched currency with fromCode {} was not on the repository! Contacting the fetchSupportedCurrencies() service", key);
-                currencyService.fetchSupportedCurrencies();
+    /**
+     * Gets the snapshot of exchange rates a request should pin for its whole computation, so that every rate it reads is
+     * derived from the same set of anchor rates. The current snapshot, loaded from the external API in case the cache is
+     * empty, is used if it holds the exchange rates from a Currency A to every requested currency; otherwise, the exchange
+     * rates are reloaded from the external API once, and the newly published snapshot is returned instead. The lookup of
+     * Currency A is recorded by the DemandTracker.
+     * @param fromCode - the code of Currency A
+     * @param toCodes - the codes of the currencies whose exchange rates from A are required
+     * @return a Mono emitting the RateSnapshot to be pinned by the request; or an ExternalApiConnectionError, in case of an
+     * error in the connection to the External API, or if it didn't return a rate for currency A
+     */
+    public Mono<RateSnapshot> getRateSnapshot(String fromCode, Collection<String> toCodes) {
+        demandTracker.record(fromCode);
+
+        return rateStore.getSnapshotReactive().flatMap(snapshot -> {
+            if(snapshot.contains(fromCode) && toCodes.stream().allMatch(snapshot::contains)){
+                LOGGER.info("The exchange rates from {} are fetched from the cache, at version {}", fromCode.replaceAll(INPUT_REGEX, "_"), snapshot.getVersion());
+                return Mono.just(snapshot);
             }
+
+            // Not in the current snapshot - needs to be reloaded from the External API
+            LOGGER.info("Fetching from external API the required exchange rates from {}", fromCode.replaceAll(INPUT_REGEX, "_"));
+            return rateStore.reloadSnapshotReactive().doOnNext(reloadedSnapshot -> this.checkIfCurrencyFetched(reloadedSnapshot, fromCode));
+        });
+    }
+
+    /**
+     * Auxiliary method that checks if the external API returned an exchange rate for a given currency.
+     * @param snapshot - the snapshot built from the fetched exchange rates
+     * @param code - the code of the Currency to be checked
+     * @throws ExternalApiConnectionError - in case the external API didn't return a rate for the currency
+     */
+    private void checkIfCurrencyFetched(RateSnapshot snapshot, String code) throws ExternalApiConnectionError {
+        if(!snapshot.contains(code)){
+            LOGGER.info("The external API didn't return an anchor rate for {}", code.replaceAll(INPUT_REGEX, "_"));
+            throw new ExternalApiConnectionError("External API did not return a rate for " + code);
         }
+    }
+
+    private String fromCodeOf(String pair) {
+        return pair.substring(0, CODE_LENGTH);
+    }
 
-        return exchangeRates;
+    private String toCodeOf(String pair) {
+        return pair.substring(CODE_LENGTH);
     }
 
     /**
      * Auxiliary method that checks if a code passed as a parameter by the user in an API request belongs to a supported
-     * currency or not.
+     * currency or not, by looking it up in the in-memory CurrencyRegistry.
      * @param code - the code of the Currency to be checked
      * @return a boolean representing whether the code is supported or not by the API
      */
     private boolean checkIfCurrencyExists(String code) {
-        return currencyRepository.existsByCode(code);
+        return currencyRegistry.contains(code);
     }
 }
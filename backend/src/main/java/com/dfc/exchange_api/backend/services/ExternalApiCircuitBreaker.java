@@ -0,0 +1,235 @@
+package com.dfc.exchange_api.backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Circuit breaker guarding the calls to the external API. The outcome of the last calls is kept in a count-based sliding
+ * window; once the window holds enough calls, and either the rate of failed calls or the rate of slow calls reaches its
+ * threshold, the circuit opens, and every call is rejected right away, instead of waiting for the external API to time
+ * out. After a wait period, the circuit becomes half-open, and lets a limited number of trial calls through: in case they
+ * are below both thresholds, the circuit closes again; otherwise, it opens for another wait period.
+ */
+@Service
+public class ExternalApiCircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalApiCircuitBreaker.class);
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final long openWaitMillis;
+    private final int halfOpenCalls;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private final Map<State, Long> transitionCounts = new EnumMap<>(State.class);
+    private long rejectedCalls = 0;
+    private long openedAtMillis = 0;
+    private int halfOpenPermits = 0;
+
+    // Sliding window of the outcomes of the last calls, as a ring buffer
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int windowIndex = 0;
+    private int recordedCalls = 0;
+    private int failedCallCount = 0;
+    private int slowCallCount = 0;
+
+    @Autowired
+    public ExternalApiCircuitBreaker(@Value("${external.api.circuit.window.size}") int windowSize,
+                                     @Value("${external.api.circuit.minimum.calls}") int minimumCalls,
+                                     @Value("${external.api.circuit.failure.rate.threshold}") double failureRateThreshold,
+                                     @Value("${external.api.circuit.slow.call.rate.threshold}") double slowCallRateThreshold,
+                                     @Value("${external.api.circuit.slow.call.millis}") long slowCallMillis,
+                                     @Value("${external.api.circuit.open.wait.millis}") long openWaitMillis,
+                                     @Value("${external.api.circuit.half.open.calls}") int halfOpenCalls) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallMillis, openWaitMillis,
+                halfOpenCalls, Clock.systemUTC());
+    }
+
+    public ExternalApiCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                                     double slowCallRateThreshold, long slowCallMillis, long openWaitMillis,
+                                     int halfOpenCalls, Clock clock) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openWaitMillis = openWaitMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /**
+     * Checks whether a call to the external API may be made. An open circuit whose wait period has elapsed becomes
+     * half-open, and lets a limited number of trial calls through.
+     * @return true, in case the call is permitted; false, in case it should be rejected
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try{
+            if(state == State.OPEN && clock.millis() - openedAtMillis >= openWaitMillis){
+                this.transitionTo(State.HALF_OPEN);
+            }
+
+            if(state == State.CLOSED){
+                return true;
+            }
+
+            if(state == State.HALF_OPEN && halfOpenPermits > 0){
+                halfOpenPermits--;
+                return true;
+            }
+
+            rejectedCalls++;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of a permitted call to the external API, and evaluates whether the circuit should change state
+     * @param durationNanos - how long the call took
+     * @param failed - whether the call failed
+     */
+    public void record(long durationNanos, boolean failed) {
+        lock.lock();
+        try{
+            if(state == State.OPEN){
+                // A call permitted before the circuit opened; its outcome no longer matters
+                return;
+            }
+
+            boolean slow = durationNanos >= slowCallDurationNanos;
+
+            if(recordedCalls == windowSize){
+                failedCallCount -= failedCalls[windowIndex] ? 1 : 0;
+                slowCallCount -= slowCalls[windowIndex] ? 1 : 0;
+            }else{
+                recordedCalls++;
+            }
+
+            failedCalls[windowIndex] = failed;
+            slowCalls[windowIndex] = slow;
+            failedCallCount += failed ? 1 : 0;
+            slowCallCount += slow ? 1 : 0;
+            windowIndex = (windowIndex + 1) % windowSize;
+
+            int requiredCalls = state == State.HALF_OPEN ? halfOpenCalls : minimumCalls;
+
+            if(recordedCalls < requiredCalls){
+                return;
+            }
+
+            if(this.getFailureRate() >= failureRateThreshold || this.getSlowCallRate() >= slowCallRateThreshold){
+                LOGGER.warn("Opening the circuit to the external API: failure rate {}%, slow call rate {}%",
+                        this.getFailureRate(), this.getSlowCallRate());
+                this.transitionTo(State.OPEN);
+            }else if(state == State.HALF_OPEN){
+                LOGGER.info("Closing the circuit to the external API");
+                this.transitionTo(State.CLOSED);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the permission of a call that never reached the external API, such as a call rejected by the quota,
+     * without recording any outcome; a trial call of a half-open circuit is handed back, so that another call may probe
+     * the external API instead
+     */
+    public void releasePermission() {
+        lock.lock();
+        try{
+            if(state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls){
+                halfOpenPermits++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try{
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the statistics of the circuit breaker, to be exposed by the cache statistics endpoint
+     * @return a Map containing the current state, the failure and slow call rates of the sliding window, the number of
+     * rejected calls, and the number of transitions into each state
+     */
+    public Map<String, Object> getStatistics() {
+        lock.lock();
+        try{
+            Map<String, Object> statistics = new HashMap<>();
+            Map<String, Long> transitions = new HashMap<>();
+
+            for(State target: State.values()){
+                transitions.put(target.name(), transitionCounts.getOrDefault(target, 0L));
+            }
+
+            statistics.put("state", state.name());
+            statistics.put("failureRate", this.getFailureRate());
+            statistics.put("slowCallRate", this.getSlowCallRate());
+            statistics.put("bufferedCalls", recordedCalls);
+            statistics.put("rejectedCalls", rejectedCalls);
+            statistics.put("transitions", transitions);
+
+            return statistics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double getFailureRate() {
+        return recordedCalls == 0 ? 0.0 : failedCallCount * 100.0 / recordedCalls;
+    }
+
+    private double getSlowCallRate() {
+        return recordedCalls == 0 ? 0.0 : slowCallCount * 100.0 / recordedCalls;
+    }
+
+    /**
+     * Auxiliary method that changes the state of the circuit, counting the transition, and resetting the sliding window,
+     * so that each state is evaluated only by the calls made while in it
+     * @param target - the new state of the circuit
+     */
+    private void transitionTo(State target) {
+        state = target;
+        transitionCounts.merge(target, 1L, Long::sum);
+
+        windowIndex = 0;
+        recordedCalls = 0;
+        failedCallCount = 0;
+        slowCallCount = 0;
+
+        if(target == State.OPEN){
+            openedAtMillis = clock.millis();
+        }else if(target == State.HALF_OPEN){
+            halfOpenPermits = halfOpenCalls;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.dfc.exchange_api.backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Budget of the calls to the external API, which enforces the provider's quota on this side, instead of exceeding it.
+ * Every call, including each retried and hedged attempt, takes a token from a token bucket, which is refilled at a steady
+ * rate up to its capacity, and counts against the monthly limit. Once the budget is tight, that is, once either the
+ * bucket or the remaining monthly calls fall to the reserved share, only the high-priority calls, which load the
+ * exchange rates served to every request, are let through, while the low-priority ones, such as the reconciliation of
+ * the supported currencies, or hedged attempts, are shed. A call rejected by the budget fails right away, so that the
+ * callers fall back to the last known exchange rates.
+ * The calls made in the current month are persisted, and restored on restart, by the ExternalApiQuotaStore; the bucket
+ * starts full on every restart.
+ */
+@Service
+public class ExternalApiQuota {
+    public enum Priority { HIGH, LOW }
+
+    public record MonthlyUsage(YearMonth month, long calls) {
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalApiQuota.class);
+    private static final long MINUTE_MILLIS = 60_000;
+    private final long capacity;
+    private final double refillPerMilli;
+    private final long monthlyLimit;
+    private final double reserveRatio;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double tokens;
+    private long refilledAtMillis;
+    private YearMonth month;
+    private long callsThisMonth = 0;
+    private long minuteStartedAtMillis;
+    private long callsThisMinute = 0;
+    private final Map<Priority, Long> rejectedCalls = new EnumMap<>(Priority.class);
+
+    @Autowired
+    public ExternalApiQuota(@Value("${external.api.quota.bucket.capacity}") long capacity,
+                            @Value("${external.api.quota.refill.per.minute}") long refillPerMinute,
+                            @Value("${external.api.quota.monthly.limit}") long monthlyLimit,
+                            @Value("${external.api.quota.reserve.ratio}") double reserveRatio) {
+        this(capacity, refillPerMinute, monthlyLimit, reserveRatio, Clock.systemUTC());
+    }
+
+    public ExternalApiQuota(long capacity, long refillPerMinute, long monthlyLimit, double reserveRatio, Clock clock) {
+        this.capacity = capacity;
+        this.refillPerMilli = (double) refillPerMinute / MINUTE_MILLIS;
+        this.monthlyLimit = monthlyLimit;
+        this.reserveRatio = reserveRatio;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.refilledAtMillis = clock.millis();
+        this.minuteStartedAtMillis = clock.millis();
+        this.month = this.monthOf(clock.millis());
+    }
+
+    /**
+     * Takes a token for a call to the external API, in case the budget allows it: there must be a token in the bucket,
+     * and calls left this month, and, for a low-priority call, both must be above their reserved share
+     * @param priority - the priority of the call
+     * @return true, in case the call is within the budget; false, in case it should be rejected
+     */
+    public boolean tryAcquire(Priority priority) {
+        lock.lock();
+        try{
+            this.advance();
+
+            long remainingThisMonth = monthlyLimit - callsThisMonth;
+            boolean withinBudget = priority == Priority.HIGH
+                    ? tokens >= 1 && remainingThisMonth > 0
+                    : tokens >= 1 + capacity * reserveRatio && remainingThisMonth > monthlyLimit * reserveRatio;
+
+            if(!withinBudget){
+                rejectedCalls.merge(priority, 1L, Long::sum);
+                LOGGER.warn("Rejecting a {} priority call to the external API, which is over budget: {} tokens, {} calls left this month",
+                        priority, (long) tokens, remainingThisMonth);
+                return false;
+            }
+
+            tokens -= 1;
+            callsThisMonth++;
+            callsThisMinute++;
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the calls made in the current month, to be persisted
+     * @return the current month, and the calls made in it
+     */
+    public MonthlyUsage getMonthlyUsage() {
+        lock.lock();
+        try{
+            this.advance();
+            return new MonthlyUsage(month, callsThisMonth);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Restores the calls made in a month, as persisted before a restart, in case it is the current month; the calls already
+     * made since the restart are kept, in case they are more
+     * @param usage - the persisted month, and the calls made in it
+     */
+    public void restoreMonthlyUsage(MonthlyUsage usage) {
+        lock.lock();
+        try{
+            this.advance();
+
+            if(usage.month().equals(month)){
+                callsThisMonth = Math.max(callsThisMonth, usage.calls());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the statistics of the budget, to be exposed by the cache statistics endpoint
+     * @return a Map containing the tokens available in the bucket, and its capacity, the calls made in the current
+     * minute and month, the monthly limit and the calls left, and the number of rejected calls of each priority
+     */
+    public Map<String, Object> getStatistics() {
+        lock.lock();
+        try{
+            this.advance();
+
+            Map<String, Object> statistics = new HashMap<>();
+            Map<String, Long> rejected = new HashMap<>();
+
+            for(Priority priority: Priority.values()){
+                rejected.put(priority.name(), rejectedCalls.getOrDefault(priority, 0L));
+            }
+
+            statistics.put("availableTokens", (long) tokens);
+            statistics.put("capacity", capacity);
+            statistics.put("callsThisMinute", callsThisMinute);
+            statistics.put("callsThisMonth", callsThisMonth);
+            statistics.put("monthlyLimit", monthlyLimit);
+            statistics.put("remainingThisMonth", Math.max(0, monthlyLimit - callsThisMonth));
+            statistics.put("rejectedCalls", rejected);
+
+            return statistics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Auxiliary method that refills the bucket for the time elapsed since it was last refilled, and starts a new minute
+     * or month window, once the current one is over
+     */
+    private void advance() {
+        long now = clock.millis();
+
+        tokens = Math.min(capacity, tokens + (now - refilledAtMillis) * refillPerMilli);
+        refilledAtMillis = now;
+
+        if(now - minuteStartedAtMillis >= MINUTE_MILLIS){
+            minuteStartedAtMillis = now;
+            callsThisMinute = 0;
+        }
+
+        YearMonth currentMonth = this.monthOf(now);
+
+        if(!currentMonth.equals(month)){
+            month = currentMonth;
+            callsThisMonth = 0;
+        }
+    }
+
+    private YearMonth monthOf(long epochMillis) {
+        return YearMonth.from(Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,73 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.models.QuotaUsage;
+import com.dfc.exchange_api.backend.repositories.QuotaUsageRepository;
+import com.dfc.exchange_api.backend.services.ExternalApiQuota.MonthlyUsage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service that persists the calls made to the external API in the current month to the H2 database, and restores them at
+ * startup, so that a restart or a redeploy doesn't grant a new monthly budget against the provider's quota. The calls
+ * are flushed periodically, whenever they changed, and on graceful shutdown; only the calls made since the last flush are
+ * lost on a crash.
+ */
+@Service
+public class ExternalApiQuotaStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalApiQuotaStore.class);
+    private MonthlyUsage lastFlushedUsage;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ExternalApiQuota quota;
+    private QuotaUsageRepository quotaUsageRepository;
+
+    public ExternalApiQuotaStore(ExternalApiQuota quota, QuotaUsageRepository quotaUsageRepository) {
+        this.quota = quota;
+        this.quotaUsageRepository = quotaUsageRepository;
+    }
+
+    /**
+     * Restores, at startup, the calls made in the current month, in case they were persisted before the restart
+     */
+    @PostConstruct
+    public void restore() {
+        YearMonth month = quota.getMonthlyUsage().month();
+
+        quotaUsageRepository.findById(month.toString()).ifPresent(usage -> {
+            quota.restoreMonthlyUsage(new MonthlyUsage(month, usage.getCalls()));
+            lastFlushedUsage = quota.getMonthlyUsage();
+
+            LOGGER.info("Restored the {} calls made to the external API in {}", usage.getCalls(), month);
+        });
+    }
+
+    /**
+     * Writes the calls made in the current month to the database, in case they changed since the last flush.
+     * This method is scheduled to run periodically, and is also called on graceful shutdown.
+     */
+    @Scheduled(initialDelayString = "${external.api.quota.flush.millis}", fixedRateString = "${external.api.quota.flush.millis}")
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try{
+            MonthlyUsage usage = quota.getMonthlyUsage();
+
+            if(usage.equals(lastFlushedUsage)){
+                return;
+            }
+
+            quotaUsageRepository.save(new QuotaUsage(usage.month().toString(), usage.calls()));
+            lastFlushedUsage = usage;
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Could not persist the calls made to the external API: {}", ex.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+}
@@ -1,63 +1,142 @@
 package com.dfc.exchange_api.backend.services;
 
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.exceptions.ExternalApiQuotaExceededError;
 import com.dfc.exchange_api.backend.models.ExchangeRateDTO;
 import com.dfc.exchange_api.backend.models.FetchedSymbolsDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service that handles the connection to the external Exchange Rate API
  */
 @Service
 public class ExternalApiService {
-    private String BASE_URL = "https://api.exchangerate.host";
+    @Value("${external.api.base.url}")
+    private String BASE_URL;
     private static final Logger LOGGER = LoggerFactory.getLogger(ExternalApiService.class);
     private final WebClient webClient;
+    private final ConcurrentMap<URI, CompletableFuture<Object>> inFlightRequests = new ConcurrentHashMap<>();
+    // The last response to each URI carrying validators, whose body answers the next request in case it isn't modified
+    private final ConcurrentMap<URI, ConditionalResponse> lastResponses = new ConcurrentHashMap<>();
+    private final ExternalApiCircuitBreaker circuitBreaker;
+    private final ExternalApiQuota quota;
+    @Value("${external.api.retry.max.attempts}")
+    private int MAX_ATTEMPTS;
+    @Value("${external.api.retry.initial.backoff.millis}")
+    private long INITIAL_BACKOFF_MILLIS;
+    @Value("${external.api.retry.max.backoff.millis}")
+    private long MAX_BACKOFF_MILLIS;
+    @Value("${external.api.retry.jitter}")
+    private double BACKOFF_JITTER;
+    @Value("${external.api.retry.time.budget.millis}")
+    private long TIME_BUDGET_MILLIS;
+    @Value("${external.api.hedge.enabled}")
+    private boolean HEDGE_ENABLED;
+    @Value("${external.api.hedge.delay.millis}")
+    private long HEDGE_DELAY_MILLIS;
+    @Value("${external.api.client.prewarm.connections}")
+    private int PREWARM_CONNECTIONS;
+    private static final int MIN_LATENCY_SAMPLES = 20;
+    private final long[] recentLatencies = new long[100];
+    private int latencyIndex = 0;
+    private int recordedLatencies = 0;
+    private final ReentrantLock latencyLock = new ReentrantLock();
 
-    public ExternalApiService() {
-        this.webClient = WebClient.builder()
-                .baseUrl(BASE_URL)
-                .defaultCookie("cookieKey", "cookieValue")
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    public ExternalApiService(ExternalApiCircuitBreaker circuitBreaker, ExternalApiQuota quota, WebClient externalApiWebClient) {
+        this.circuitBreaker = circuitBreaker;
+        this.quota = quota;
+        this.webClient = externalApiWebClient;
+    }
+
+    /**
+     * Opens PREWARM_CONNECTIONS connections to the External API once the application is ready, so that the first requests
+     * don't pay for the TCP and TLS handshakes. Any response, whatever its status, means a connection was opened; failures
+     * are only logged, as the External API is contacted again on demand.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmConnections() {
+        if(PREWARM_CONNECTIONS <= 0){
+            return;
+        }
+
+        URI uri = UriComponentsBuilder.fromUriString(BASE_URL).build().toUri();
+
+        Flux.range(0, PREWARM_CONNECTIONS)
+                .flatMap(i -> webClient.head()
+                        .uri(uri)
+                        .exchangeToMono(ClientResponse::releaseBody)
+                        .thenReturn(true)
+                        .onErrorResume(ex -> {
+                            LOGGER.debug("Could not open a connection to the External API: {}", ex.getMessage());
+                            return Mono.just(false);
+                        }))
+                .filter(Boolean::booleanValue)
+                .count()
+                .subscribe(opened -> LOGGER.info("Opened {} of {} connections to the External API at startup", opened, PREWARM_CONNECTIONS));
     }
 
     /**
      * This method contacts the /latest endpoint in the Exchange Rate API, which fetches the latest conversion rates from
      * a Currency passed as parameter. It can return either the list of conversion rates to all the supported currencies,
      * or to a subset passed as a request parameter.
-     * In case the External API doesn't reply with an HTTP STATUS OK message, either a customized exception is thrown, or
-     * the endpoint is contacted again using @Retryable, in the case of a TIMEOUT.
+     * In case the External API doesn't reply with an HTTP STATUS OK message, either the endpoint is contacted again, in the
+     * case of a transient error, or a customized exception is thrown.
      * @param base - The currency for which the conversion rates will be fetched.
      * @param symbols - Optional subset of currencies to get the corresponding covnersion rates from.
      * @return The DTO entity representing the fetched exchange rates
      * @throws ExternalApiConnectionError - in case of an error in the connection to the External API
      */
     public ExchangeRateDTO getLatestExchanges(String base, Optional<String> symbols) throws ExternalApiConnectionError {
+        return this.getLatestExchangesReactive(base, symbols).block();
+    }
+
+    /**
+     * Non-blocking variant of getLatestExchanges, which contacts the /latest endpoint in the Exchange Rate API without
+     * holding the calling thread while waiting for its response.
+     * @param base - The currency for which the conversion rates will be fetched.
+     * @param symbols - Optional subset of currencies to get the corresponding covnersion rates from.
+     * @return a Mono emitting the DTO entity representing the fetched exchange rates, or an ExternalApiConnectionError, in
+     * case of an error in the connection to the External API
+     */
+    public Mono<ExchangeRateDTO> getLatestExchangesReactive(String base, Optional<String> symbols) {
         // Calling the External API
         UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(BASE_URL).path("/latest")
                 .queryParam("base", base);
 
-        symbols.ifPresent(s -> uriBuilder.queryParam("symbols", s));
+        // Sorting the symbols, so that requests for the same set of currencies share the same URI
+        symbols.ifPresent(s -> uriBuilder.queryParam("symbols", Arrays.stream(s.split(",")).sorted().collect(Collectors.joining(","))));
         URI uri = uriBuilder.build().toUri();
 
-        // Calling the endpoint and fetching the required response
-        return this.doHttpGet(uri, ExchangeRateDTO.class);
+        // Calling the endpoint and fetching the required response; the exchange rates are served to every request
+        return this.doHttpGet(uri, ExchangeRateDTO.class, ExternalApiQuota.Priority.HIGH);
     }
 
     /**
@@ -71,48 +150,251 @@ public class ExternalApiService {
         UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(BASE_URL).path("/symbols");
         URI uri = uriBuilder.build().toUri();
 
-        // Calling the endpoint and fetching the required response
-        return this.doHttpGet(uri, FetchedSymbolsDTO.class);
+        // Calling the endpoint and fetching the required response; the supported currencies rarely change
+        return this.doHttpGet(uri, FetchedSymbolsDTO.class, ExternalApiQuota.Priority.LOW).block();
     }
 
     /**
-     * Auxiliary method that will contact the required endpoint using restTemplate, and return the expected DTO response
-     * to the calling method.
+     * Auxiliary method that will contact the required endpoint using webClient, and emit the expected DTO response
+     * to the calling method. Concurrent calls to the same URI are coalesced: only the first one contacts the External API,
+     * while the remaining ones wait for, and share, its response; cancelling a call doesn't cancel the shared request.
+     * Every call to the External API goes through the circuit breaker, which records its outcome and duration; while the
+     * circuit is open, calls fail right away, so that the callers can fall back to the last known exchange rates, instead
+     * of waiting for the External API to time out. Each attempt of the call must also be within the budget of the
+     * ExternalApiQuota, as described in buildRequest.
      * In case the External API doesn't reply with an HTTP STATUS OK message, either a customized exception, ExternalApiConnectionError,
-     * is thrown, or the endpoint is contacted again using @Retryable, in the case of a TIMEOUT.
+     * is emitted, or the endpoint is contacted again, in the case of a transient error, as described in buildRequest.
      * @param uri - The URI path of the External API endpoint to be called
      * @param responseType - The class of the expected DTO containing the unpacked response
-     * @return the DTO class containing the response from the server
-     * @throws ExternalApiConnectionError - in case of an error in the connection to the External API
+     * @param priority - the priority of the call, when the budget of calls to the External API is tight
+     * @return a Mono emitting the DTO class containing the response from the server
      */
-    @Retryable(value = { TimeoutException.class }, maxAttempts = 3, backoff = @Backoff(delay = 1000))
-    private <T> T doHttpGet(URI uri, Class<T> responseType) throws ExternalApiConnectionError {
-        try{
-            LOGGER.info("Calling the Exchange Rate API on the following path: {}", uri);
-            T response = webClient.get()
-                            .uri(uri)
-                                    .retrieve()
-                                            .bodyToMono(responseType)
-                                                    .block();
-            LOGGER.info("Full response as String: {}", response);
-
-            return response;
-        } catch (HttpServerErrorException ex) {
-            // Handle 5xx server errors
-            LOGGER.error("External API server error: {}", ex.getMessage());
-            throw new ExternalApiConnectionError("External API server error");
-        } catch (HttpClientErrorException ex) {
+    private <T> Mono<T> doHttpGet(URI uri, Class<T> responseType, ExternalApiQuota.Priority priority) {
+        return Mono.defer(() -> {
+                    CompletableFuture<Object> request = inFlightRequests.computeIfAbsent(uri, key -> {
+                        if(!circuitBreaker.tryAcquirePermission()){
+                            LOGGER.warn("The circuit to the Exchange Rate API is open; not calling path: {}", key);
+                            throw new ExternalApiConnectionError("External API circuit breaker is open");
+                        }
+
+                        LOGGER.info("Calling the Exchange Rate API on the following path: {}", key);
+                        long startedAt = System.nanoTime();
+                        AtomicBoolean upstreamFailed = new AtomicBoolean();
+                        return this.buildRequest(key, responseType, priority, upstreamFailed)
+                                .cast(Object.class)
+                                .toFuture()
+                                .whenComplete((result, ex) -> this.recordOutcome(System.nanoTime() - startedAt, ex, upstreamFailed.get()));
+                    });
+
+                    // The request leaves the in-flight table once it completes, before its response is emitted, so the next
+                    // call contacts the External API again
+                    return Mono.fromFuture(request.whenComplete((result, ex) -> inFlightRequests.remove(uri, request)), true);
+                })
+                .map(responseType::cast)
+                .onErrorMap(this::toConnectionError);
+    }
+
+    /**
+     * Auxiliary method that records the outcome of a call to the External API in the circuit breaker. A call rejected by
+     * the quota, without any of its attempts failing on the External API, says nothing about the health of the External
+     * API: nothing is recorded, and its permission is released, so that a half-open circuit is still probed by another call.
+     * @param durationNanos - how long the call took
+     * @param ex - the error the call failed with; or null, in case it succeeded
+     * @param upstreamFailed - whether any attempt of the call failed on the External API
+     */
+    private void recordOutcome(long durationNanos, Throwable ex, boolean upstreamFailed) {
+        if(ex instanceof ExternalApiQuotaExceededError && !upstreamFailed){
+            circuitBreaker.releasePermission();
+            return;
+        }
+
+        circuitBreaker.record(durationNanos, ex != null);
+    }
+
+    /**
+     * Auxiliary method that maps the error a call to the External API failed with to an ExternalApiConnectionError
+     * @param ex - the error the call failed with
+     * @return the ExternalApiConnectionError to be emitted; or the error itself, in case it isn't an error in the
+     * connection to the External API
+     */
+    private Throwable toConnectionError(Throwable ex) {
+        if(ex instanceof WebClientResponseException responseException){
+            if(responseException.getStatusCode().is5xxServerError()){
+                // Handle 5xx server errors
+                LOGGER.error("External API server error: {}", ex.getMessage());
+                return new ExternalApiConnectionError("External API server error");
+            }
+
             // Handle 4xx client errors
             LOGGER.error("External API client error: {}", ex.getMessage());
-            throw new ExternalApiConnectionError("External API client error");
-        } catch (RestClientException|NullPointerException ex) {
+            return new ExternalApiConnectionError("External API client error");
+        }
+
+        if(ex instanceof WebClientRequestException || ex instanceof NullPointerException){
             // Handle other exceptions (e.g., connection errors)
             LOGGER.error("External API request failed: {}", ex.getMessage());
-            throw new ExternalApiConnectionError("External API request failed");
+            return new ExternalApiConnectionError("External API request failed");
         }
+
+        return ex;
+    }
+
+    /**
+     * Auxiliary method that builds the reactive pipeline of a GET request to the External API. Every endpoint called is
+     * idempotent, so an attempt failing with a transient error (a connection error, a 5xx server error, a 429 rate limit,
+     * or a timeout) is retried, up to the configured number of attempts, with an exponential backoff with jitter between
+     * them; all attempts must complete within the configured time budget, or an ExternalApiConnectionError is thrown.
+     * Each attempt is a conditional request, carrying the ETag and Last-Modified validators of the last response to the
+     * same URI, so that an unchanged response isn't downloaded again.
+     * Optionally, each attempt is hedged: in case it hasn't answered within the p95 latency of the recent successful
+     * requests, a second, identical request is sent, and the first one to answer is used.
+     * Every attempt takes a token from the ExternalApiQuota, hedged ones with a low priority; an attempt over budget fails
+     * right away, without being retried, so that the quota is never exceeded.
+     * @param uri - The URI path of the External API endpoint to be called
+     * @param responseType - The class of the expected DTO containing the unpacked response
+     * @param priority - the priority of the call, when the budget of calls to the External API is tight
+     * @param upstreamFailed - set once any attempt that reached the External API fails
+     * @return the Mono emitting the response from the server
+     */
+    private <T> Mono<T> buildRequest(URI uri, Class<T> responseType, ExternalApiQuota.Priority priority, AtomicBoolean upstreamFailed) {
+        Function<ExternalApiQuota.Priority, Mono<T>> budgetedAttempt = attemptPriority -> Mono.defer(() -> {
+            if(!quota.tryAcquire(attemptPriority)){
+                return Mono.error(new ExternalApiQuotaExceededError("External API quota is exhausted"));
+            }
+
+            long startedAt = System.nanoTime();
+
+            ConditionalResponse lastResponse = lastResponses.get(uri);
+
+            return webClient.get()
+                    .uri(uri)
+                    .headers(headers -> {
+                        if(lastResponse != null && lastResponse.etag() != null){
+                            headers.setIfNoneMatch(lastResponse.etag());
+                        }
+
+                        if(lastResponse != null && lastResponse.lastModified() != null){
+                            headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastResponse.lastModified());
+                        }
+                    })
+                    .exchangeToMono(response -> this.readResponse(uri, response, lastResponse, responseType))
+                    .doOnError(ex -> upstreamFailed.set(true))
+                    .doOnSuccess(response -> this.recordLatency(System.nanoTime() - startedAt));
+        });
+
+        Mono<T> attempt = budgetedAttempt.apply(priority);
+
+        if(HEDGE_ENABLED){
+            Mono<T> singleAttempt = attempt;
+            Mono<T> hedgedAttempt = budgetedAttempt.apply(ExternalApiQuota.Priority.LOW);
+            // A failed hedged request yields to the original one, which is left to answer or fail on its own
+            attempt = Mono.defer(() -> Mono.firstWithSignal(singleAttempt,
+                    hedgedAttempt.delaySubscription(this.getHedgeDelay()).onErrorResume(ex -> Mono.never())));
+        }
+
+        return attempt
+                .retryWhen(Retry.backoff(MAX_ATTEMPTS - 1, Duration.ofMillis(INITIAL_BACKOFF_MILLIS))
+                        .maxBackoff(Duration.ofMillis(MAX_BACKOFF_MILLIS))
+                        .jitter(BACKOFF_JITTER)
+                        .filter(this::isTransient)
+                        .doBeforeRetry(signal -> LOGGER.warn("Retrying the call to {} after a transient error: {}", uri, signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .timeout(Duration.ofMillis(TIME_BUDGET_MILLIS))
+                .onErrorMap(TimeoutException.class, ex -> new ExternalApiConnectionError("External API request timed out"));
+    }
+
+    /**
+     * Auxiliary method that reads the response to a conditional request to the External API. A 304 Not Modified response
+     * is answered with the body of the last response to the same URI, without downloading nor decoding it again; a
+     * successful response is decoded, and kept, along with its validators, for the next conditional request; any other
+     * response is emitted as a WebClientResponseException.
+     * @param uri - The URI path of the External API endpoint called
+     * @param response - the response of the External API
+     * @param lastResponse - the last response to the same URI, whose validators were sent; or null, in case there is none
+     * @param responseType - The class of the expected DTO containing the unpacked response
+     * @return the Mono emitting the DTO class containing the response from the server
+     */
+    private <T> Mono<T> readResponse(URI uri, ClientResponse response, ConditionalResponse lastResponse, Class<T> responseType) {
+        if(response.statusCode().value() == HttpStatus.NOT_MODIFIED.value() && lastResponse != null){
+            LOGGER.info("The response of {} is unchanged since it was last fetched", uri);
+            return response.releaseBody().then(Mono.fromSupplier(() -> responseType.cast(lastResponse.body())));
+        }
+
+        if(!response.statusCode().is2xxSuccessful()){
+            return response.createException().flatMap(Mono::error);
+        }
+
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+
+        return response.bodyToMono(responseType).doOnNext(body -> {
+            if(etag == null && lastModified == null){
+                lastResponses.remove(uri);
+            }else{
+                lastResponses.put(uri, new ConditionalResponse(etag, lastModified, body));
+            }
+        });
+    }
+
+    /**
+     * Auxiliary method that checks whether a failed request to the External API can be retried
+     * @param ex - the error the request failed with
+     * @return true, in case of a connection error, a 5xx server error, a 429 rate limit, or a timeout; false otherwise
+     */
+    private boolean isTransient(Throwable ex) {
+        if(ex instanceof WebClientResponseException responseException){
+            return responseException.getStatusCode().is5xxServerError()
+                    || responseException.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+
+        return ex instanceof WebClientRequestException || ex instanceof TimeoutException;
+    }
+
+    /**
+     * Auxiliary method that records the latency of a successful request to the External API, in a ring buffer of the most
+     * recent latencies
+     * @param latencyNanos - the latency of the request
+     */
+    private void recordLatency(long latencyNanos) {
+        latencyLock.lock();
+        try{
+            recentLatencies[latencyIndex] = latencyNanos;
+            latencyIndex = (latencyIndex + 1) % recentLatencies.length;
+            recordedLatencies = Math.min(recordedLatencies + 1, recentLatencies.length);
+        } finally {
+            latencyLock.unlock();
+        }
+    }
+
+    /**
+     * Auxiliary method that gets how long to wait before hedging a request: the p95 latency of the recent successful
+     * requests, or the configured delay, while too few requests were made to estimate it
+     * @return the delay before the hedged request is sent
+     */
+    private Duration getHedgeDelay() {
+        long[] latencies;
+
+        latencyLock.lock();
+        try{
+            if(recordedLatencies < MIN_LATENCY_SAMPLES){
+                return Duration.ofMillis(HEDGE_DELAY_MILLIS);
+            }
+
+            latencies = Arrays.copyOf(recentLatencies, recordedLatencies);
+        } finally {
+            latencyLock.unlock();
+        }
+
+        Arrays.sort(latencies);
+
+        return Duration.ofNanos(latencies[(int) Math.ceil(latencies.length * 0.95) - 1]);
     }
 
     public void setBASE_URL(String BASE_URL) {
         this.BASE_URL = BASE_URL;
     }
+
+    private record ConditionalResponse(String etag, String lastModified, Object body) {
+    }
 }
@@ -0,0 +1,116 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Service that loads, from the external API, the exchange rates of an anchor currency, from which the RateStore builds
+ * every snapshot of exchange rates
+ */
+@Service
+public class RateLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLoader.class);
+    private static final String INPUT_REGEX = "[\n\r]";
+    private ExternalApiService apiService;
+    private CurrencyRegistry currencyRegistry;
+    private CurrencyService currencyService;
+    // The hash of the last exchange rates loaded for each anchor currency, the version of the CurrencyRegistry they were
+    // filtered by, and the RateMatrix built from them
+    private final ConcurrentMap<String, LoadedRates> lastLoads = new ConcurrentHashMap<>();
+
+    public RateLoader(ExternalApiService apiService, CurrencyRegistry currencyRegistry, CurrencyService currencyService) {
+        this.apiService = apiService;
+        this.currencyRegistry = currencyRegistry;
+        this.currencyService = currencyService;
+    }
+
+    /**
+     * Fetches the exchange rates from the anchor currency to every currency supported by the external API, in a single
+     * call to its /latest endpoint, without holding the calling thread while waiting for its response, and builds the
+     * RateMatrix of every cross rate straight from the decoded primitive rates. In case the fetched exchange rates hash the
+     * same as the last ones loaded, and the supported currencies didn't change since, the RateMatrix built from those is
+     * emitted again, without being rebuilt. Only the currencies supported by the service are kept; in case the external
+     * API returns an unknown currency, the list of supported currencies is fetched again, on a thread that may block,
+     * before the RateMatrix is emitted.
+     * @param anchorCode - the code of the anchor currency
+     * @return a Mono emitting the RateMatrix built from the exchange rates from the anchor currency to each supported
+     * currency, including itself; or an ExternalApiConnectionError, in case of an error in the connection to the External
+     * API, or in case its response holds no exchange rates
+     */
+    public Mono<RateMatrix> fetchAnchorRates(String anchorCode) {
+        LOGGER.info("Fetching from external API the exchange rates from {}", anchorCode.replaceAll(INPUT_REGEX, "_"));
+
+        return apiService.getLatestExchangesReactive(anchorCode, Optional.empty()).flatMap(fetchedRates -> {
+            if(!fetchedRates.hasRates()){
+                return Mono.error(new ExternalApiConnectionError("External API returned no exchange rates"));
+            }
+
+            long payloadHash = fetchedRates.getPayloadHash();
+            long registryVersion = currencyRegistry.getVersion();
+            LoadedRates lastLoad = lastLoads.get(anchorCode);
+
+            if(lastLoad != null && lastLoad.payloadHash() == payloadHash && lastLoad.registryVersion() == registryVersion){
+                // The exchange rates, and the currencies they are filtered by, are unchanged, so the RateMatrix built from
+                // them is reused, as is
+                LOGGER.info("The exchange rates from {} are unchanged since they were last loaded", anchorCode.replaceAll(INPUT_REGEX, "_"));
+                return Mono.just(lastLoad.rateMatrix());
+            }
+
+            String[] codes = new String[fetchedRates.size() + 1];
+            double[] anchorVector = new double[fetchedRates.size() + 1];
+            int size = 0;
+            boolean unknownCurrencyFetched = false;
+
+            codes[size] = anchorCode;
+            anchorVector[size++] = 1.0;
+
+            for(int i = 0; i < fetchedRates.size(); i++){
+                String code = fetchedRates.getCode(i);
+
+                if(code.equals(anchorCode)){
+                    continue;
+                }
+
+                if(currencyRegistry.contains(code)){
+                    codes[size] = code;
+                    anchorVector[size++] = fetchedRates.getRate(i);
+                }else{
+                    // A fetched currency isn't in the list of supported values. This means the list of supported symbols by the external
+                    // API has been updated since application startup, or that they have conversion rates for a symbol not present
+                    // in their /symbols endpoint.
+                    LOGGER.info("Fetched currency with fromCode {} was not on the currency registry!", code);
+                    unknownCurrencyFetched = true;
+                }
+            }
+
+            RateMatrix rateMatrix = RateMatrix.fromAnchorVector(anchorCode, Arrays.copyOf(codes, size), Arrays.copyOf(anchorVector, size));
+
+            if(unknownCurrencyFetched){
+                // The RateMatrix isn't kept for reuse, since the next load may find the unknown currencies in the registry
+                lastLoads.remove(anchorCode);
+
+                // We should call the method to fetch currencies from the external API, once for the whole anchor vector
+                LOGGER.info("Contacting the fetchSupportedCurrencies() service");
+                return Mono.fromRunnable(currencyService::fetchSupportedCurrencies)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(rateMatrix);
+            }
+
+            lastLoads.put(anchorCode, new LoadedRates(payloadHash, registryVersion, rateMatrix));
+            return Mono.just(rateMatrix);
+        });
+    }
+
+    private record LoadedRates(long payloadHash, long registryVersion, RateMatrix rateMatrix) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service that, in the pull-model mode (exchange.poller.enabled), is the only one contacting the external API for
+ * exchange rates: it reloads them on a fixed schedule, ahead of their expiry, while every request is served from the
+ * last published snapshot, without ever waiting on the external API. Since every cross rate is derived from the
+ * exchange rates of the anchor currency, polling them keeps the exchange rates of every base currency fresh.
+ */
+@Service
+@ConditionalOnProperty(name = "exchange.poller.enabled", havingValue = "true")
+public class RatePoller {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RatePoller.class);
+    private RateStore rateStore;
+
+    public RatePoller(RateStore rateStore) {
+        this.rateStore = rateStore;
+    }
+
+    /**
+     * Polls the exchange rates once the application is ready, after the supported currencies are fetched at startup,
+     * and then every exchange.poller.interval.millis after the previous poll completes. In case the external API can't
+     * be reached, the last published snapshot keeps being served, marked as stale once expired, until the next poll.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${exchange.poller.interval.millis}", fixedDelayString = "${exchange.poller.interval.millis}")
+    public void poll() {
+        try{
+            LOGGER.info("Polling the exchange rates at version {}", rateStore.getVersion());
+            rateStore.pollSnapshot();
+        } catch (ExternalApiConnectionError ex) {
+            LOGGER.warn("Could not poll the exchange rates: {}", ex.getMessage());
+        }
+    }
+}
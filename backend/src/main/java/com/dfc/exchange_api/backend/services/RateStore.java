@@ -0,0 +1,362 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service that publishes the exchange rates as immutable, versioned RateSnapshots. The snapshots are held by the
+ * exchangeRate cache, an asynchronous loading cache keyed by the anchor currency, which reloads the exchange rates in
+ * the background before they expire, while the current snapshot keeps being served. The last published snapshot is
+ * also swapped in through a single atomic reference, from which it keeps being served, for a limited time, once expired,
+ * while the external API is slow or unavailable.
+ */
+@Service
+public class RateStore {
+    @Value("${cache.name}")
+    private String CACHE_NAME;
+    @Value("${exchange.anchor.currency}")
+    private String ANCHOR_CODE;
+    @Value("${exchange.reload.window.millis}")
+    private long RELOAD_WINDOW_MILLIS;
+    @Value("${cache.stale.max.age.seconds}")
+    private long STALE_MAX_AGE_SECONDS;
+    @Value("${cache.expiry.seconds}")
+    private long EXPIRY_SECONDS;
+    @Value("${exchange.poller.enabled}")
+    private boolean PULL_MODE;
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateStore.class);
+    private final AtomicReference<RateSnapshot> currentSnapshot = new AtomicReference<>();
+    // The highest version published, from which the versions keep increasing once the cache is cleared
+    private final AtomicLong versionSequence = new AtomicLong();
+    // The number of loads of the exchange rates started, whether initial loads or refreshes
+    private final AtomicLong loadSequence = new AtomicLong();
+    private final AtomicReference<CompletableFuture<RateSnapshot>> pendingReload = new AtomicReference<>();
+    private CacheManager cacheManager;
+    private Caffeine<Object, Object> caffeineConfig;
+    private RateLoader rateLoader;
+    private DemandTracker demandTracker;
+    private AsyncLoadingCache<String, RateSnapshot> snapshotCache;
+
+    public RateStore(CacheManager cacheManager, Caffeine<Object, Object> caffeineConfig, RateLoader rateLoader,
+                     DemandTracker demandTracker) {
+        this.cacheManager = cacheManager;
+        this.caffeineConfig = caffeineConfig;
+        this.rateLoader = rateLoader;
+        this.demandTracker = demandTracker;
+    }
+
+    /**
+     * Builds the exchangeRate cache, whose loader fetches the exchange rates of the anchor currency from the external API
+     * and publishes them as a new RateSnapshot, and registers it in the CacheManager, to be managed through the cache
+     * endpoints. The loader is non-blocking: no thread is held while the external API is being contacted.
+     */
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void buildCache() {
+        this.snapshotCache = caffeineConfig.buildAsync((String anchorCode, Executor executor) -> {
+            loadSequence.incrementAndGet();
+            // The exchange rates are at least as fresh as the instant the load started, by which concurrent loads are ordered
+            Instant fetchedAt = Instant.now();
+
+            return rateLoader.fetchAnchorRates(anchorCode)
+                    .subscribeOn(Schedulers.fromExecutor(executor))
+                    .map(rateMatrix -> this.publish(rateMatrix, fetchedAt))
+                    .toFuture();
+        });
+
+        if(cacheManager instanceof CaffeineCacheManager caffeineCacheManager){
+            caffeineCacheManager.registerCustomCache(CACHE_NAME,
+                    (com.github.benmanes.caffeine.cache.Cache<Object, Object>) (com.github.benmanes.caffeine.cache.Cache<?, ?>) snapshotCache.synchronous());
+        }
+    }
+
+    /**
+     * Gets the current RateSnapshot, which should be pinned by the caller for the whole computation of a request, waiting
+     * for it to be loaded, if needed, as described in getSnapshotReactive.
+     * @return the current RateSnapshot
+     * @throws ExternalApiConnectionError - in case of an error in the connection to the External API, and there is no
+     * servable stale snapshot
+     */
+    public RateSnapshot getSnapshot() throws ExternalApiConnectionError {
+        return this.getSnapshotReactive().block();
+    }
+
+    /**
+     * Gets the current RateSnapshot, which should be pinned by the caller for the whole computation of a request. If the
+     * snapshot is due for a refresh, it is still emitted immediately, while the new one is loaded in the background.
+     * Once the snapshot has expired, the last published one keeps being served, as long as it isn't older than the
+     * configured maximum stale age, while the exchange rates are revalidated in the background; in case the revalidation
+     * fails, the stale snapshot is served as well. Only when there is no servable snapshot is it emitted once the exchange
+     * rates are loaded; cancelling the Mono doesn't cancel the load, which is shared by every caller.
+     * In the pull-model mode, the external API is never contacted: the snapshot last published by the RatePoller is
+     * emitted, whatever its age, as described in getPolledSnapshot.
+     * @return a Mono emitting the current RateSnapshot; or an ExternalApiConnectionError, in case of an error in the
+     * connection to the External API, and there is no servable stale snapshot
+     */
+    public Mono<RateSnapshot> getSnapshotReactive() {
+        if(PULL_MODE){
+            return this.getPolledSnapshot();
+        }
+
+        return Mono.defer(() -> {
+            CompletableFuture<RateSnapshot> snapshot = snapshotCache.get(ANCHOR_CODE);
+            RateSnapshot lastSnapshot = currentSnapshot.get();
+
+            if(!snapshot.isDone() && this.isServable(lastSnapshot)){
+                LOGGER.info("Serving version {} of the exchange rates while they are revalidated", lastSnapshot.getVersion());
+                return Mono.just(lastSnapshot);
+            }
+
+            return Mono.fromFuture(snapshot, true).onErrorResume(ExternalApiConnectionError.class, ex -> {
+                if(this.isServable(lastSnapshot)){
+                    LOGGER.warn("Serving stale version {} of the exchange rates, since they could not be revalidated", lastSnapshot.getVersion());
+                    return Mono.just(lastSnapshot);
+                }
+
+                return Mono.error(ex);
+            });
+        });
+    }
+
+    /**
+     * Loads the exchange rates from the external API, and waits for them to be published as a new RateSnapshot, as
+     * described in reloadSnapshotReactive.
+     * @return the newly published RateSnapshot
+     * @throws ExternalApiConnectionError - in case of an error in the connection to the External API
+     */
+    public RateSnapshot reloadSnapshot() throws ExternalApiConnectionError {
+        return this.reloadSnapshotReactive().block();
+    }
+
+    /**
+     * Loads the exchange rates from the external API, and emits them once published as a new RateSnapshot. Used when the
+     * current snapshot doesn't hold a required exchange rate. Reloads requested by concurrent requests within a short
+     * batching window are merged into a single call to the external API, whose snapshot is shared by all of them. A load
+     * already in progress when the window opened may have fetched the exchange rates before the reload was requested, so
+     * it isn't joined: the reload starts once it completes, as described in refreshAfter.
+     * In case the load fails, the current snapshot is kept in the cache. In the pull-model mode, the exchange rates are only
+     * reloaded by the RatePoller, so the snapshot it last published is emitted instead.
+     * @return a Mono emitting the newly published RateSnapshot; or an ExternalApiConnectionError, in case of an error in
+     * the connection to the External API
+     */
+    public Mono<RateSnapshot> reloadSnapshotReactive() {
+        if(PULL_MODE){
+            return this.getPolledSnapshot();
+        }
+
+        return Mono.defer(() -> {
+            CompletableFuture<RateSnapshot> newReload = new CompletableFuture<>();
+            CompletableFuture<RateSnapshot> reload = pendingReload.compareAndExchange(null, newReload);
+
+            if(reload == null){
+                // Opening a new batching window; the reload starts once it closes, and later requests open a new one
+                reload = newReload;
+                long startedLoads = loadSequence.get();
+                CompletableFuture.delayedExecutor(RELOAD_WINDOW_MILLIS, TimeUnit.MILLISECONDS).execute(() -> {
+                    pendingReload.set(null);
+                    this.refreshAfter(startedLoads).whenComplete((snapshot, ex) -> {
+                        if(ex != null){
+                            newReload.completeExceptionally(ex);
+                        }else{
+                            newReload.complete(snapshot);
+                        }
+                    });
+                });
+            }
+
+            return Mono.fromFuture(reload, true);
+        });
+    }
+
+    /**
+     * Auxiliary method that refreshes the exchange rates with a load started after the given number of loads. Caffeine's
+     * refresh joins a load already in progress, instead of starting a new one; in case that load was started before, a
+     * new refresh is chained once it completes, whether it succeeds or fails.
+     * @param startedLoads - the number of loads started when the reload was requested
+     * @return the future of the RateSnapshot published by a load started after the given ones
+     */
+    private CompletableFuture<RateSnapshot> refreshAfter(long startedLoads) {
+        CompletableFuture<RateSnapshot> refresh = snapshotCache.synchronous().refresh(ANCHOR_CODE);
+
+        if(loadSequence.get() > startedLoads){
+            return refresh;
+        }
+
+        LOGGER.info("Reloading the exchange rates once the load in progress completes");
+        return refresh.handle((snapshot, ex) -> null).thenCompose(ignored -> snapshotCache.synchronous().refresh(ANCHOR_CODE));
+    }
+
+    /**
+     * Loads the exchange rates from the external API, and waits for them to be published as a new RateSnapshot, regardless
+     * of the age of the current one. Used by the RatePoller, in the pull-model mode, to keep the snapshot fresh ahead of
+     * its expiry; a load already in progress is joined, instead of being started again.
+     * @return the newly published RateSnapshot
+     * @throws ExternalApiConnectionError - in case of an error in the connection to the External API
+     */
+    public RateSnapshot pollSnapshot() throws ExternalApiConnectionError {
+        return Mono.fromFuture(snapshotCache.synchronous().refresh(ANCHOR_CODE), true).block();
+    }
+
+    /**
+     * Builds a RateMatrix from the exchange rates of the anchor currency, and publishes it as a new RateSnapshot, with
+     * the next version number.
+     * @param anchorRates - the exchange rates from the anchor currency to every supported currency
+     * @return the published RateSnapshot
+     */
+    public RateSnapshot storeAnchorRates(Map<String, Double> anchorRates) {
+        RateSnapshot snapshot = this.publish(RateMatrix.fromAnchorRates(ANCHOR_CODE, anchorRates), Instant.now());
+
+        snapshotCache.put(ANCHOR_CODE, CompletableFuture.completedFuture(snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Publishes exchange rates restored from a previous run of the service as a new RateSnapshot, keeping the instant in
+     * which they were originally fetched, so that they are served immediately, and reloads them from the external API in
+     * the background. In case the reload fails, the restored snapshot keeps being served.
+     * @param anchorRates - the exchange rates from the anchor currency to every supported currency
+     * @param fetchedAt - the instant in which the exchange rates were fetched from the external API
+     * @return the published RateSnapshot
+     */
+    public RateSnapshot restoreAnchorRates(Map<String, Double> anchorRates, Instant fetchedAt) {
+        RateSnapshot snapshot = this.publish(RateMatrix.fromAnchorRates(ANCHOR_CODE, anchorRates), fetchedAt);
+
+        snapshotCache.put(ANCHOR_CODE, CompletableFuture.completedFuture(snapshot));
+        snapshotCache.synchronous().refresh(ANCHOR_CODE);
+        return snapshot;
+    }
+
+    /**
+     * Gets the last published RateSnapshot, without loading the exchange rates in case there is none
+     * @return the last published RateSnapshot; or null, in case no snapshot was published since the cache was last cleared
+     */
+    public RateSnapshot getPublishedSnapshot() {
+        return currentSnapshot.get();
+    }
+
+    /**
+     * Discards the current RateSnapshot, so that the next request loads the exchange rates again
+     */
+    public void clear() {
+        snapshotCache.synchronous().invalidateAll();
+        currentSnapshot.set(null);
+    }
+
+    /**
+     * Gets the version of the last published RateSnapshot
+     * @return the version number; or 0, in case no snapshot was published since the cache was last cleared
+     */
+    public long getVersion() {
+        RateSnapshot snapshot = currentSnapshot.get();
+        return snapshot == null ? 0 : snapshot.getVersion();
+    }
+
+    public String getAnchorCode() {
+        return ANCHOR_CODE;
+    }
+
+    /**
+     * Auxiliary method that emits, in the pull-model mode, the snapshot last published by the RatePoller, without ever
+     * contacting the external API, whatever its age; a snapshot past its expiry is marked as stale in the response.
+     * @return a Mono emitting the last published RateSnapshot; or an ExternalApiConnectionError, in case the exchange rates
+     * weren't polled yet
+     */
+    private Mono<RateSnapshot> getPolledSnapshot() {
+        return Mono.defer(() -> {
+            RateSnapshot snapshot = currentSnapshot.get();
+
+            if(snapshot == null){
+                return Mono.error(new ExternalApiConnectionError("The exchange rates were not polled yet"));
+            }
+
+            return Mono.just(snapshot);
+        });
+    }
+
+    /**
+     * Auxiliary method that checks if a RateSnapshot can still be served, once expired from the cache
+     * @param snapshot - the last published RateSnapshot
+     * @return true, in case there is a snapshot, fetched within the configured maximum stale age; false otherwise
+     */
+    private boolean isServable(RateSnapshot snapshot) {
+        return snapshot != null
+                && Duration.between(snapshot.getFetchedAt(), Instant.now()).getSeconds() <= STALE_MAX_AGE_SECONDS;
+    }
+
+    /**
+     * Auxiliary method that wraps a RateMatrix in a RateSnapshot, with the next version number, and swaps it in as the
+     * last published snapshot. In case the RateMatrix is the one the last published snapshot already holds, since the
+     * exchange rates are unchanged, the snapshot is only revalidated: it keeps its version, so that nothing keyed on it,
+     * such as the clients' HTTP caches, is invalidated, and only the instant it was fetched is updated.
+     * Either way, the rows of the hottest base currencies, as ranked by the DemandTracker, are materialized before the
+     * snapshot is swapped in. The snapshot is swapped in with a compare-and-set, and its version assigned from the one it
+     * replaces, so that concurrent loads, such as a refresh and a reload, never publish the same version; a load of
+     * exchange rates fetched before those of the last published snapshot is discarded, instead of overwriting them.
+     * @param rateMatrix - the matrix of exchange rates to be published
+     * @param fetchedAt - the instant in which the exchange rates were fetched from the external API
+     * @return the published RateSnapshot; or the last published one, in case it holds exchange rates fetched later
+     */
+    private RateSnapshot publish(RateMatrix rateMatrix, Instant fetchedAt) {
+        List<String> hottestCodes = demandTracker.getHottestCodes();
+
+        while(true){
+            RateSnapshot lastSnapshot = currentSnapshot.get();
+
+            if(lastSnapshot != null && lastSnapshot.getFetchedAt().isAfter(fetchedAt)){
+                LOGGER.info("Discarding exchange rates fetched at {}, before those of version {}", fetchedAt, lastSnapshot.getVersion());
+                return lastSnapshot;
+            }
+
+            boolean revalidated = lastSnapshot != null && lastSnapshot.getRateMatrix() == rateMatrix;
+            long version = revalidated ? lastSnapshot.getVersion()
+                    : (lastSnapshot == null ? versionSequence.get() : lastSnapshot.getVersion()) + 1;
+            RateSnapshot snapshot = new RateSnapshot(version, fetchedAt, this.getStaleAt(fetchedAt), rateMatrix, hottestCodes);
+
+            if(!currentSnapshot.compareAndSet(lastSnapshot, snapshot)){
+                continue;
+            }
+
+            versionSequence.accumulateAndGet(version, Math::max);
+
+            if(revalidated){
+                LOGGER.info("Revalidated version {} of the exchange rates, which are unchanged", version);
+            }else{
+                LOGGER.info("Published version {} of the exchange rates of {} currencies", version, rateMatrix.size());
+            }
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Auxiliary method that gets the instant from which exchange rates are served as stale: once they are older than they
+     * are allowed to be kept in the cache
+     * @param fetchedAt - the instant in which the exchange rates were fetched from the external API
+     * @return the instant from which they are stale
+     */
+    private Instant getStaleAt(Instant fetchedAt) {
+        return fetchedAt.plusSeconds(EXPIRY_SECONDS);
+    }
+}
@@ -0,0 +1,291 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.models.Currency;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Service that persists the last published RateSnapshot, and the list of supported currencies, to a compact binary file,
+ * so that a restarted node serves warm data right away, instead of waiting for the external API. The file is flushed
+ * periodically, whenever a new snapshot was published or revalidated, and on graceful shutdown; at startup, it is read
+ * through a memory mapping, and its contents are published while the exchange rates are reloaded in the background. The
+ * ranking of the base currencies by demand is persisted along with them, so that the rows of the hottest ones are
+ * materialized as soon as the node restarts.
+ * The file starts with a header holding a magic number, the format version, and the length and CRC32 checksum of its
+ * payload; files with an unknown format, a wrong checksum, another anchor currency, or older than the configured maximum
+ * age are ignored.
+ */
+@Service
+public class SnapshotFileStore {
+    private static final int MAGIC_NUMBER = 0x45585253;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + Long.BYTES;
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFileStore.class);
+    @Value("${snapshot.file.enabled}")
+    private boolean ENABLED;
+    @Value("${snapshot.file.path}")
+    private String FILE_PATH;
+    @Value("${snapshot.file.max.age.seconds}")
+    private long MAX_AGE_SECONDS;
+    private long lastFlushedVersion = 0;
+    private Instant lastFlushedFetchedAt;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private RateStore rateStore;
+    private CurrencyRegistry currencyRegistry;
+    private CurrencyRepository currencyRepository;
+    private DemandTracker demandTracker;
+
+    public SnapshotFileStore(RateStore rateStore, CurrencyRegistry currencyRegistry, CurrencyRepository currencyRepository,
+                             DemandTracker demandTracker) {
+        this.rateStore = rateStore;
+        this.currencyRegistry = currencyRegistry;
+        this.currencyRepository = currencyRepository;
+        this.demandTracker = demandTracker;
+    }
+
+    /**
+     * Restores, at startup, the supported currencies and the exchange rates stored in the snapshot file, if there is a
+     * valid one. The currencies are stored in the repository and in the CurrencyRegistry, in case the repository is
+     * empty; otherwise, the registry is seeded with the stored ones by the CurrencyService. The ranking of the base
+     * currencies is seeded into the DemandTracker, and the exchange rates are published as the current RateSnapshot,
+     * which is reloaded from the external API in the background.
+     */
+    @PostConstruct
+    public void restore() {
+        if(!ENABLED){
+            return;
+        }
+
+        Optional<StoredSnapshot> storedSnapshot = this.read(Path.of(FILE_PATH));
+
+        if(storedSnapshot.isEmpty()){
+            return;
+        }
+
+        StoredSnapshot snapshot = storedSnapshot.get();
+
+        if(currencyRepository.count() == 0){
+            currencyRegistry.rebuild(currencyRepository.saveAll(snapshot.currencies()));
+        }
+
+        demandTracker.seed(snapshot.demand());
+        rateStore.restoreAnchorRates(snapshot.anchorRates(), snapshot.fetchedAt());
+        lastFlushedVersion = rateStore.getVersion();
+        lastFlushedFetchedAt = snapshot.fetchedAt();
+
+        LOGGER.info("Restored the exchange rates of {} currencies, fetched at {}, from the snapshot file",
+                snapshot.anchorRates().size(), snapshot.fetchedAt());
+    }
+
+    /**
+     * Writes the last published RateSnapshot, and the list of supported currencies, to the snapshot file, in case a new
+     * snapshot was published, or the last one was revalidated, since the last flush, so that the file keeps the instant of
+     * the last successful load, and isn't discarded as too old on restart while its exchange rates are still current. The
+     * file is first written to a temporary file, which then atomically replaces the previous one, so that a crash never
+     * leaves a partially written file behind.
+     * This method is scheduled to run periodically, and is also called on graceful shutdown.
+     */
+    @Scheduled(initialDelayString = "${snapshot.file.flush.millis}", fixedRateString = "${snapshot.file.flush.millis}")
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try{
+            RateSnapshot snapshot = rateStore.getPublishedSnapshot();
+
+            if(!ENABLED || snapshot == null
+                    || (snapshot.getVersion() == lastFlushedVersion && snapshot.getFetchedAt().equals(lastFlushedFetchedAt))){
+                return;
+            }
+
+            Path file = Path.of(FILE_PATH).toAbsolutePath();
+            Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+            Files.createDirectories(file.getParent());
+            Files.write(temporaryFile, this.encode(snapshot, currencyRegistry.getAll(), demandTracker.getRanking()));
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            lastFlushedVersion = snapshot.getVersion();
+            lastFlushedFetchedAt = snapshot.getFetchedAt();
+            LOGGER.info("Flushed version {} of the exchange rates to the snapshot file", snapshot.getVersion());
+        } catch (IOException ex) {
+            LOGGER.warn("Could not write the snapshot file: {}", ex.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Auxiliary method that encodes a RateSnapshot, the list of supported currencies, and the ranking of the base
+     * currencies, in the format of the snapshot file
+     * @param snapshot - the RateSnapshot to be encoded
+     * @param currencies - the supported currencies
+     * @param demand - the estimated number of lookups of each base currency
+     * @return the contents of the snapshot file
+     */
+    private byte[] encode(RateSnapshot snapshot, List<Currency> currencies, Map<String, Long> demand) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        Map<String, Double> anchorRates = snapshot.getRates(snapshot.getAnchorCode());
+
+        payload.writeLong(snapshot.getFetchedAt().toEpochMilli());
+        this.writeString(payload, snapshot.getAnchorCode());
+
+        payload.writeInt(currencies.size());
+        for(Currency currency: currencies){
+            this.writeString(payload, currency.getCode());
+            this.writeString(payload, currency.getName());
+        }
+
+        payload.writeInt(anchorRates.size());
+        for(Map.Entry<String, Double> rate: anchorRates.entrySet()){
+            this.writeString(payload, rate.getKey());
+            payload.writeDouble(rate.getValue());
+        }
+
+        payload.writeInt(demand.size());
+        for(Map.Entry<String, Long> frequency: demand.entrySet()){
+            this.writeString(payload, frequency.getKey());
+            payload.writeLong(frequency.getValue());
+        }
+
+        byte[] payloadArray = payloadBytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(payloadArray);
+
+        return ByteBuffer.allocate(HEADER_SIZE + payloadArray.length)
+                .putInt(MAGIC_NUMBER)
+                .putInt(FORMAT_VERSION)
+                .putInt(payloadArray.length)
+                .putLong(checksum.getValue())
+                .put(payloadArray)
+                .array();
+    }
+
+    /**
+     * Auxiliary method that reads the snapshot file through a memory mapping, and validates it
+     * @param file - the path of the snapshot file
+     * @return an Optional containing the stored snapshot; or an empty Optional, in case there is no valid, fresh snapshot
+     * file for the configured anchor currency
+     */
+    private Optional<StoredSnapshot> read(Path file) {
+        if(!Files.isRegularFile(file)){
+            LOGGER.info("No snapshot file found at {}", file);
+            return Optional.empty();
+        }
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION){
+                LOGGER.warn("Ignoring the snapshot file, since its format is unknown");
+                return Optional.empty();
+            }
+
+            int payloadLength = buffer.getInt();
+            long expectedChecksum = buffer.getLong();
+
+            if(payloadLength != buffer.remaining()){
+                LOGGER.warn("Ignoring the snapshot file, since it is truncated");
+                return Optional.empty();
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+
+            if(checksum.getValue() != expectedChecksum){
+                LOGGER.warn("Ignoring the snapshot file, since its checksum doesn't match");
+                return Optional.empty();
+            }
+
+            return this.decode(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            LOGGER.warn("Ignoring the snapshot file, since it could not be read: {}", ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Auxiliary method that decodes the payload of the snapshot file
+     * @param buffer - the payload of the snapshot file
+     * @return an Optional containing the stored snapshot; or an empty Optional, in case it is stale, or stored for another
+     * anchor currency
+     */
+    private Optional<StoredSnapshot> decode(ByteBuffer buffer) {
+        Instant fetchedAt = Instant.ofEpochMilli(buffer.getLong());
+        String anchorCode = this.readString(buffer);
+
+        if(!anchorCode.equals(rateStore.getAnchorCode())){
+            LOGGER.warn("Ignoring the snapshot file, since it holds the exchange rates of another anchor currency");
+            return Optional.empty();
+        }
+
+        if(Duration.between(fetchedAt, Instant.now()).getSeconds() > MAX_AGE_SECONDS){
+            LOGGER.info("Ignoring the snapshot file, since its exchange rates were fetched at {}", fetchedAt);
+            return Optional.empty();
+        }
+
+        int currencyCount = buffer.getInt();
+        List<Currency> currencies = new ArrayList<>(currencyCount);
+
+        for(int i = 0; i < currencyCount; i++){
+            String code = this.readString(buffer);
+            currencies.add(new Currency(this.readString(buffer), code));
+        }
+
+        int rateCount = buffer.getInt();
+        Map<String, Double> anchorRates = new HashMap<>();
+
+        for(int i = 0; i < rateCount; i++){
+            anchorRates.put(this.readString(buffer), buffer.getDouble());
+        }
+
+        int demandCount = buffer.getInt();
+        Map<String, Long> demand = new HashMap<>();
+
+        for(int i = 0; i < demandCount; i++){
+            demand.put(this.readString(buffer), buffer.getLong());
+        }
+
+        return Optional.of(new StoredSnapshot(fetchedAt, currencies, anchorRates, demand));
+    }
+
+    private void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record StoredSnapshot(Instant fetchedAt, List<Currency> currencies, Map<String, Double> anchorRates,
+                                  Map<String, Long> demand) {
+    }
+}
@@ -0,0 +1,285 @@
+package com.dfc.exchange_api.backend.services;
+
+import com.dfc.exchange_api.backend.models.ConversionItem;
+import com.dfc.exchange_api.backend.models.ConversionItemResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Service that converts a stream of conversion records, too large to be buffered, such as the files of a nightly
+ * reconciliation. The records are read from the request body one line at a time, either as newline-delimited JSON objects
+ * or as CSV rows, converted against a single pinned snapshot of exchange rates, and written to the response in the same
+ * format, in the order they were read. Only a record, and the I/O buffers, are held in memory at any time, whatever the
+ * size of the stream, and since reading and writing are blocking, a client reading the response slowly slows down the
+ * reading of the request body, instead of the results piling up in memory.
+ */
+@Service
+public class StreamingConversionService {
+    public enum Format { NDJSON, CSV }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingConversionService.class);
+    private static final String CSV_HEADER = "from,to,amount";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    @Value("${conversion.stream.max.record.length}")
+    private int MAX_RECORD_LENGTH;
+    @Value("${conversion.stream.flush.records}")
+    private int FLUSH_RECORDS;
+    private ConversionService conversionService;
+    private ExchangeService exchangeService;
+    private ObjectReader itemReader;
+    private ObjectWriter resultWriter;
+
+    public StreamingConversionService(ConversionService conversionService, ExchangeService exchangeService, ObjectMapper objectMapper) {
+        this.conversionService = conversionService;
+        this.exchangeService = exchangeService;
+        this.itemReader = objectMapper.readerFor(ConversionItem.class);
+        this.resultWriter = objectMapper.writerFor(ConversionItemResult.class);
+    }
+
+    /**
+     * Pins the snapshot of exchange rates a stream is converted against, before any record is read, so that a failure to
+     * load the exchange rates is reported before the response is started
+     * @param deadlineMillis - the time budget for pinning the snapshot, in milliseconds; or null, for the default one
+     * @return a Mono emitting the current RateSnapshot, as described in ExchangeService.getCurrentRateSnapshot; or an
+     * ExternalApiConnectionError, in case of an error in the connection to the External API
+     */
+    public Mono<RateSnapshot> getRateSnapshot(Long deadlineMillis) {
+        return exchangeService.getCurrentRateSnapshot(deadlineMillis);
+    }
+
+    /**
+     * Converts every record of a stream, writing the result of each one, holding either its value or the error that
+     * prevented it, such as a malformed record or an unsupported currency, which doesn't stop the stream. The output is
+     * flushed every few records, so that the client receives the results while the stream is still being read. CSV input
+     * may start with a "from,to,amount" header row, and the CSV output starts with a "from,to,amount,value,error" one.
+     * @param input - the stream of records, encoded in UTF-8
+     * @param output - the stream the results are written to
+     * @param format - the format of both the records and the results
+     * @param snapshot - the snapshot of exchange rates pinned for the whole stream
+     * @return the number of records converted
+     * @throws IOException - in case reading the records or writing the results fails, such as when the client disconnects
+     */
+    public long convert(InputStream input, OutputStream output, Format format, RateSnapshot snapshot) throws IOException {
+        LineReader reader = this.openReader(input);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        StringBuilder line = new StringBuilder();
+        long lineNumber = 0;
+        long records = 0;
+        int length;
+
+        this.writeHeader(writer, format);
+
+        while((length = reader.readLine(line)) >= 0){
+            lineNumber++;
+
+            if(this.isSkipped(line, lineNumber, format)){
+                continue;
+            }
+
+            this.writeResult(writer, this.convertRecord(line, length, lineNumber, format, snapshot), format);
+
+            if(++records % FLUSH_RECORDS == 0){
+                writer.flush();
+            }
+        }
+
+        writer.flush();
+        LOGGER.info("Finalizing processing the call to /convert/stream endpoint with {} records, at version {}", records, snapshot.getVersion());
+
+        return records;
+    }
+
+    /**
+     * Opens a reader of the lines of a stream of records, encoded in UTF-8, keeping at most the maximum record length of
+     * each line
+     * @param input - the stream of records
+     * @return the reader
+     */
+    LineReader openReader(InputStream input) {
+        return new LineReader(new InputStreamReader(input, StandardCharsets.UTF_8), MAX_RECORD_LENGTH);
+    }
+
+    /**
+     * Checks whether a line holds no record: either a blank line, or the header row of CSV input
+     * @param line - the line
+     * @param lineNumber - the number of the line, starting at 1
+     * @param format - the format of the records
+     * @return true, in case the line should be skipped; false otherwise
+     */
+    boolean isSkipped(CharSequence line, long lineNumber, Format format) {
+        return line.toString().isBlank() || (format == Format.CSV && lineNumber == 1 && CSV_HEADER.contentEquals(line));
+    }
+
+    /**
+     * Converts a single record
+     * @param line - the line holding the record, as read by a LineReader
+     * @param length - the full length of the line, which exceeds the maximum record length in case it was truncated
+     * @param lineNumber - the number of the line, to be reported in case the record is malformed
+     * @param format - the format of the record
+     * @param snapshot - the snapshot of exchange rates pinned for the whole stream
+     * @return the result of the conversion, holding either its value, or the error that prevented it
+     */
+    ConversionItemResult convertRecord(CharSequence line, int length, long lineNumber, Format format, RateSnapshot snapshot) {
+        if(length > MAX_RECORD_LENGTH){
+            return new ConversionItemResult(null, null, null, null, "Record at line " + lineNumber + " exceeds " + MAX_RECORD_LENGTH + " characters");
+        }
+
+        ConversionItem item = this.parseRecord(line.toString(), lineNumber, format);
+
+        return item == null
+                ? new ConversionItemResult(null, null, null, null, "Malformed record at line " + lineNumber)
+                : conversionService.getConversionForItem(item, snapshot);
+    }
+
+    /**
+     * Writes the header row of the results, in case their format has one
+     * @param writer - the writer of the results
+     * @param format - the format of the results
+     * @throws IOException - in case writing the header fails
+     */
+    void writeHeader(Writer writer, Format format) throws IOException {
+        if(format == Format.CSV){
+            writer.write(CSV_HEADER + ",value,error\n");
+        }
+    }
+
+    /**
+     * Auxiliary method that parses a record into a conversion item
+     * @param record - the line holding the record
+     * @param lineNumber - the number of the line, to be logged in case the record is malformed
+     * @param format - the format of the record
+     * @return the parsed item; or null, in case the record is malformed
+     */
+    private ConversionItem parseRecord(String record, long lineNumber, Format format) {
+        try{
+            if(format == Format.NDJSON){
+                return itemReader.readValue(record);
+            }
+
+            String[] fields = record.split(",", -1);
+
+            if(fields.length == 3){
+                return new ConversionItem(fields[0].trim(), fields[1].trim(), Double.valueOf(fields[2].trim()));
+            }
+        } catch (JsonProcessingException | NumberFormatException e){
+            LOGGER.debug("Malformed record at line {}: {}", lineNumber, e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes the result of a conversion, as a line in the given format
+     * @param writer - the writer of the response
+     * @param result - the result of the conversion
+     * @param format - the format of the response
+     * @throws IOException - in case writing the result fails
+     */
+    void writeResult(Writer writer, ConversionItemResult result, Format format) throws IOException {
+        if(format == Format.NDJSON){
+            writer.write(resultWriter.writeValueAsString(result));
+        } else {
+            writer.write(this.csvField(result.getFrom()));
+            writer.write(',');
+            writer.write(this.csvField(result.getTo()));
+            writer.write(',');
+            writer.write(this.csvField(result.getAmount()));
+            writer.write(',');
+            writer.write(this.csvField(result.getValue()));
+            writer.write(',');
+            writer.write(this.csvField(result.getError()));
+        }
+
+        writer.write('\n');
+    }
+
+    /**
+     * Auxiliary method that formats a CSV field, quoting it in case it holds a comma, a quote, or a line break
+     * @param value - the value of the field; or null, for an empty field
+     * @return the formatted field
+     */
+    private String csvField(Object value) {
+        if(value == null){
+            return "";
+        }
+
+        String field = value.toString();
+
+        if(field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")){
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+
+        return field;
+    }
+
+    /**
+     * Buffered reader of lines, which, unlike BufferedReader.readLine, keeps at most a given number of characters of each
+     * line, so that a single overlong line can't exhaust the heap
+     */
+    static final class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+
+        private LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Reads the next line, without its line terminator (either \n or \r\n)
+         * @param line - the builder the line is read into, which is cleared first; it holds, at most, maxLength
+         * characters of the line
+         * @return the full length of the line, which may exceed the characters kept; or -1, at the end of the stream
+         * @throws IOException - in case reading fails
+         */
+        int readLine(StringBuilder line) throws IOException {
+            line.setLength(0);
+            int length = 0;
+
+            while(true){
+                if(position == limit){
+                    limit = reader.read(buffer);
+                    position = 0;
+
+                    if(limit <= 0){
+                        limit = 0;
+                        return length == 0 ? -1 : this.terminate(line, length);
+                    }
+                }
+
+                char character = buffer[position++];
+
+                if(character == '\n'){
+                    return this.terminate(line, length);
+                }
+
+                if(length++ < maxLength){
+                    line.append(character);
+                }
+            }
+        }
+
+        private int terminate(StringBuilder line, int length) {
+            if(line.length() > 0 && line.charAt(line.length() - 1) == '\r'){
+                line.setLength(line.length() - 1);
+                return length - 1;
+            }
+
+            return length;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.dfc.exchange_api.backend.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decaying count-min sketch, estimating how often each key was recorded in a fixed amount of memory. Each key increments
+ * one counter in each of DEPTH rows, chosen by a different hash per row, and its frequency is estimated as the minimum of
+ * those counters, which may overestimate, but never underestimate it. Halving every counter ages the recorded
+ * frequencies, so that recent activity outweighs older one. Counters are updated lock-free, and may be read while being
+ * updated.
+ */
+public final class CountMinSketch {
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = { 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f };
+    private final int width;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param width - the number of counters in each row, rounded up to a power of two
+     */
+    public CountMinSketch(int width) {
+        this.width = Integer.highestOneBit(Math.max(2, width) * 2 - 1);
+        this.counters = new AtomicLongArray(DEPTH * this.width);
+    }
+
+    public void increment(String key) {
+        this.add(key, 1);
+    }
+
+    /**
+     * Adds a count to a key, in each of its counters
+     * @param key - the recorded key
+     * @param count - the count to be added
+     */
+    public void add(String key, long count) {
+        for(int row = 0; row < DEPTH; row++){
+            counters.addAndGet(this.indexOf(key, row), count);
+        }
+    }
+
+    /**
+     * Estimates how often a key was recorded, since the counters were last aged
+     * @param key - the recorded key
+     * @return the estimated frequency, which is never below the actual one
+     */
+    public long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+
+        for(int row = 0; row < DEPTH; row++){
+            estimate = Math.min(estimate, counters.get(this.indexOf(key, row)));
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Ages the recorded frequencies, by halving every counter
+     */
+    public void halve() {
+        for(int i = 0; i < counters.length(); i++){
+            counters.getAndUpdate(i, counter -> counter >>> 1);
+        }
+    }
+
+    /**
+     * Auxiliary method that gets the position of the counter of a key in a row, by spreading the key's hash code with
+     * the row's seed
+     * @param key - the recorded key
+     * @param row - the row of the counter
+     * @return the position of the counter in the counters array
+     */
+    private int indexOf(String key, int row) {
+        int hash = key.hashCode() * SEEDS[row];
+        hash ^= hash >>> 16;
+
+        return row * width + (hash & (width - 1));
+    }
+}
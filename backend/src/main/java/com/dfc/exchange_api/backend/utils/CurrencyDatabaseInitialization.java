@@ -7,7 +7,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * This class defines a bean responsible for fetching the supported currencies from the external API, and then creating
- * the corresponding Currency domain entity instances on this API, storing them in the H2 in-memory database.
+ * the corresponding Currency domain entity instances on this API, storing them in the H2 database.
  * This process is done after the application initialization finishes, using CommandLineRunner, and the /symbols endpoint
  * of the external API.
  */
@@ -21,7 +21,7 @@ public class CurrencyDatabaseInitialization implements CommandLineRunner {
 
     /**
      * Will call the currencyService's fetchSupportedCurrencies() method at application startup, to ensure that all the
-     * supported currencies from the external API are saved in the in-memory database.
+     * supported currencies from the external API are saved in the database.
      * @param args
      * @throws Exception
      */
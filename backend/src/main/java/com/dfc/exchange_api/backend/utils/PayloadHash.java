@@ -0,0 +1,43 @@
+package com.dfc.exchange_api.backend.utils;
+
+/**
+ * Incremental 64-bit FNV-1a hash of a decoded External API payload, used to detect that a response is unchanged since
+ * it was last processed, without keeping, nor comparing, the previous payload
+ */
+public final class PayloadHash {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private long hash = OFFSET_BASIS;
+
+    public PayloadHash add(String value) {
+        if(value != null){
+            for(int i = 0; i < value.length(); i++){
+                this.addByte(value.charAt(i) >>> 8);
+                this.addByte(value.charAt(i));
+            }
+        }
+
+        // Separating consecutive values, so that "AB", "C" and "A", "BC" hash differently
+        this.addByte(value == null ? 0xfe : 0xff);
+        return this;
+    }
+
+    public PayloadHash add(double value) {
+        long bits = Double.doubleToLongBits(value);
+
+        for(int shift = 56; shift >= 0; shift -= 8){
+            this.addByte((int) (bits >>> shift));
+        }
+
+        return this;
+    }
+
+    public long get() {
+        return hash;
+    }
+
+    private void addByte(int value) {
+        hash ^= value & 0xff;
+        hash *= PRIME;
+    }
+}
@@ -0,0 +1,76 @@
+package com.dfc.exchange_api.backend.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * This class defines a bean that, while running on virtual threads, checks that nothing pins a virtual thread to its
+ * carrier thread, such as blocking inside a synchronized block, which would cap the concurrency of the application at
+ * the number of carrier threads again. It streams the JFR events recorded whenever a virtual thread stays pinned for
+ * longer than the configured threshold, and logs where it happened.
+ */
+@Component
+@ConditionalOnProperty(name = "threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+    @Value("${threads.virtual.pinned.threshold.millis}")
+    private long PINNED_THRESHOLD_MILLIS;
+    private final AtomicLong pinnedEvents = new AtomicLong();
+    private RecordingStream recordingStream;
+
+    /**
+     * Starts streaming the pinned virtual thread events in the background
+     */
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(PINNED_THRESHOLD_MILLIS))
+                .withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::reportPinnedThread);
+        recordingStream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        recordingStream.close();
+    }
+
+    /**
+     * Gets the number of times a virtual thread was found pinned since startup
+     * @return the number of pinned virtual thread events
+     */
+    public long getPinnedEvents() {
+        return pinnedEvents.get();
+    }
+
+    /**
+     * Auxiliary method that logs where a virtual thread was pinned to its carrier thread
+     * @param event - the recorded pinned virtual thread event
+     */
+    private void reportPinnedThread(RecordedEvent event) {
+        pinnedEvents.incrementAndGet();
+
+        String frames = event.getStackTrace() == null ? "unknown" : event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(RecordedFrame::getMethod)
+                .map(method -> method.getType().getName() + "." + method.getName())
+                .collect(Collectors.joining(" <- "));
+
+        LOGGER.warn("A virtual thread was pinned to its carrier thread for {} ms at: {}", event.getDuration().toMillis(), frames);
+    }
+}
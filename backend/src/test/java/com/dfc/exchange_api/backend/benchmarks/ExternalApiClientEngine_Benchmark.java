@@ -0,0 +1,147 @@
+package com.dfc.exchange_api.backend.benchmarks;
+
+import com.dfc.exchange_api.backend.config.ExternalApiClientConfig;
+import com.dfc.exchange_api.backend.models.ExchangeRateDTO;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput and latency of the HTTP client engines to the External API against a local stub, which answers
+ * every /latest request with a realistic, gzip-compressed, body after a fixed delay. It is skipped by the regular build,
+ * and run on demand with:
+ * mvn test -Dtest=ExternalApiClientEngine_Benchmark -Dbenchmark=true [-Dbenchmark.requests=5000] [-Dbenchmark.concurrency=32]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ExternalApiClientEngine_Benchmark {
+    private static final int WARMUP_REQUESTS = 500;
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 5000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 32);
+    private static final long STUB_DELAY_MILLIS = Long.getLong("benchmark.stub.delay.millis", 5);
+    private static MockWebServer stubServer;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        String body = IntStream.range(0, 170)
+                .mapToObj(i -> String.format(Locale.ROOT, "\"C%02d\": %.6f", i, 1 + i * 0.731))
+                .collect(Collectors.joining(", ", "{\"success\": true, \"base\": \"EUR\", \"date\": \"2023-08-17\", \"rates\": {", "}}"));
+        Buffer compressedBody = gzip(body);
+
+        stubServer = new MockWebServer();
+        stubServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setHeadersDelay(STUB_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                String acceptEncoding = request.getHeader("Accept-Encoding");
+
+                return acceptEncoding != null && acceptEncoding.contains("gzip")
+                        ? response.setHeader("Content-Encoding", "gzip").setBody(compressedBody.clone())
+                        : response.setBody(body);
+            }
+        });
+        stubServer.start();
+    }
+
+    @AfterAll
+    static void stopStub() throws IOException {
+        stubServer.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {ExternalApiClientConfig.REACTOR_NETTY_ENGINE, ExternalApiClientConfig.JDK_ENGINE})
+    void benchmarkEngine(String engine) {
+        ExternalApiClientConfig clientConfig = new ExternalApiClientConfig();
+        ReflectionTestUtils.setField(clientConfig, "ENGINE", engine);
+        ReflectionTestUtils.setField(clientConfig, "MAX_CONNECTIONS", CONCURRENCY);
+        ReflectionTestUtils.setField(clientConfig, "PENDING_ACQUIRE_MAX", REQUESTS);
+        ReflectionTestUtils.setField(clientConfig, "PENDING_ACQUIRE_TIMEOUT_MILLIS", 10000L);
+        ReflectionTestUtils.setField(clientConfig, "MAX_IDLE_MILLIS", 30000L);
+        ReflectionTestUtils.setField(clientConfig, "CONNECT_TIMEOUT_MILLIS", 2000L);
+        ReflectionTestUtils.setField(clientConfig, "WRITE_TIMEOUT_MILLIS", 2000L);
+        ReflectionTestUtils.setField(clientConfig, "RESPONSE_TIMEOUT_MILLIS", 5000L);
+        ReflectionTestUtils.setField(clientConfig, "COMPRESSION_ENABLED", true);
+
+        WebClient webClient = clientConfig.externalApiWebClient();
+        URI uri = stubServer.url("/latest?base=EUR").uri();
+
+        try{
+            this.run(webClient, uri, WARMUP_REQUESTS);
+
+            long startedAt = System.nanoTime();
+            long[] latencies = this.run(webClient, uri, REQUESTS);
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf(Locale.ROOT, "%-14s %6d requests, concurrency %3d: %8.1f req/s, p50 %6.2f ms, p99 %6.2f ms, max %6.2f ms%n",
+                    engine, REQUESTS, CONCURRENCY, REQUESTS / elapsedSeconds,
+                    this.percentile(latencies, 0.50), this.percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+
+            assertThat(latencies).hasSize(REQUESTS);
+        } finally {
+            clientConfig.closeConnections();
+        }
+    }
+
+    /**
+     * Auxiliary method that sends the given number of requests to the stub, CONCURRENCY at a time
+     * @return the latency of each request, in nanoseconds
+     */
+    private long[] run(WebClient webClient, URI uri, int requests) {
+        return Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    long startedAt = System.nanoTime();
+
+                    return webClient.get()
+                            .uri(uri)
+                            .retrieve()
+                            .bodyToMono(ExchangeRateDTO.class)
+                            .map(response -> System.nanoTime() - startedAt);
+                }), CONCURRENCY)
+                .collectList()
+                .block()
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private double percentile(long[] sortedLatencies, double percentile) {
+        return sortedLatencies[(int) Math.ceil(sortedLatencies.length * percentile) - 1] / 1e6;
+    }
+
+    private static Buffer gzip(String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try(GZIPOutputStream outputStream = new GZIPOutputStream(compressed)){
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new Buffer().write(compressed.toByteArray());
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -21,6 +22,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -127,6 +129,19 @@ class Test_CacheController_withMockService_BT_Tests {
                 .andExpect(jsonPath("$.evictions", is(1)));
     }
 
+    @Test
+    void whenGetDemandRanking_thenReturnRankingInOrder() throws Exception {
+        Map<String, Long> ranking = new LinkedHashMap<>();
+        ranking.put("USD", 40L);
+        ranking.put("GBP", 7L);
+
+        when(cacheService.getDemandRanking()).thenReturn(ranking);
+        mockMvc.perform(
+                        get("/api/v1/cache/statistics/demand").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"USD\":40,\"GBP\":7}"));
+    }
+
     @Test
     void whenGetAllStatistics_cacheExists_thenThrowException() throws Exception {
         when(cacheService.getAllStatistics()).thenThrow(CacheNotFoundException.class);
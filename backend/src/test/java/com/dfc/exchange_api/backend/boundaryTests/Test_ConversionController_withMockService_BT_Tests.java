@@ -3,6 +3,11 @@ package com.dfc.exchange_api.backend.boundaryTests;
 import com.dfc.exchange_api.backend.controllers.ConversionController;
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
+import com.dfc.exchange_api.backend.models.ConversionItem;
+import com.dfc.exchange_api.backend.models.ConversionItemResult;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
 import com.dfc.exchange_api.backend.services.ConversionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,14 +15,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ConversionController.class)
@@ -35,14 +52,24 @@ class Test_ConversionController_withMockService_BT_Tests {
         returnedExchanges.put("GIP", 42.759);
         returnedExchanges.put("ANG", 98.0237);
 
-        when(conversionService.getConversionFromCurrency("EUR", "USD,GIP,ANG", 50.0)).thenReturn(returnedExchanges);
+        Instant fetchedAt = Instant.now().minusSeconds(30);
+        RateSnapshot snapshot = new RateSnapshot(3L, fetchedAt, RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0)));
 
-        mockMvc.perform(
+        when(conversionService.getConversionFromCurrency("EUR", "USD,GIP,ANG", 50.0, null)).thenReturn(Mono.just(new RateResult<>(returnedExchanges, snapshot)));
+
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "EUR")
                                 .param("to", "USD,GIP,ANG")
                                 .param("amount", "50.0").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
+                .andExpect(header().exists("Age"))
+                .andExpect(header().string("X-Rates-Fetched-At", fetchedAt.toString()))
+                .andExpect(header().string("X-Rates-Version", "3"))
                 .andExpect(jsonPath("$.USD", is(54.4212)))
                 .andExpect(jsonPath("$.GIP", is(42.759)))
                 .andExpect(jsonPath("$.ANG", is(98.0237)));
@@ -50,40 +77,52 @@ class Test_ConversionController_withMockService_BT_Tests {
 
     @Test
     void whenGettingConversionForMany_withValidInput_externalAPIFailure_thenThrowException() throws Exception {
-        when(conversionService.getConversionFromCurrency("EUR", "USD,GIP,ANG", 50.0)).thenThrow(ExternalApiConnectionError.class);
+        when(conversionService.getConversionFromCurrency("EUR", "USD,GIP,ANG", 50.0, null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "EUR")
                                 .param("to", "USD,GIP,ANG")
                                 .param("amount", "50.0")
                                 .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isServiceUnavailable());
     }
 
     @Test
     void whenGettingConversionForMany_withInvalidFromInput_thenThrowException() throws Exception {
-        when(conversionService.getConversionFromCurrency("ZZZ", "USD,GIP,ANG", 50.0)).thenThrow(InvalidCurrencyException.class);
+        when(conversionService.getConversionFromCurrency("ZZZ", "USD,GIP,ANG", 50.0, null)).thenReturn(Mono.error(new InvalidCurrencyException("Invalid currency code provided!")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "ZZZ")
                                 .param("to", "USD,GIP,ANG")
                                 .param("amount", "50.0")
                                 .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 
     @Test
     void whenGettingConversionForMany_withInvalidToInput_thenThrowException() throws Exception {
-        when(conversionService.getConversionFromCurrency("USD", "ZZZ,GIP,ANG", 50.0)).thenThrow(InvalidCurrencyException.class);
+        when(conversionService.getConversionFromCurrency("USD", "ZZZ,GIP,ANG", 50.0, null)).thenReturn(Mono.error(new InvalidCurrencyException("Invalid currency code provided!")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "USD")
                                 .param("to", "ZZZ,GIP,ANG")
                                 .param("amount", "50.0")
                                 .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 
@@ -103,50 +142,67 @@ class Test_ConversionController_withMockService_BT_Tests {
         Map<String, Double> returnedConversions = new HashMap<>();
         returnedConversions.put("USD", 54.4212);
 
-        when(conversionService.getConversionFromCurrency("EUR", "USD", 50.0)).thenReturn(returnedConversions);
+        when(conversionService.getConversionFromCurrency("EUR", "USD", 50.0, null)).thenReturn(Mono.just(new RateResult<>(returnedConversions, null)));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "EUR")
                                 .param("to", "USD")
                                 .param("amount", "50.0").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Age"))
                 .andExpect(jsonPath("$.USD", is(54.4212)));
     }
 
     @Test
     void whenGettingConversionForSpecificCurrency_withValidInput_externalAPIFailure_thenThrowException() throws Exception {
-        when(conversionService.getConversionFromCurrency("EUR", "USD", 50.0)).thenThrow(ExternalApiConnectionError.class);
+        when(conversionService.getConversionFromCurrency("EUR", "USD", 50.0, null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "EUR")
                                 .param("to", "USD")
                                 .param("amount", "50.0").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isServiceUnavailable());
     }
 
     @Test
     void whenGettingConversionForSpecificCurrency_withInvalidFromInput_thenThrowException() throws Exception {
-        when(conversionService.getConversionFromCurrency("ZZZ", "USD", 50.0)).thenThrow(InvalidCurrencyException.class);
+        when(conversionService.getConversionFromCurrency("ZZZ", "USD", 50.0, null)).thenReturn(Mono.error(new InvalidCurrencyException("Invalid currency code provided!")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "ZZZ")
                                 .param("to", "USD")
                                 .param("amount", "50.0").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 
     @Test
     void whenGettingConversionForSpecificCurrency_withInvalidToInput_thenThrowException() throws Exception {
-        when(conversionService.getConversionFromCurrency("USD", "ZZZ", 50.0)).thenThrow(InvalidCurrencyException.class);
+        when(conversionService.getConversionFromCurrency("USD", "ZZZ", 50.0, null)).thenReturn(Mono.error(new InvalidCurrencyException("Invalid currency code provided!")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/convert")
                                 .param("from", "USD")
                                 .param("to", "ZZZ")
                                 .param("amount", "50.0").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 
@@ -160,4 +216,60 @@ class Test_ConversionController_withMockService_BT_Tests {
                                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void whenGettingConversionForMany_deadlineExceeded_thenListMissingCurrencies() throws Exception {
+        RateSnapshot snapshot = new RateSnapshot(3L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.088424)));
+
+        when(conversionService.getConversionFromCurrency("EUR", "USD,GIP,ANG", 50.0, 150L)).thenReturn(Mono.just(
+                new RateResult<>(Map.of("USD", 54.4212), snapshot, List.of("ANG", "GIP"))));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        get("/api/v1/convert")
+                                .param("from", "EUR")
+                                .param("to", "USD,GIP,ANG")
+                                .param("amount", "50.0")
+                                .header("X-Request-Deadline-Millis", 150).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rates-Missing", "ANG,GIP"))
+                .andExpect(jsonPath("$.USD", is(54.4212)));
+    }
+
+    @Test
+    void whenConvertingBatch_withValidInput_thenReturnResultsInOrder() throws Exception {
+        RateSnapshot snapshot = new RateSnapshot(3L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0)));
+        ConversionItem invalidItem = new ConversionItem("XYZ", "EUR", 5.0);
+
+        when(conversionService.getConversionForBatch(anyList(), isNull())).thenReturn(Mono.just(new RateResult<>(List.of(
+                new ConversionItemResult("EUR", "USD", 50.0, 54.4212, null),
+                ConversionItemResult.failed(invalidItem, "Invalid currency code XYZ provided!")), snapshot)));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        post("/api/v1/convert/batch")
+                                .content("[{\"from\":\"EUR\",\"to\":\"USD\",\"amount\":50.0},{\"from\":\"XYZ\",\"to\":\"EUR\",\"amount\":5.0}]")
+                                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rates-Version", "3"))
+                .andExpect(jsonPath("$[0].value", is(54.4212)))
+                .andExpect(jsonPath("$[0]", not(hasKey("error"))))
+                .andExpect(jsonPath("$[1].from", is("XYZ")))
+                .andExpect(jsonPath("$[1].error", is("Invalid currency code XYZ provided!")));
+    }
+
+    @Test
+    void whenConvertingBatch_withEmptyInput_thenThrowException() throws Exception {
+        mockMvc.perform(
+                        post("/api/v1/convert/batch")
+                                .content("[]")
+                                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
 }
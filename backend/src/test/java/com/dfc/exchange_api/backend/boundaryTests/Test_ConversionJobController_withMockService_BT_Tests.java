@@ -0,0 +1,107 @@
+package com.dfc.exchange_api.backend.boundaryTests;
+
+import com.dfc.exchange_api.backend.controllers.ConversionJobController;
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotCompletedException;
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotFoundException;
+import com.dfc.exchange_api.backend.models.ConversionJob;
+import com.dfc.exchange_api.backend.models.ConversionJob.Status;
+import com.dfc.exchange_api.backend.services.ConversionJobService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ConversionJobController.class)
+class Test_ConversionJobController_withMockService_BT_Tests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    public ConversionJobService conversionJobService;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenSubmittingJob_withCsvFile_thenReturnAccepted() throws Exception {
+        ConversionJob job = new ConversionJob("job-1", Format.CSV, "records.csv", 10, Instant.now());
+
+        when(conversionJobService.submit(any(), eq("records.csv"), eq(Format.CSV))).thenReturn(job);
+
+        mockMvc.perform(multipart("/api/v1/convert/jobs")
+                        .file(new MockMultipartFile("file", "records.csv", "application/octet-stream", "EUR,USD,1\n".getBytes())))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/convert/jobs/job-1"))
+                .andExpect(jsonPath("$.id", is("job-1")))
+                .andExpect(jsonPath("$.status", is("QUEUED")))
+                .andExpect(jsonPath("$.progress", is(0.0)));
+    }
+
+    @Test
+    void whenGettingJob_running_thenReturnProgress() throws Exception {
+        ConversionJob job = new ConversionJob("job-1", Format.NDJSON, "records.ndjson", 200, Instant.now());
+        job.setStatus(Status.RUNNING);
+        job.setProcessedBytes(50);
+        job.setProcessedRecords(3);
+
+        when(conversionJobService.getJob("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/api/v1/convert/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("RUNNING")))
+                .andExpect(jsonPath("$.processedRecords", is(3)))
+                .andExpect(jsonPath("$.progress", is(25.0)));
+    }
+
+    @Test
+    void whenGettingJob_unknown_thenReturnNotFound() throws Exception {
+        when(conversionJobService.getJob("unknown")).thenThrow(new ConversionJobNotFoundException("Conversion job unknown not found"));
+
+        mockMvc.perform(get("/api/v1/convert/jobs/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenGettingJobResult_completed_thenDownloadResultFile() throws Exception {
+        ConversionJob job = new ConversionJob("job-1", Format.CSV, "records.csv", 10, Instant.now());
+        job.setStatus(Status.COMPLETED);
+        Path result = Files.writeString(directory.resolve("job-1.out"), "from,to,amount,value,error\nEUR,USD,1.0,2.0,\n");
+
+        when(conversionJobService.getJob("job-1")).thenReturn(job);
+        when(conversionJobService.getResult("job-1")).thenReturn(result);
+
+        mockMvc.perform(get("/api/v1/convert/jobs/job-1/result"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"job-1.csv\""))
+                .andExpect(content().string("from,to,amount,value,error\nEUR,USD,1.0,2.0,\n"));
+    }
+
+    @Test
+    void whenGettingJobResult_notCompleted_thenReturnConflict() throws Exception {
+        when(conversionJobService.getJob("job-1")).thenReturn(new ConversionJob("job-1", Format.CSV, "records.csv", 10, Instant.now()));
+        when(conversionJobService.getResult("job-1")).thenThrow(new ConversionJobNotCompletedException("Conversion job job-1 is queued"));
+
+        mockMvc.perform(get("/api/v1/convert/jobs/job-1/result"))
+                .andExpect(status().isConflict());
+    }
+}
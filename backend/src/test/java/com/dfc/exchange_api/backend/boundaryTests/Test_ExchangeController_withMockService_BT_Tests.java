@@ -3,6 +3,9 @@ package com.dfc.exchange_api.backend.boundaryTests;
 import com.dfc.exchange_api.backend.controllers.ExchangeController;
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
 import com.dfc.exchange_api.backend.services.ExchangeService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,14 +13,23 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ExchangeController.class)
@@ -35,79 +47,240 @@ class Test_ExchangeController_withMockService_BT_Tests {
         returnedExchanges.put("GIP", 0.85518);
         returnedExchanges.put("ANG", 1.960474);
 
-        when(exchangeService.getExchangeRateForAll("EUR")).thenReturn(returnedExchanges);
+        Instant fetchedAt = Instant.now().minusSeconds(30);
+        RateSnapshot snapshot = new RateSnapshot(3L, fetchedAt, RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0)));
 
-        mockMvc.perform(
+        when(exchangeService.getExchangeRateForAll("EUR", null)).thenReturn(Mono.just(new RateResult<>(returnedExchanges, snapshot)));
+
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/exchange")
                                 .param("from", "EUR").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
+                .andExpect(header().exists("Age"))
+                .andExpect(header().string("X-Rates-Fetched-At", fetchedAt.toString()))
+                .andExpect(header().string("X-Rates-Version", "3"))
+                .andExpect(header().doesNotExist("X-Rates-Stale"))
                 .andExpect(jsonPath("$.USD", is(1.088424)))
                 .andExpect(jsonPath("$.GIP", is(0.85518)))
                 .andExpect(jsonPath("$.ANG", is(1.960474)));
     }
 
+    @Test
+    void whenGettingExchangeRateForAll_staleRates_thenMarkResponseStale() throws Exception {
+        Instant fetchedAt = Instant.now().minusSeconds(600);
+        RateSnapshot snapshot = new RateSnapshot(3L, fetchedAt, fetchedAt.plusSeconds(60), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0)));
+
+        when(exchangeService.getExchangeRateForAll("EUR", null)).thenReturn(Mono.just(new RateResult<>(Map.of("USD", 1.088424), snapshot)));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        get("/api/v1/exchange")
+                                .param("from", "EUR").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rates-Stale", "true"))
+                .andExpect(jsonPath("$.USD", is(1.088424)));
+    }
+
     @Test
     void whenGettingExchangeRateForAll_withValidInput_externalAPIFailure_thenThrowException() throws Exception {
-        when(exchangeService.getExchangeRateForAll("EUR")).thenThrow(ExternalApiConnectionError.class);
+        when(exchangeService.getExchangeRateForAll("EUR", null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/exchange")
                                 .param("from", "EUR").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isServiceUnavailable());
     }
 
     @Test
     void whenGettingExchangeRateForAll_withInvalidInput_thenThrowException() throws Exception {
-        when(exchangeService.getExchangeRateForAll("ZZZ")).thenThrow(InvalidCurrencyException.class);
+        when(exchangeService.getExchangeRateForAll("ZZZ", null)).thenReturn(Mono.error(new InvalidCurrencyException("Invalid currency code provided!")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/exchange")
                                 .param("from", "ZZZ").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 
     @Test
     void whenGettingExchangeRateForSpecificCurrency_withValidInput_thenReturnOK() throws Exception {
-        when(exchangeService.getExchangeRateForSpecificCurrency("EUR", "USD")).thenReturn(1.088424);
+        when(exchangeService.getExchangeRateForSpecificCurrency("EUR", "USD", null)).thenReturn(Mono.just(new RateResult<>(1.088424,
+                new RateSnapshot(3L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.088424))))));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/exchange")
                                 .param("from", "EUR")
                                 .param("to", "USD").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Rates-Version", "3"))
                 .andExpect(jsonPath("$.USD", is(1.088424)));
     }
 
     @Test
     void whenGettingExchangeRateForSpecificCurrency_withValidInput_externalAPIFailure_thenThrowException() throws Exception {
-        when(exchangeService.getExchangeRateForSpecificCurrency("EUR", "USD")).thenThrow(ExternalApiConnectionError.class);
+        when(exchangeService.getExchangeRateForSpecificCurrency("EUR", "USD", null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/exchange")
                                 .param("from", "EUR")
                                 .param("to", "USD").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isServiceUnavailable());
     }
 
     @Test
     void whenGettingExchangeRateForSpecificCurrency_withInvalidFromInput_thenThrowException() throws Exception {
-        when(exchangeService.getExchangeRateForSpecificCurrency("ZZZ", "USD")).thenThrow(InvalidCurrencyException.class);
+        when(exchangeService.getExchangeRateForSpecificCurrency("ZZZ", "USD", null)).thenReturn(Mono.error(new InvalidCurrencyException("Invalid currency code provided!")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/exchange")
                                 .param("from", "ZZZ")
                                 .param("to", "USD").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 
     @Test
     void whenGettingExchangeRateForSpecificCurrency_withInvalidToInput_thenThrowException() throws Exception {
-        when(exchangeService.getExchangeRateForSpecificCurrency("EUR", "ZZZ")).thenThrow(InvalidCurrencyException.class);
+        when(exchangeService.getExchangeRateForSpecificCurrency("EUR", "ZZZ", null)).thenReturn(Mono.error(new InvalidCurrencyException("Invalid currency code provided!")));
 
-        mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         get("/api/v1/exchange")
                                 .param("from", "EUR")
                                 .param("to", "ZZZ").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenGettingExchangeRateForAll_deadlineExceeded_thenListMissingCurrencies() throws Exception {
+        RateSnapshot snapshot = new RateSnapshot(3L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.088424)));
+
+        when(exchangeService.getExchangeRateForAll("EUR", 200L)).thenReturn(Mono.just(
+                new RateResult<>(Map.of("USD", 1.088424), snapshot, List.of("GBP", "SEK"))));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        get("/api/v1/exchange")
+                                .param("from", "EUR")
+                                .header("X-Request-Deadline-Millis", 200).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rates-Missing", "GBP,SEK"))
+                .andExpect(jsonPath("$.USD", is(1.088424)));
+    }
+
+    @Test
+    void whenGettingExchangeRateForSpecificCurrency_deadlineExceeded_thenReturnEmptyMapListingMissingCurrency() throws Exception {
+        RateSnapshot snapshot = new RateSnapshot(3L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0)));
+
+        when(exchangeService.getExchangeRateForSpecificCurrency("EUR", "GBP", 200L)).thenReturn(Mono.just(
+                new RateResult<>(null, snapshot, List.of("GBP"))));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        get("/api/v1/exchange")
+                                .param("from", "EUR")
+                                .param("to", "GBP")
+                                .header("X-Request-Deadline-Millis", 200).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rates-Missing", "GBP"))
+                .andExpect(content().string("{}"));
+    }
+
+    @Test
+    void whenGettingExchangeRate_nonPositiveDeadline_thenReturnBadRequest() throws Exception {
+        mockMvc.perform(
+                        get("/api/v1/exchange")
+                                .param("from", "EUR")
+                                .header("X-Request-Deadline-Millis", 0).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenGettingExchangeRateForCurrencies_withValidInput_thenReturnOK() throws Exception {
+        Map<String, Double> exchangeRates = new LinkedHashMap<>();
+        exchangeRates.put("USD", 1.088424);
+        exchangeRates.put("GBP", 0.86);
+
+        when(exchangeService.getExchangeRateForCurrencies("EUR", List.of("USD", "GBP"), null)).thenReturn(Mono.just(new RateResult<>(exchangeRates,
+                new RateSnapshot(3L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.088424, "GBP", 0.86))))));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        get("/api/v1/exchange")
+                                .param("from", "eur")
+                                .param("to", "usd, gbp").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.USD", is(1.088424)))
+                .andExpect(jsonPath("$.GBP", is(0.86)));
+    }
+
+    @Test
+    void whenGettingExchangeRateForPairs_withValidInput_thenReturnOK() throws Exception {
+        Map<String, Double> exchangeRates = new LinkedHashMap<>();
+        exchangeRates.put("USDEUR", 0.918759);
+
+        when(exchangeService.getExchangeRateForPairs(List.of("USDEUR", "GBPJPY"), null)).thenReturn(Mono.just(new RateResult<>(exchangeRates,
+                new RateSnapshot(3L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.088424))), List.of("GBPJPY"))));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        get("/api/v1/exchange")
+                                .param("pairs", "USDEUR,GBPJPY").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rates-Missing", "GBPJPY"))
+                .andExpect(jsonPath("$.USDEUR", is(0.918759)));
+    }
+
+    @Test
+    void whenGettingExchangeRate_withBothFromAndPairs_thenThrowException() throws Exception {
+        MvcResult asyncResult = mockMvc.perform(
+                        get("/api/v1/exchange")
+                                .param("from", "EUR")
+                                .param("pairs", "USDEUR").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 }
@@ -0,0 +1,100 @@
+package com.dfc.exchange_api.backend.boundaryTests;
+
+import com.dfc.exchange_api.backend.controllers.StreamingConversionController;
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.services.StreamingConversionService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = StreamingConversionController.class)
+class Test_StreamingConversionController_withMockService_BT_Tests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    public StreamingConversionService streamingConversionService;
+
+    @Test
+    void whenConvertingStream_withCsvInput_thenStreamCsvResults() throws Exception {
+        Instant fetchedAt = Instant.now().minusSeconds(30);
+        RateSnapshot snapshot = new RateSnapshot(5L, fetchedAt, RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.25)));
+
+        when(streamingConversionService.getRateSnapshot(null)).thenReturn(Mono.just(snapshot));
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("from,to,amount,value,error\nEUR,USD,2.0,2.5,\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(streamingConversionService).convert(any(), any(), eq(Format.CSV), eq(snapshot));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        post("/api/v1/convert/stream")
+                                .content("EUR,USD,2\n")
+                                .contentType("text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The snapshot is loaded without holding the server thread, and the stream is then written asynchronously
+        MvcResult streamResult = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(streamResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("X-Rates-Version", "5"))
+                .andExpect(header().string("X-Rates-Fetched-At", fetchedAt.toString()))
+                .andExpect(content().string("from,to,amount,value,error\nEUR,USD,2.0,2.5,\n"));
+    }
+
+    @Test
+    void whenConvertingStream_externalAPIFailure_thenThrowExceptionBeforeReadingStream() throws Exception {
+        when(streamingConversionService.getRateSnapshot(null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+
+        MvcResult asyncResult = mockMvc.perform(
+                        post("/api/v1/convert/stream")
+                                .content("{\"from\":\"EUR\",\"to\":\"USD\",\"amount\":2.0}\n")
+                                .contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isServiceUnavailable());
+
+        verify(streamingConversionService, never()).convert(any(), any(), any(), any());
+    }
+
+    @Test
+    void whenConvertingStream_withUnsupportedContentType_thenReturnUnsupportedMediaType() throws Exception {
+        mockMvc.perform(
+                        post("/api/v1/convert/stream")
+                                .content("[]")
+                                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
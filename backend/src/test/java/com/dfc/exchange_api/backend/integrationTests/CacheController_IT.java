@@ -1,5 +1,6 @@
 package com.dfc.exchange_api.backend.integrationTests;
 
+import com.dfc.exchange_api.backend.services.RateStore;
 import io.restassured.RestAssured;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,12 +10,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "snapshot.file.enabled=false")
 @AutoConfigureTestDatabase
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class CacheController_IT {
@@ -27,6 +31,9 @@ class CacheController_IT {
     private String CACHE_NAME;
     private Cache exchangeRateCache;
 
+    @Autowired
+    RateStore rateStore;
+
     @LocalServerPort
     int randomServerPort;
 
@@ -38,14 +45,14 @@ class CacheController_IT {
     @AfterEach
     void tearDown(){
         this.exchangeRateCache.clear();
+        this.rateStore.clear();
         this.exchangeRateCache = null;
     }
 
     @Test
     void whenGetAllEntries_cacheFull_thenReturnOK(){
         // Adding entries to the cache
-        exchangeRateCache.put("EUR_USD", 1.088186);
-        exchangeRateCache.put("EUR_ANG", 1.965639);
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.088186, "ANG", 1.965639));
 
         RestAssured.given().contentType("application/json")
                 .when()
@@ -72,8 +79,7 @@ class CacheController_IT {
     @Test
     void whenGetAllKeys_cacheFull_thenReturnOK() {
         // Adding entries to the cache
-        exchangeRateCache.put("EUR_USD", 1.088186);
-        exchangeRateCache.put("EUR_ANG", 1.965639);
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.088186, "ANG", 1.965639));
 
         RestAssured.given().contentType("application/json")
                 .when()
@@ -98,8 +104,7 @@ class CacheController_IT {
     @Test
     void whenGetSingleValue_cacheFull_thenReturnOK() throws Exception {
         // Adding entries to the cache
-        exchangeRateCache.put("EUR_USD", 1.088186);
-        exchangeRateCache.put("EUR_ANG", 1.965639);
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.088186, "ANG", 1.965639));
 
         RestAssured.given().contentType("application/json")
                 .when()
@@ -120,8 +125,7 @@ class CacheController_IT {
     @Test
     void whenDeleteCache_cacheFull_thenReturnOK() throws Exception {
         // Adding entries to the cache
-        exchangeRateCache.put("EUR_USD", 1.088186);
-        exchangeRateCache.put("EUR_ANG", 1.965639);
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.088186, "ANG", 1.965639));
 
         RestAssured.given().contentType("application/json")
                 .when()
@@ -130,20 +134,18 @@ class CacheController_IT {
                 .statusCode(200);
 
         // Verify that the cache is indeed empty
-        assertThat(this.exchangeRateCache.get("EUR_USD")).isNull();
-        assertThat(this.exchangeRateCache.get("EUR_ANG")).isNull();
+        assertThat(this.rateStore.getVersion()).isZero();
     }
 
     @Test
     @Order(2)
     void whenGetAllStatistics_cacheWithStats_thenReturnOK() throws Exception {
         // Adding entries to the cache
-        exchangeRateCache.put("EUR_USD", 1.088186);
-        exchangeRateCache.put("EUR_ANG", 1.965639);
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.088186, "ANG", 1.965639));
 
-        exchangeRateCache.get("EUR_USD");
-        exchangeRateCache.get("EUR_ANG");
-        exchangeRateCache.get("EUR_GBP");
+        rateStore.getSnapshot();
+        rateStore.getSnapshot();
+        ((CaffeineCache) exchangeRateCache).getNativeCache().getIfPresent("GBP");
 
         RestAssured.given().contentType("application/json")
                 .when()
@@ -153,7 +155,8 @@ class CacheController_IT {
                 .assertThat()
                 .body("hits", equalTo(2)).and()
                 .body("misses", equalTo(1)).and()
-                .body("evictions", equalTo(0)).and();
+                .body("evictions", equalTo(0)).and()
+                .body("version", greaterThan(0));
     }
 
     @Test
@@ -167,6 +170,7 @@ class CacheController_IT {
                 .assertThat()
                 .body("hits", equalTo(0)).and()
                 .body("misses", equalTo(0)).and()
-                .body("evictions", equalTo(0)).and();
+                .body("evictions", equalTo(0)).and()
+                .body("version", equalTo(0));
     }
 }
@@ -1,5 +1,6 @@
 package com.dfc.exchange_api.backend.integrationTests;
 
+import com.dfc.exchange_api.backend.services.RateStore;
 import io.restassured.RestAssured;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,11 +14,13 @@ import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasKey;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "snapshot.file.enabled=false")
 @AutoConfigureTestDatabase
 class ConversionController_IT {
     private final static String BASE_URL = "http://localhost:";
@@ -32,6 +35,9 @@ class ConversionController_IT {
     private String CACHE_NAME;
     private Cache exchangeRateCache;
 
+    @Autowired
+    RateStore rateStore;
+
     @BeforeEach
     void setUp(){
         this.exchangeRateCache = cacheManager.getCache(CACHE_NAME);
@@ -40,6 +46,7 @@ class ConversionController_IT {
     @AfterEach
     void tearDown(){
         this.exchangeRateCache.clear();
+        this.rateStore.clear();
         this.exchangeRateCache = null;
     }
 
@@ -56,13 +63,13 @@ class ConversionController_IT {
                 .body("$", hasKey("GBP"));
 
         // Verify that values were added to the Cache
-        assertThat(this.exchangeRateCache.get("EUR_USD")).isNotNull();
-        assertThat(this.exchangeRateCache.get("EUR_GBP")).isNotNull();
+        assertThat(this.rateStore.getSnapshot().getRate("EUR", "USD")).isNotNaN();
+        assertThat(this.rateStore.getSnapshot().getRate("EUR", "GBP")).isNotNaN();
     }
 
     @Test
     void whenGettingConversionForVarious_withValidInput_InCache_thenSearchInCache() {
-        this.exchangeRateCache.put("EUR_USD", 100.88186);
+        this.rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 100.88186, "GBP", 0.86));
 
         RestAssured.given().contentType("application/json")
                 .queryParams("from", "EUR", "to", "USD,GBP", "amount", "50.0")
@@ -73,7 +80,8 @@ class ConversionController_IT {
                 .assertThat()
                 .body("$", hasKey("USD")).and()
                 .body("$", hasKey("GBP")).and()
-                .body("USD", equalTo(5044.093F));
+                .body("USD", equalTo(5044.093F)).and()
+                .body("GBP", equalTo(43.0F));
     }
 
     @Test
@@ -120,12 +128,12 @@ class ConversionController_IT {
                 .body("$", hasKey("USD"));
 
         // Verify that values were added to the Cache
-        assertThat(this.exchangeRateCache.get("EUR_USD")).isNotNull();
+        assertThat(this.rateStore.getSnapshot().getRate("EUR", "USD")).isNotNaN();
     }
 
     @Test
     void whenGettingConversionForSpecificCurrency_withValidInput_InCache_thenSearchInCache() {
-        this.exchangeRateCache.put("EUR_USD", 100.88186);
+        this.rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 100.88186));
 
         RestAssured.given().contentType("application/json")
                 .queryParams("from", "EUR", "to", "USD", "amount", "50.0")
@@ -1,6 +1,7 @@
 package com.dfc.exchange_api.backend.integrationTests;
 
 import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
 import io.restassured.RestAssured;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -12,7 +13,7 @@ import org.springframework.boot.test.web.server.LocalServerPort;
 import static org.hamcrest.Matchers.*;
 
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "snapshot.file.enabled=false")
 @AutoConfigureTestDatabase
 class CurrencyController_IT {
     private final static String BASE_URL = "http://localhost:";
@@ -23,10 +24,14 @@ class CurrencyController_IT {
     @Autowired
     CurrencyRepository currencyRepository;
 
+    @Autowired
+    CurrencyRegistry currencyRegistry;
+
     @Test
     void getSupportedCurrencies_withRepositoryEmpty() throws Exception {
         // Setting up Expectations
         currencyRepository.deleteAll();
+        currencyRegistry.rebuild(currencyRepository.findAll());
 
         RestAssured.given().contentType("application/json")
                 .when()
@@ -1,5 +1,6 @@
 package com.dfc.exchange_api.backend.integrationTests;
 
+import com.dfc.exchange_api.backend.services.RateStore;
 import io.restassured.RestAssured;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,10 +13,12 @@ import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 
+import java.util.Map;
+
 import static org.hamcrest.Matchers.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "snapshot.file.enabled=false")
 @AutoConfigureTestDatabase
 class ExchangeController_IT {
     private final static String BASE_URL = "http://localhost:";
@@ -27,6 +30,9 @@ class ExchangeController_IT {
     private String CACHE_NAME;
     private Cache exchangeRateCache;
 
+    @Autowired
+    RateStore rateStore;
+
     @LocalServerPort
     int randomServerPort;
 
@@ -38,6 +44,7 @@ class ExchangeController_IT {
     @AfterEach
     void tearDown(){
         this.exchangeRateCache.clear();
+        this.rateStore.clear();
         this.exchangeRateCache = null;
     }
 
@@ -49,17 +56,19 @@ class ExchangeController_IT {
                 .get(BASE_URL + randomServerPort + "/api/v1/exchange")
                 .then()
                 .statusCode(200)
+                .header("Age", notNullValue())
+                .header("X-Rates-Fetched-At", notNullValue())
                 .assertThat()
                 .body("$", hasKey("USD"));
 
         // Verify that values were added to the Cache
-        assertThat(this.exchangeRateCache.get("EUR_USD")).isNotNull();
-        assertThat(this.exchangeRateCache.get("EUR_SEK")).isNotNull();
+        assertThat(this.rateStore.getSnapshot().getRate("EUR", "USD")).isNotNaN();
+        assertThat(this.rateStore.getSnapshot().getRate("EUR", "SEK")).isNotNaN();
     }
 
     @Test
     void whenGettingExchangeRateForAll_withValidInput_InCache_thenSearchInCache() {
-        this.exchangeRateCache.put("EUR_USD", 101010.2);
+        this.rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 101010.2, "SEK", 11.5));
 
         RestAssured.given().contentType("application/json")
                 .queryParams("from", "EUR")
@@ -95,13 +104,13 @@ class ExchangeController_IT {
                 .body("$", hasKey("USD"));
 
         // Verify that values were added to the Cache
-        assertThat(this.exchangeRateCache.get("EUR_USD")).isNotNull();
+        assertThat(this.rateStore.getSnapshot().getRate("EUR", "USD")).isNotNaN();
     }
 
     @Test
     void whenGettingExchangeRateForSpecificCurrency_withValidInput_InCache_thenSearchInCache() {
         this.exchangeRateCache.clear();
-        this.exchangeRateCache.put("EUR_USD", 1.086982);
+        this.rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.086982));
 
         RestAssured.given().contentType("application/json")
                 .queryParams("from", "EUR", "to", "USD")
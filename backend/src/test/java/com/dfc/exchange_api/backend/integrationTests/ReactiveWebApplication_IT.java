@@ -0,0 +1,44 @@
+package com.dfc.exchange_api.backend.integrationTests;
+
+import com.dfc.exchange_api.backend.controllers.ConversionController;
+import com.dfc.exchange_api.backend.controllers.ConversionJobController;
+import com.dfc.exchange_api.backend.controllers.StreamingConversionController;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"snapshot.file.enabled=false", "spring.main.web-application-type=reactive"})
+@AutoConfigureTestDatabase
+class ReactiveWebApplication_IT {
+    private final static String BASE_URL = "http://localhost:";
+
+    @LocalServerPort
+    int randomServerPort;
+
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Test
+    void whenRunningOnReactiveStack_thenServeOnlyNonBlockingControllers() {
+        assertThat(applicationContext.getBeansOfType(ConversionController.class)).hasSize(1);
+        assertThat(applicationContext.getBeansOfType(StreamingConversionController.class)).isEmpty();
+        assertThat(applicationContext.getBeansOfType(ConversionJobController.class)).isEmpty();
+    }
+
+    @Test
+    void whenConvertingStreamOnReactiveStack_thenReturnNotFound() {
+        RestAssured.given().contentType("text/csv")
+                .body("EUR,USD,2\n")
+                .when()
+                .post(BASE_URL + randomServerPort + "/api/v1/convert/stream")
+                .then()
+                .statusCode(404);
+    }
+}
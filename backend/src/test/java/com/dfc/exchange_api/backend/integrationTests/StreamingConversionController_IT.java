@@ -0,0 +1,89 @@
+package com.dfc.exchange_api.backend.integrationTests;
+
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.services.StreamingConversionService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "snapshot.file.enabled=false")
+@AutoConfigureTestDatabase
+class StreamingConversionController_IT {
+    private final static String BASE_URL = "http://localhost:";
+    private static final long CONTAINER_ASYNC_TIMEOUT_MILLIS = 500;
+    private static final int RECORDS = 10;
+    private static final long RECORD_DELAY_MILLIS = 150;
+
+    @LocalServerPort
+    int randomServerPort;
+
+    @MockBean
+    StreamingConversionService streamingConversionService;
+
+    /**
+     * Lowers the asynchronous request timeout of the container, 30 seconds by default, so that a stream outlasting it
+     * doesn't slow down the test suite
+     */
+    @TestConfiguration
+    static class ContainerAsyncTimeoutConfig {
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> containerAsyncTimeoutCustomizer() {
+            return factory -> factory.addConnectorCustomizers(connector -> connector.setAsyncTimeout(CONTAINER_ASYNC_TIMEOUT_MILLIS));
+        }
+    }
+
+    @Test
+    void whenConvertingStream_longerThanContainerAsyncTimeout_thenStreamEveryResult() throws Exception {
+        RateSnapshot snapshot = new RateSnapshot(1L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.25)));
+        StringBuilder expectedResults = new StringBuilder();
+
+        for(int i = 0; i < RECORDS; i++){
+            expectedResults.append("EUR,USD,2.0,2.5,\n");
+        }
+
+        // Set up Expectations
+        when(streamingConversionService.getRateSnapshot(null)).thenReturn(Mono.just(snapshot));
+        doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(1);
+
+            // A slow stream, outlasting the asynchronous request timeout of the container
+            for(int i = 0; i < RECORDS; i++){
+                output.write("EUR,USD,2.0,2.5,\n".getBytes(StandardCharsets.UTF_8));
+                output.flush();
+                Thread.sleep(RECORD_DELAY_MILLIS);
+            }
+
+            return (long) RECORDS;
+        }).when(streamingConversionService).convert(any(), any(), eq(Format.CSV), eq(snapshot));
+
+        // Verify the result is as expected
+        RestAssured.given().contentType("text/csv")
+                .body("EUR,USD,2\n".repeat(RECORDS))
+                .when()
+                .post(BASE_URL + randomServerPort + "/api/v1/convert/stream")
+                .then()
+                .statusCode(200)
+                .body(equalTo(expectedResults.toString()));
+    }
+}
@@ -0,0 +1,161 @@
+package com.dfc.exchange_api.backend.integrationTests;
+
+import com.dfc.exchange_api.backend.services.CurrencyService;
+import com.dfc.exchange_api.backend.services.RateStore;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs concurrent requests against the application served on virtual threads, while recording the JFR events emitted
+ * whenever a virtual thread stays pinned to its carrier thread for longer than the configured threshold, and fails in
+ * case any was recorded. Virtual threads are only available from Java 21 onwards, so this test only runs on such a
+ * runtime, as with the java21 Maven profile.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"snapshot.file.enabled=false", "threads.virtual.enabled=true"})
+@AutoConfigureTestDatabase
+class VirtualThreadPinning_IT {
+    private final static String BASE_URL = "http://localhost:";
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int ROUNDS = 5;
+    private static final int CONCURRENT_REQUESTS = 100;
+    private static final String SYMBOLS_RESPONSE = "{\"success\": true, \"symbols\": {" +
+            "\"EUR\": {\"description\": \"Euro\", \"code\": \"EUR\"}," +
+            "\"USD\": {\"description\": \"United States Dollar\", \"code\": \"USD\"}," +
+            "\"GBP\": {\"description\": \"British Pound Sterling\", \"code\": \"GBP\"}}}";
+    private static final String RATES_RESPONSE = "{\"success\": true, \"base\": \"EUR\", \"rates\": " +
+            "{\"EUR\": 1.0, \"USD\": 1.086628, \"GBP\": 0.854976}}";
+
+    @LocalServerPort
+    int randomServerPort;
+
+    @Autowired
+    CurrencyService currencyService;
+
+    @Autowired
+    RateStore rateStore;
+
+    @Value("${threads.virtual.pinned.threshold.millis}")
+    private long PINNED_THRESHOLD_MILLIS;
+    private static MockWebServer mockWebServer;
+
+    @DynamicPropertySource
+    static void externalApiProperties(DynamicPropertyRegistry registry) throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // A slow External API, so that the requests pile up while the exchange rates are loaded
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(request.getPath().contains("/symbols") ? SYMBOLS_RESPONSE : RATES_RESPONSE)
+                        .setBodyDelay(50, TimeUnit.MILLISECONDS);
+            }
+        });
+        mockWebServer.start();
+        registry.add("external.api.base.url", () -> mockWebServer.url("/").toString());
+    }
+
+    @AfterAll
+    static void shutDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        currencyService.fetchSupportedCurrencies();
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateStore.clear();
+    }
+
+    @Test
+    void whenServingConcurrentRequestsOnVirtualThreads_thenNoVirtualThreadIsPinned() throws Exception {
+        Path recordingFile = Files.createTempFile("virtual-thread-pinning", ".jfr");
+        HttpClient httpClient = HttpClient.newHttpClient();
+        List<String> paths = List.of("/api/v1/exchange?from=EUR", "/api/v1/exchange?from=USD&to=GBP",
+                "/api/v1/exchange?from=GBP&to=EUR,USD", "/api/v1/convert?from=EUR&to=USD,GBP&amount=50");
+
+        try(Recording recording = new Recording()){
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(PINNED_THRESHOLD_MILLIS)).withStackTrace();
+            recording.start();
+
+            // Every round starts without exchange rates, so that its requests wait on a reload of them
+            for(int round = 0; round < ROUNDS; round++){
+                rateStore.clear();
+                List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+
+                for(int i = 0; i < CONCURRENT_REQUESTS; i++){
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + randomServerPort + paths.get(i % paths.size()))).build();
+                    responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+                }
+
+                for(CompletableFuture<HttpResponse<String>> response: responses){
+                    assertThat(response.get(30, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+                }
+            }
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        // Verify the result is as expected
+        List<RecordedEvent> pinnedEvents = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getEventType().getName().equals(PINNED_EVENT))
+                .toList();
+        Files.deleteIfExists(recordingFile);
+
+        assertThat(pinnedEvents)
+                .as("Virtual threads pinned to their carrier threads at: %s", this.describe(pinnedEvents))
+                .isEmpty();
+    }
+
+    private String describe(List<RecordedEvent> pinnedEvents) {
+        return pinnedEvents.stream()
+                .map(event -> event.getStackTrace() == null ? "unknown" : event.getStackTrace().getFrames().stream()
+                        .limit(8)
+                        .map(RecordedFrame::getMethod)
+                        .map(method -> method.getType().getName() + "." + method.getName())
+                        .collect(Collectors.joining(" <- ")))
+                .collect(Collectors.joining("; "));
+    }
+}
@@ -1,20 +1,28 @@
 package com.dfc.exchange_api.backend.unitTests;
 
 import com.dfc.exchange_api.backend.exceptions.CacheNotFoundException;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
 import com.dfc.exchange_api.backend.services.CacheService;
+import com.dfc.exchange_api.backend.services.DemandTracker;
+import com.dfc.exchange_api.backend.services.ExternalApiCircuitBreaker;
+import com.dfc.exchange_api.backend.services.ExternalApiQuota;
+import com.dfc.exchange_api.backend.services.RateStore;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCache;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -27,13 +35,25 @@ class CacheService_unitTest {
     @Mock
     private CacheManager cacheManager;
     @Mock
-    private Cache exchangeRateCache;
-    @Mock
     private CaffeineCache caffeineCache;
+    @Mock
+    private RateStore rateStore;
+    @Mock
+    private ExternalApiCircuitBreaker circuitBreaker;
+    @Mock
+    private ExternalApiQuota quota;
+    @Mock
+    private DemandTracker demandTracker;
 
     @InjectMocks
     private CacheService cacheService;
 
+    private final RateSnapshot rateSnapshot = new RateSnapshot(1L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of(
+            "EUR", 1.0,
+            "AMD", 422.228721,
+            "ANG", 1.965639,
+            "USD", 1.088186)));
+
     @Test
     void whenCacheEmpty_getAllEntries_returnEmpty(){
         // Set up Expectations
@@ -51,10 +71,8 @@ class CacheService_unitTest {
     @Test
     void whenCacheFull_getAllEntries_returnCorrect(){
         // Set up Expectations
-        ConcurrentMap<String, Double> concurrentMap = new ConcurrentHashMap<>();
-        concurrentMap.put("EUR_AMD", 422.228721);
-        concurrentMap.put("EUR_ANG", 1.965639);
-        concurrentMap.put("EUR_USD", 1.088186);
+        ConcurrentMap<String, RateSnapshot> concurrentMap = new ConcurrentHashMap<>();
+        concurrentMap.put("EUR", rateSnapshot);
 
         when(cacheManager.getCache(Mockito.any())).thenReturn(caffeineCache);
 
@@ -64,7 +82,11 @@ class CacheService_unitTest {
         when(nativeCache.asMap()).thenReturn(concurrentMap);
 
         // Verify the result is as expected
-        assertThat(cacheService.getAllCacheEntries()).isEqualTo(concurrentMap);
+        assertThat(cacheService.getAllCacheEntries()).isEqualTo(Map.of(
+                "EUR_EUR", 1.0,
+                "EUR_AMD", 422.228721,
+                "EUR_ANG", 1.965639,
+                "EUR_USD", 1.088186));
     }
 
     @Test
@@ -95,10 +117,8 @@ class CacheService_unitTest {
     @Test
     void whenCacheFull_getAllKeys_returnCorrect(){
         // Set up Expectations
-        ConcurrentMap<String, Double> concurrentMap = new ConcurrentHashMap<>();
-        concurrentMap.put("EUR_AMD", 422.228721);
-        concurrentMap.put("EUR_ANG", 1.965639);
-        concurrentMap.put("EUR_USD", 1.088186);
+        ConcurrentMap<String, RateSnapshot> concurrentMap = new ConcurrentHashMap<>();
+        concurrentMap.put("EUR", rateSnapshot);
 
         when(cacheManager.getCache(Mockito.any())).thenReturn(caffeineCache);
 
@@ -108,7 +128,7 @@ class CacheService_unitTest {
         when(nativeCache.asMap()).thenReturn(concurrentMap);
 
         // Verify the result is as expected
-        assertThat(cacheService.getAllCacheKeys()).isEqualTo(concurrentMap.keySet());
+        assertThat(cacheService.getAllCacheKeys()).isEqualTo(Set.of("EUR_EUR", "EUR_AMD", "EUR_ANG", "EUR_USD"));
     }
 
     @Test
@@ -125,31 +145,34 @@ class CacheService_unitTest {
     @Test
     void whenCacheEmpty_getSingleValue_returnEmpty(){
         // Set up Expectations
-        when(cacheManager.getCache(Mockito.any())).thenReturn(exchangeRateCache);
+        when(cacheManager.getCache(Mockito.any())).thenReturn(caffeineCache);
 
-        when(exchangeRateCache.get("EUR_AMD")).thenReturn(null);
+        com.github.benmanes.caffeine.cache.Cache nativeCache = mock(com.github.benmanes.caffeine.cache.Cache.class);
+
+        when(caffeineCache.getNativeCache()).thenReturn(nativeCache);
+        when(nativeCache.asMap()).thenReturn(new ConcurrentHashMap() {});
 
         // Verify the result is as expected
         assertThat(cacheService.getSingleValue("EUR_AMD")).isNull();
-
-        // Method invocation verifications
-        verify(exchangeRateCache, times(1)).get(Mockito.any());
     }
 
     @Test
     void whenCacheFull_getSingleValue_returnCorrect(){
         // Set up Expectations
-        when(cacheManager.getCache(Mockito.any())).thenReturn(exchangeRateCache);
+        ConcurrentMap<String, RateSnapshot> concurrentMap = new ConcurrentHashMap<>();
+        concurrentMap.put("EUR", rateSnapshot);
+
+        when(cacheManager.getCache(Mockito.any())).thenReturn(caffeineCache);
 
-        Cache.ValueWrapper cachedValue = mock(Cache.ValueWrapper.class);
-        when(cachedValue.get()).thenReturn(422.228721);
-        when(exchangeRateCache.get("EUR_AMD")).thenReturn(cachedValue);
+        com.github.benmanes.caffeine.cache.Cache nativeCache = mock(com.github.benmanes.caffeine.cache.Cache.class);
+
+        when(caffeineCache.getNativeCache()).thenReturn(nativeCache);
+        when(nativeCache.asMap()).thenReturn(concurrentMap);
 
         // Verify the result is as expected
         assertThat(cacheService.getSingleValue("EUR_AMD")).isEqualTo(422.228721);
-
-        // Method invocation verifications
-        verify(exchangeRateCache, times(1)).get(Mockito.any());
+        assertThat(cacheService.getSingleValue("USD_EUR")).isEqualTo(1 / 1.088186);
+        assertThat(cacheService.getSingleValue("EUR_ZZZ")).isNull();
     }
 
     @Test
@@ -163,6 +186,18 @@ class CacheService_unitTest {
                 .hasMessage("No cache was found");
     }
 
+    @Test
+    void whenCacheFull_deleteCache_thenClearSnapshot(){
+        // Set up Expectations
+        when(cacheManager.getCache(Mockito.any())).thenReturn(caffeineCache);
+
+        cacheService.deleteAllCacheEntries();
+
+        // Method invocation verifications
+        verify(caffeineCache, times(1)).clear();
+        verify(rateStore, times(1)).clear();
+    }
+
     @Test
     void whenNoCache_deleteCache_throwException(){
         // Set up Expectations
@@ -187,12 +222,18 @@ class CacheService_unitTest {
         when(cacheStats.hitCount()).thenReturn(0L);
         when(cacheStats.missCount()).thenReturn(0L);
         when(cacheStats.evictionCount()).thenReturn(0L);
+        when(rateStore.getVersion()).thenReturn(0L);
+        when(circuitBreaker.getStatistics()).thenReturn(Map.of("state", "CLOSED"));
+        when(quota.getStatistics()).thenReturn(Map.of("availableTokens", 20L));
 
         // Verify the result is as expected
         Map<String, Object> expectedCacheStatistics = new HashMap<>();
         expectedCacheStatistics.put("hits", 0L);
         expectedCacheStatistics.put("misses", 0L);
         expectedCacheStatistics.put("evictions", 0L);
+        expectedCacheStatistics.put("version", 0L);
+        expectedCacheStatistics.put("circuitBreaker", Map.of("state", "CLOSED"));
+        expectedCacheStatistics.put("upstreamQuota", Map.of("availableTokens", 20L));
 
         assertThat(cacheService.getAllStatistics()).isEqualTo(expectedCacheStatistics);
     }
@@ -210,13 +251,20 @@ class CacheService_unitTest {
         when(cacheStats.hitCount()).thenReturn(145L);
         when(cacheStats.missCount()).thenReturn(232L);
         when(cacheStats.evictionCount()).thenReturn(50L);
+        when(rateStore.getVersion()).thenReturn(12L);
+        Instant fetchedAt = Instant.now().minusSeconds(120);
+        when(rateStore.getPublishedSnapshot()).thenReturn(new RateSnapshot(12L, fetchedAt, RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0))));
 
         // Verify the result is as expected
-        Map<String, Object> expectedCacheStatistics = new HashMap<>();
-        expectedCacheStatistics.put("hits", 145L);
-        expectedCacheStatistics.put("misses", 232L);
-        expectedCacheStatistics.put("evictions", 50L);
-        assertThat(cacheService.getAllStatistics()).isEqualTo(expectedCacheStatistics);
+        Map<String, Object> cacheStatistics = cacheService.getAllStatistics();
+
+        assertThat(cacheStatistics).containsEntry("hits", 145L)
+                .containsEntry("misses", 232L)
+                .containsEntry("evictions", 50L)
+                .containsEntry("version", 12L)
+                .containsEntry("fetchedAt", fetchedAt.toString())
+                .containsKey("ageSeconds");
+        assertThat((Long) cacheStatistics.get("ageSeconds")).isBetween(120L, 130L);
     }
 
     @Test
@@ -229,4 +277,17 @@ class CacheService_unitTest {
                 .isInstanceOf(CacheNotFoundException.class)
                 .hasMessage("No cache was found");
     }
+
+    @Test
+    void whenGettingDemandRanking_thenReturnRankingOfDemandTracker(){
+        // Set up Expectations
+        Map<String, Long> ranking = new LinkedHashMap<>();
+        ranking.put("USD", 40L);
+        ranking.put("GBP", 7L);
+
+        when(demandTracker.getRanking()).thenReturn(ranking);
+
+        // Verify the result is as expected
+        assertThat(cacheService.getDemandRanking()).containsExactly(Map.entry("USD", 40L), Map.entry("GBP", 7L));
+    }
 }
@@ -0,0 +1,205 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotCompletedException;
+import com.dfc.exchange_api.backend.exceptions.ConversionJobNotFoundException;
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.models.ConversionJob;
+import com.dfc.exchange_api.backend.models.ConversionJob.Status;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.repositories.ConversionJobRepository;
+import com.dfc.exchange_api.backend.services.ConversionJobService;
+import com.dfc.exchange_api.backend.services.ConversionService;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
+import com.dfc.exchange_api.backend.services.ExchangeService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConversionJobService_unitTest {
+    @Mock(lenient = true)
+    private CurrencyRegistry currencyRegistry;
+    @Mock
+    private ExchangeService exchangeService;
+    @Mock(lenient = true)
+    private ConversionJobRepository conversionJobRepository;
+
+    @TempDir
+    Path directory;
+
+    // The jobs stored by the mocked repository
+    private final Map<String, ConversionJob> storedJobs = new ConcurrentHashMap<>();
+    private ConversionJobService conversionJobService;
+    private RateSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        when(currencyRegistry.contains(anyString())).thenAnswer(invocation -> Set.of("EUR", "USD").contains(invocation.<String>getArgument(0)));
+        when(conversionJobRepository.save(any())).thenAnswer(invocation -> {
+            ConversionJob job = invocation.getArgument(0);
+            storedJobs.put(job.getId(), job);
+            return job;
+        });
+        when(conversionJobRepository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(storedJobs.get(invocation.<String>getArgument(0))));
+
+        snapshot = new RateSnapshot(7L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 2.0)));
+
+        StreamingConversionService streamingConversionService = new StreamingConversionService(
+                new ConversionService(currencyRegistry, exchangeService), exchangeService, new ObjectMapper());
+        ReflectionTestUtils.setField(streamingConversionService, "MAX_RECORD_LENGTH", 64);
+        ReflectionTestUtils.setField(streamingConversionService, "FLUSH_RECORDS", 1000);
+
+        conversionJobService = new ConversionJobService(conversionJobRepository, streamingConversionService);
+        ReflectionTestUtils.setField(conversionJobService, "DIRECTORY", directory.toString());
+        ReflectionTestUtils.setField(conversionJobService, "WORKERS", 2);
+        ReflectionTestUtils.setField(conversionJobService, "CHUNK_RECORDS", 3);
+        ReflectionTestUtils.setField(conversionJobService, "RETENTION_HOURS", 24L);
+        conversionJobService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        conversionJobService.stop();
+    }
+
+    @Test
+    void whenSubmittingJob_thenConvertChunksInParallelAndWriteResultsInOrder() throws Exception {
+        // Set up Expectations - 20 records, split into 7 chunks, with every fifth one having an unsupported currency
+        when(exchangeService.getCurrentRateSnapshot(null)).thenReturn(Mono.just(snapshot));
+
+        String records = IntStream.rangeClosed(1, 20)
+                .mapToObj(i -> (i % 5 == 0 ? "XYZ" : "EUR") + ",USD," + i)
+                .collect(Collectors.joining("\n", "from,to,amount\n", "\n"));
+
+        ConversionJob job = conversionJobService.submit(this.inputOf(records), "records.csv", Format.CSV);
+        this.awaitCompletion(job.getId());
+
+        // Verify the result is as expected
+        ConversionJob completedJob = conversionJobService.getJob(job.getId());
+
+        assertThat(completedJob.getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(completedJob.getProcessedRecords()).isEqualTo(20);
+        assertThat(completedJob.getFailedRecords()).isEqualTo(4);
+        assertThat(completedJob.getSnapshotVersion()).isEqualTo(7L);
+        assertThat(completedJob.getProgress()).isEqualTo(100.0);
+
+        List<String> results = Files.readAllLines(conversionJobService.getResult(job.getId()));
+
+        assertThat(results).hasSize(21).startsWith("from,to,amount,value,error", "EUR,USD,1.0,2.0,");
+        assertThat(results.get(5)).isEqualTo("XYZ,USD,5.0,,Invalid currency code XYZ provided!");
+        assertThat(results.get(20)).isEqualTo("XYZ,USD,20.0,,Invalid currency code XYZ provided!");
+        assertThat(results.get(19)).isEqualTo("EUR,USD,19.0,38.0,");
+        assertThat(directory.resolve(job.getId() + ".in")).doesNotExist();
+    }
+
+    @Test
+    void whenExchangeRatesUnavailable_thenFailJob() throws Exception {
+        // Set up Expectations
+        when(exchangeService.getCurrentRateSnapshot(null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+
+        ConversionJob job = conversionJobService.submit(this.inputOf("{\"from\":\"EUR\",\"to\":\"USD\",\"amount\":1.0}\n"), "records.ndjson", Format.NDJSON);
+        this.awaitCompletion(job.getId());
+
+        // Verify the result is as expected
+        assertThat(conversionJobService.getJob(job.getId()).getStatus()).isEqualTo(Status.FAILED);
+        assertThat(conversionJobService.getJob(job.getId()).getError()).isEqualTo("External API request failed");
+        assertThatThrownBy(() -> conversionJobService.getResult(job.getId()))
+                .isInstanceOf(ConversionJobNotCompletedException.class)
+                .hasMessage("Conversion job " + job.getId() + " is failed");
+    }
+
+    @Test
+    void whenLoadingExchangeRatesFailsUnexpectedly_thenFailJob() throws Exception {
+        // Set up Expectations - the first job fails with an unexpected error, and the second one with no exchange rates
+        when(exchangeService.getCurrentRateSnapshot(null))
+                .thenReturn(Mono.error(new IllegalStateException("The exchange rates are corrupt")))
+                .thenReturn(Mono.empty());
+
+        ConversionJob failedJob = conversionJobService.submit(this.inputOf("EUR,USD,1\n"), "records.csv", Format.CSV);
+        ConversionJob emptyJob = conversionJobService.submit(this.inputOf("EUR,USD,1\n"), "records.csv", Format.CSV);
+        this.awaitCompletion(failedJob.getId());
+        this.awaitCompletion(emptyJob.getId());
+
+        // Verify the result is as expected
+        assertThat(conversionJobService.getJob(failedJob.getId()).getStatus()).isEqualTo(Status.FAILED);
+        assertThat(conversionJobService.getJob(failedJob.getId()).getError()).isEqualTo("The exchange rates are corrupt");
+        assertThat(conversionJobService.getJob(emptyJob.getId()).getStatus()).isEqualTo(Status.FAILED);
+        assertThat(conversionJobService.getJob(emptyJob.getId()).getError()).isEqualTo("The exchange rates could not be loaded");
+    }
+
+    @Test
+    void whenRestarting_thenResumeRunningJobsFromTheirStart() throws Exception {
+        // Set up Expectations - a job interrupted halfway, and its partial result
+        when(exchangeService.getCurrentRateSnapshot(null)).thenReturn(Mono.just(snapshot));
+
+        Files.writeString(directory.resolve("interrupted.in"), "EUR,USD,1\nEUR,USD,2\n");
+        Files.writeString(directory.resolve("interrupted.out.tmp"), "from,to,amount,value,error\nEUR,USD,1.0,2.0,\n");
+
+        ConversionJob interruptedJob = new ConversionJob("interrupted", Format.CSV, "records.csv", 20, Instant.now());
+        interruptedJob.setStatus(Status.RUNNING);
+        interruptedJob.setProcessedRecords(1);
+        storedJobs.put(interruptedJob.getId(), interruptedJob);
+        when(conversionJobRepository.findByStatusInOrderBySubmittedAt(List.of(Status.QUEUED, Status.RUNNING))).thenReturn(List.of(interruptedJob));
+
+        conversionJobService.resume();
+        this.awaitCompletion("interrupted");
+
+        // Verify the result is as expected
+        assertThat(conversionJobService.getJob("interrupted").getProcessedRecords()).isEqualTo(2);
+        assertThat(Files.readAllLines(conversionJobService.getResult("interrupted"))).containsExactly(
+                "from,to,amount,value,error",
+                "EUR,USD,1.0,2.0,",
+                "EUR,USD,2.0,4.0,");
+    }
+
+    @Test
+    void whenGettingUnknownJob_thenThrowException() {
+        assertThatThrownBy(() -> conversionJobService.getJob("unknown"))
+                .isInstanceOf(ConversionJobNotFoundException.class)
+                .hasMessage("Conversion job unknown not found");
+    }
+
+    private ByteArrayInputStream inputOf(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void awaitCompletion(String id) throws InterruptedException {
+        for(int i = 0; i < 500; i++){
+            Status status = storedJobs.get(id).getStatus();
+
+            if(status == Status.COMPLETED || status == Status.FAILED){
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -2,8 +2,13 @@ package com.dfc.exchange_api.backend.unitTests;
 
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
+import com.dfc.exchange_api.backend.models.ConversionItem;
+import com.dfc.exchange_api.backend.models.ConversionItemResult;
 import com.dfc.exchange_api.backend.models.Currency;
-import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
 import com.dfc.exchange_api.backend.services.ConversionService;
 import com.dfc.exchange_api.backend.services.CurrencyService;
 import com.dfc.exchange_api.backend.services.ExchangeService;
@@ -15,12 +20,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
 
 
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,7 +36,7 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class ConversionService_unitTest {
     @Mock(lenient = true)
-    CurrencyRepository currencyRepository;
+    CurrencyRegistry currencyRegistry;
     @Mock
     private CurrencyService currencyService;
     @Mock
@@ -43,6 +49,7 @@ class ConversionService_unitTest {
     Currency dollar;
     Currency dram;
     List<Currency> testCurrencies;
+    RateSnapshot snapshot;
 
     @BeforeEach
     void setUp() {
@@ -50,6 +57,10 @@ class ConversionService_unitTest {
         dollar = new Currency("United States Dollar", "USD");
         dram = new Currency("Armenian Dram", "AMD");
         testCurrencies = List.of(euro, dollar, dram);
+        snapshot = new RateSnapshot(1L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of(
+                "EUR", 1.0,
+                "AMD", 422.228721,
+                "USD", 1.088186)));
     }
 
     @AfterEach
@@ -58,246 +69,191 @@ class ConversionService_unitTest {
         dollar = null;
         dram = null;
         testCurrencies = null;
+        snapshot = null;
     }
 
     @Test
-    void whenGettingConversionForAll_withValidInput_NotInCache_thenContactExternalAPI() {
+    void whenGettingConversionForAll_withValidInput_thenCalculateConversionFromPinnedSnapshot() {
         // Set up Expectations
-        Map<String, Double> exchangeRatesFromExternalApi = new HashMap<>();
-        exchangeRatesFromExternalApi.put("AMD", 422.228721);
-        exchangeRatesFromExternalApi.put("USD", 1.088186);
-
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("AMD")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-
-        when(currencyRepository.findByCode("AMD")).thenReturn(Optional.of(dram));
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
+        // Registry calls
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Exchange Service calls
-        when(exchangeService.getExchangeRateFromCache("EUR", "AMD")).thenReturn(null);
-        when(exchangeService.getExchangeRateFromCache("EUR", "USD")).thenReturn(null);
-
-        when(exchangeService.getExchangeRatesFromExternalAPI("EUR", "AMD,USD,")).thenReturn(exchangeRatesFromExternalApi);
+        when(exchangeService.getRateSnapshot("EUR", List.of("AMD", "USD"), null)).thenReturn(Mono.just(snapshot));
 
         // Verify the result is as expected
-        Map<String, Double> conversions = conversionService.getConversionFromCurrency("EUR", "AMD,USD", 50.0);
+        RateResult<Map<String, Double>> conversions = conversionService.getConversionFromCurrency("EUR", "AMD,USD", 50.0).block();
 
-        assertThat(conversions).containsOnlyKeys("AMD", "USD")
+        assertThat(conversions.getValue()).containsOnlyKeys("AMD", "USD")
                 .containsEntry("USD",54.4093)
                 .containsEntry("AMD",21111.43605);
+        assertThat(conversions.getSnapshot()).isSameAs(snapshot);
 
         // Method invocation verifications
-        verify(currencyRepository, times(1)).existsByCode("EUR");
-
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "AMD");
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "USD");
-        verify(exchangeService, times(1)).getExchangeRatesFromExternalAPI("EUR", "AMD,USD,");
+        verify(currencyRegistry, times(3)).contains(Mockito.any());
+        verify(exchangeService, times(1)).getRateSnapshot("EUR", List.of("AMD", "USD"), null);
     }
 
     @Test
-    void whenGettingConversionForAll_withValidInput_AllInExchangeCache_thenCalculateConversion() {
+    void whenGettingConversionForAll_withNonAnchorInput_thenCalculateConversionFromCrossRates() {
         // Set up Expectations
-
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("AMD")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
+        // Registry calls
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
 
         // Exchange Service calls
-        when(exchangeService.getExchangeRateFromCache("EUR", "AMD")).thenReturn(422.228721);
-        when(exchangeService.getExchangeRateFromCache("EUR", "USD")).thenReturn(1.088186);
+        when(exchangeService.getRateSnapshot("USD", List.of("AMD", "EUR"), null)).thenReturn(Mono.just(snapshot));
 
         // Verify the result is as expected
-        Map<String, Double> conversions = conversionService.getConversionFromCurrency("EUR", "AMD,USD", 50.0);
+        Map<String, Double> conversions = conversionService.getConversionFromCurrency("USD", "AMD,EUR", 1.088186).block().getValue();
 
-        assertThat(conversions).containsOnlyKeys("AMD", "USD")
-                .containsEntry("USD",54.4093)
-                .containsEntry("AMD",21111.43605);
+        assertThat(conversions).containsOnlyKeys("AMD", "EUR")
+                .containsEntry("EUR", 1.0)
+                .containsEntry("AMD", 422.228721);
 
         // Method invocation verifications
-        verify(currencyRepository, times(3)).existsByCode(Mockito.any());
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "AMD");
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "USD");
+        verify(exchangeService, times(1)).getRateSnapshot("USD", List.of("AMD", "EUR"), null);
     }
 
     @Test
-    void whenGettingConversionForAll_withValidInput_SomeInExchangeCache_thenCalculateConversion() {
+    void whenGettingConversionForAll_withValidInput_NotReturnedByExternalAPI_thenOmitCurrency() {
         // Set up Expectations
-        Map<String, Double> exchangeRatesFromExternalApi = new HashMap<>();
-        exchangeRatesFromExternalApi.put("USD", 1.088186);
-
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("AMD")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-
-        when(currencyRepository.findByCode("AMD")).thenReturn(Optional.of(dram));
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
+        // Registry calls
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("GBP")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Exchange Service calls
-        when(exchangeService.getExchangeRateFromCache("EUR", "AMD")).thenReturn(422.228721);
-        when(exchangeService.getExchangeRateFromCache("EUR", "USD")).thenReturn(null);
-
-        when(exchangeService.getExchangeRatesFromExternalAPI("EUR", "USD,")).thenReturn(exchangeRatesFromExternalApi);
+        when(exchangeService.getRateSnapshot("EUR", List.of("GBP", "USD"), null)).thenReturn(Mono.just(snapshot));
 
         // Verify the result is as expected
-        Map<String, Double> conversions = conversionService.getConversionFromCurrency("EUR", "AMD,USD", 50.0);
-
-        assertThat(conversions).containsOnlyKeys("AMD", "USD")
-                .containsEntry("USD",54.4093)
-                .containsEntry("AMD",21111.43605);
-
-        // Method invocation verifications
-        verify(currencyRepository, times(3)).existsByCode(Mockito.any());
+        RateResult<Map<String, Double>> conversions = conversionService.getConversionFromCurrency("EUR", "GBP,USD", 50.0).block();
 
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "AMD");
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "USD");
-        verify(exchangeService, times(1)).getExchangeRatesFromExternalAPI("EUR", "USD,");
+        assertThat(conversions.getValue()).containsOnlyKeys("USD")
+                .containsEntry("USD",54.4093);
+        assertThat(conversions.getMissingCodes()).containsExactly("GBP");
     }
 
     @Test
-    void whenGettingConversionForAll_withValidInput_NotInCache_externalAPIFailure_thenThrowException() {
+    void whenGettingConversionForAll_withValidInput_externalAPIFailure_thenThrowException() {
         // Set up Expectations
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("AMD")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-
-        when(currencyRepository.findByCode("AMD")).thenReturn(Optional.of(dram));
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
+        // Registry calls
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Exchange Service calls
-        when(exchangeService.getExchangeRateFromCache("EUR", "AMD")).thenReturn(null);
-        when(exchangeService.getExchangeRateFromCache("EUR", "USD")).thenReturn(null);
-
-        when(exchangeService.getExchangeRatesFromExternalAPI("EUR", "AMD,USD,")).thenThrow(new ExternalApiConnectionError("External API request failed"));
+        when(exchangeService.getRateSnapshot("EUR", List.of("AMD", "USD"), null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("EUR", "AMD,USD", 50.0))
+        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("EUR", "AMD,USD", 50.0).block())
                 .isInstanceOf(ExternalApiConnectionError.class)
                 .hasMessage("External API request failed");
 
         // Method invocation verifications
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "AMD");
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "USD");
-        verify(exchangeService, times(1)).getExchangeRatesFromExternalAPI("EUR", "AMD,USD,");
+        verify(exchangeService, times(1)).getRateSnapshot("EUR", List.of("AMD", "USD"), null);
     }
 
     @Test
-    void whenGettingConversionForAll_withInvalidToInput_thenThrowException() {
+    void whenGettingConversionForAll_withZeroAmount_thenSkipExchangeRates() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("ZZZ")).thenReturn(false);
-        when(currencyRepository.existsByCode("AMD")).thenReturn(true);
-        when(currencyRepository.existsByCode("ANG")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("ZZZ", "AMD,ANG,USD", 50.0))
-                .isInstanceOf(InvalidCurrencyException.class)
-                .hasMessage("Invalid currency code ZZZ provided!");
+        RateResult<Map<String, Double>> conversions = conversionService.getConversionFromCurrency("EUR", "AMD,USD", 0.0).block();
+
+        assertThat(conversions.getValue())
+                .containsOnlyKeys("AMD", "USD")
+                .containsEntry("AMD", 0.0)
+                .containsEntry("USD", 0.0);
+        assertThat(conversions.hasSnapshot()).isFalse();
 
+        // Method invocation verifications
+        verify(exchangeService, never()).getRateSnapshot(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
-    void whenGettingConversionForAll_withInvalidFromInput_thenThrowException() {
+    void whenGettingConversionForAll_withInvalidToInput_thenThrowException() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("ZZZ")).thenReturn(false);
-        when(currencyRepository.existsByCode("AMD")).thenReturn(true);
-        when(currencyRepository.existsByCode("ANG")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("ANG")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("AMD", "ZZZ,ANG,USD", 50.0))
+        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("ZZZ", "AMD,ANG,USD", 50.0).block())
                 .isInstanceOf(InvalidCurrencyException.class)
                 .hasMessage("Invalid currency code ZZZ provided!");
 
     }
 
     @Test
-    void whenGettingConversionForSpecificCurrency_withValidInput_NotInCache_thenContactExternalAPI() {
+    void whenGettingConversionForAll_withInvalidFromInput_thenThrowException() {
         // Set up Expectations
-        Map<String, Double> exchangeRatesFromExternalApi = new HashMap<>();
-        exchangeRatesFromExternalApi.put("USD", 1.088186);
-
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
-
-        // Exchange Service calls
-        when(exchangeService.getExchangeRateFromCache("EUR", "USD")).thenReturn(null);
-
-        when(exchangeService.getExchangeRatesFromExternalAPI("EUR", "USD,")).thenReturn(exchangeRatesFromExternalApi);
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("ANG")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Verify the result is as expected
-        Map<String, Double> conversions = conversionService.getConversionFromCurrency("EUR", "USD", 50.0);
-
-        assertThat(conversions).containsOnlyKeys("USD")
-                .containsEntry("USD",54.4093);
+        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("AMD", "ZZZ,ANG,USD", 50.0).block())
+                .isInstanceOf(InvalidCurrencyException.class)
+                .hasMessage("Invalid currency code ZZZ provided!");
 
-        // Method invocation verifications
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "USD");
-        verify(exchangeService, times(1)).getExchangeRatesFromExternalAPI("EUR", "USD,");
     }
 
     @Test
-    void whenGettingConversionForSpecificCurrency_withValidInput_InExchangeCache_thenCalculateConversion() {
+    void whenGettingConversionForSpecificCurrency_withValidInput_thenCalculateConversion() {
         // Set up Expectations
-
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
+        // Registry calls
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Exchange Service calls
-        when(exchangeService.getExchangeRateFromCache("EUR", "USD")).thenReturn(1.088186);
+        when(exchangeService.getRateSnapshot("EUR", List.of("USD"), null)).thenReturn(Mono.just(snapshot));
 
         // Verify the result is as expected
-        Map<String, Double> conversions = conversionService.getConversionFromCurrency("EUR", "USD", 50.0);
+        Map<String, Double> conversions = conversionService.getConversionFromCurrency("EUR", "USD", 50.0).block().getValue();
 
         assertThat(conversions).containsOnlyKeys("USD")
                 .containsEntry("USD",54.4093);
 
         // Method invocation verifications
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "USD");
+        verify(exchangeService, times(1)).getRateSnapshot("EUR", List.of("USD"), null);
     }
 
     @Test
-    void whenGettingConversionForSpecificCurrency_withValidInput_NotInCache_externalAPIFailure_thenThrowException() {
+    void whenGettingConversionForSpecificCurrency_withValidInput_externalAPIFailure_thenThrowException() {
         // Set up Expectations
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
+        // Registry calls
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
 
         // Exchange Service calls
-        when(exchangeService.getExchangeRateFromCache("EUR", "USD")).thenReturn(null);
-
-        when(exchangeService.getExchangeRatesFromExternalAPI("EUR", "USD,")).thenThrow(new ExternalApiConnectionError("External API request failed"));
+        when(exchangeService.getRateSnapshot("EUR", List.of("USD"), null)).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("EUR", "USD", 50.0))
+        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("EUR", "USD", 50.0).block())
                 .isInstanceOf(ExternalApiConnectionError.class)
                 .hasMessage("External API request failed");
 
         // Method invocation verifications
-        verify(exchangeService, times(1)).getExchangeRateFromCache("EUR", "USD");
-        verify(exchangeService, times(1)).getExchangeRatesFromExternalAPI("EUR", "USD,");
+        verify(exchangeService, times(1)).getRateSnapshot("EUR", List.of("USD"), null);
     }
 
     @Test
     void whenGettingConversionForSpecificCurrency_withInvalidFromInput_thenThrowException() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("ZZZ","EUR", 50.0))
+        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("ZZZ","EUR", 50.0).block())
                 .isInstanceOf(InvalidCurrencyException.class)
                 .hasMessage("Invalid currency code ZZZ provided!");
     }
@@ -305,13 +261,64 @@ class ConversionService_unitTest {
     @Test
     void whenGettingConversionForSpecificCurrency_withInvalidToInput_thenThrowException() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("EUR","ZZZ", 50.0))
+        assertThatThrownBy(() -> conversionService.getConversionFromCurrency("EUR","ZZZ", 50.0).block())
                 .isInstanceOf(InvalidCurrencyException.class)
                 .hasMessage("Invalid currency code ZZZ provided!");
     }
 
+
+    @Test
+    void whenGettingConversionForBatch_withManyBases_thenConvertFromSinglePinnedSnapshotInOrder() {
+        // Set up Expectations
+        // Registry calls
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.contains("XYZ")).thenReturn(false);
+
+        // Exchange Service calls
+        when(exchangeService.getBatchRateSnapshot(anyCollection(), anyCollection(), eq(null))).thenReturn(Mono.just(snapshot));
+
+        List<ConversionItem> items = List.of(
+                new ConversionItem("EUR", "USD", 50.0),
+                new ConversionItem("usd", "EUR", 10.0),
+                new ConversionItem("XYZ", "EUR", 10.0),
+                new ConversionItem("EUR", "AMD", 2.0),
+                new ConversionItem("USD", "AMD", -1.0));
+
+        // Verify the result is as expected
+        RateResult<List<ConversionItemResult>> conversions = conversionService.getConversionForBatch(items, null).block();
+
+        assertThat(conversions.getValue()).extracting(ConversionItemResult::getValue)
+                .containsExactly(54.4093, 10 / 1.088186, null, 844.457442, null);
+        assertThat(conversions.getValue()).extracting(ConversionItemResult::getError)
+                .containsExactly(null, null, "Invalid currency code XYZ provided!", null, "Amount must be non-negative!");
+        assertThat(conversions.getValue().get(1).getFrom()).isEqualTo("USD");
+        assertThat(conversions.getSnapshot()).isSameAs(snapshot);
+        assertThat(conversions.isPartial()).isFalse();
+
+        // Verify that a single snapshot was pinned for both base currencies of the valid items
+        verify(exchangeService, times(1)).getBatchRateSnapshot(
+                argThat((Collection<String> codes) -> codes.size() == 2 && codes.containsAll(List.of("EUR", "USD"))),
+                anyCollection(), eq(null));
+    }
+
+    @Test
+    void whenGettingConversionForBatch_withOnlyInvalidItems_thenSkipExchangeRates() {
+        // Set up Expectations
+        when(currencyRegistry.contains("XYZ")).thenReturn(false);
+
+        // Verify the result is as expected
+        RateResult<List<ConversionItemResult>> conversions = conversionService.getConversionForBatch(
+                List.of(new ConversionItem("XYZ", "EUR", 1.0), new ConversionItem(null, "EUR", 1.0)), null).block();
+
+        assertThat(conversions.getValue()).extracting(ConversionItemResult::getError)
+                .containsExactly("Invalid currency code XYZ provided!", "Invalid currency code null provided!");
+        assertThat(conversions.hasSnapshot()).isFalse();
+        verifyNoInteractions(exchangeService);
+    }
 }
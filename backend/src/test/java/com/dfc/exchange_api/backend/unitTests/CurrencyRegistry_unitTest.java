@@ -0,0 +1,74 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.models.Currency;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CurrencyRegistry_unitTest {
+    private CurrencyRegistry currencyRegistry;
+
+    Currency euro;
+    Currency dollar;
+
+    @BeforeEach
+    void setUp() {
+        currencyRegistry = new CurrencyRegistry();
+        euro = new Currency("Euro", "EUR");
+        dollar = new Currency("United States Dollar", "USD");
+    }
+
+    @Test
+    void whenRegistryNotBuilt_thenNoCurrencySupported() {
+        // Verify the result is as expected
+        assertThat(currencyRegistry.contains("EUR")).isFalse();
+        assertThat(currencyRegistry.findByCode("EUR")).isEmpty();
+        assertThat(currencyRegistry.getAll()).isEmpty();
+        assertThat(currencyRegistry.getVersion()).isZero();
+    }
+
+    @Test
+    void whenRegistryBuilt_thenLookUpCurrencies() {
+        // Set up Expectations
+        currencyRegistry.rebuild(List.of(euro, dollar));
+
+        // Verify the result is as expected
+        assertThat(currencyRegistry.contains("EUR")).isTrue();
+        assertThat(currencyRegistry.contains("ZZZ")).isFalse();
+        assertThat(currencyRegistry.contains(null)).isFalse();
+        assertThat(currencyRegistry.findByCode("USD")).contains(dollar);
+        assertThat(currencyRegistry.getAll()).containsExactly(euro, dollar);
+        assertThat(currencyRegistry.size()).isEqualTo(2);
+    }
+
+    @Test
+    void whenRegistryRebuilt_thenReplacePreviousCurrencies() {
+        // Set up Expectations
+        currencyRegistry.rebuild(List.of(euro, dollar));
+        currencyRegistry.rebuild(List.of(euro));
+
+        // Verify the result is as expected
+        assertThat(currencyRegistry.contains("USD")).isFalse();
+        assertThat(currencyRegistry.getAll()).containsExactly(euro);
+        assertThat(currencyRegistry.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void whenSourceChangedAfterRebuild_thenRegistryUnchanged() {
+        // Set up Expectations
+        List<Currency> currencies = new ArrayList<>(List.of(euro));
+        currencyRegistry.rebuild(currencies);
+        currencies.add(dollar);
+
+        // Verify the result is as expected - the registry is immutable
+        assertThat(currencyRegistry.contains("USD")).isFalse();
+        assertThatThrownBy(() -> currencyRegistry.getAll().add(dollar))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -1,9 +1,11 @@
 package com.dfc.exchange_api.backend.unitTests;
 
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.models.Currency;
 import com.dfc.exchange_api.backend.models.CurrencyDTO;
 import com.dfc.exchange_api.backend.models.FetchedSymbolsDTO;
 import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
 import com.dfc.exchange_api.backend.services.CurrencyService;
 import com.dfc.exchange_api.backend.services.ExternalApiService;
 import org.junit.jupiter.api.AfterEach;
@@ -13,13 +15,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +35,12 @@ class CurrencyService_unitTest {
     @Mock(lenient = true)
     private CurrencyRepository currencyRepository;
 
+    @Mock
+    private CurrencyRegistry currencyRegistry;
+
+    @Mock(lenient = true)
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private CurrencyService currencyService;
 
@@ -45,6 +56,12 @@ class CurrencyService_unitTest {
         afghani = new Currency("Afghan Afghani", "AFN");
         lek = new Currency("Albanian Lek", "ALL");
         euro = new Currency("Euro", "EUR");
+
+        // Running the operations of the transaction in place
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
     }
 
     @AfterEach
@@ -55,6 +72,19 @@ class CurrencyService_unitTest {
         euro = null;
     }
 
+    @Test
+    void testLoadStoredCurrencies_thenSeedRegistryWithoutExternalAPI() {
+        // Setting up Expectations
+        when(currencyRepository.findAll()).thenReturn(List.of(dirham, euro));
+
+        // Call the method under test
+        currencyService.loadStoredCurrencies();
+
+        // Verify the result is as expected
+        verify(currencyRegistry, times(1)).rebuild(List.of(dirham, euro));
+        verifyNoInteractions(externalApiService);
+    }
+
     @Test
     void testFetchSupportedCurrencies_repositoryEmpty() {
         // Setting up Expectations
@@ -67,14 +97,41 @@ class CurrencyService_unitTest {
         fetchedSymbols.setSymbols(fetchedCurrencies);
 
         when(externalApiService.getAvailableCurrencies()).thenReturn(fetchedSymbols);
-        when(currencyRepository.findByCode(anyString())).thenReturn(Optional.empty());
         when(currencyRepository.findAll()).thenReturn(Collections.emptyList());
 
         // Call the method under test
         currencyService.fetchSupportedCurrencies();
 
-        // Verify that the repository's saveAll method was called
-        verify(currencyRepository).saveAll(anyList());
+        // Verify that the new currencies were saved in a single transaction, and that the registry was rebuilt
+        verify(transactionTemplate).executeWithoutResult(any());
+        verify(currencyRepository).saveAll(List.of(dirham, lek));
+        verify(currencyRepository, never()).deleteAllInBatch(anyList());
+        verify(currencyRegistry).rebuild(anyList());
+    }
+
+    @Test
+    void testFetchSupportedCurrencies_symbolsUnchanged_thenSkipReconciliation() {
+        // Setting up Expectations
+        TreeMap<String, CurrencyDTO> fetchedCurrencies = new TreeMap<>();
+
+        fetchedCurrencies.put("AED", new CurrencyDTO("United Arab Emirates Dirham", "AED"));
+        fetchedCurrencies.put("ALL", new CurrencyDTO("Albanian Lek", "ALL"));
+
+        FetchedSymbolsDTO fetchedSymbols = new FetchedSymbolsDTO();
+        fetchedSymbols.setSymbols(fetchedCurrencies);
+
+        when(externalApiService.getAvailableCurrencies()).thenReturn(fetchedSymbols);
+        when(currencyRepository.findAll()).thenReturn(Collections.emptyList());
+
+        // Call the method under test twice, with the same symbols fetched
+        currencyService.fetchSupportedCurrencies();
+        currencyService.fetchSupportedCurrencies();
+
+        // Verify that the second call didn't touch the repository, nor the registry
+        verify(externalApiService, times(2)).getAvailableCurrencies();
+        verify(currencyRepository, times(1)).findAll();
+        verify(currencyRepository, times(1)).saveAll(anyList());
+        verify(currencyRegistry, times(1)).rebuild(anyList());
     }
 
     @Test
@@ -92,16 +149,16 @@ class CurrencyService_unitTest {
         List<Currency> existingCurrencies = List.of(dirham, afghani, lek);
 
         when(externalApiService.getAvailableCurrencies()).thenReturn(fetchedSymbols);
-        when(currencyRepository.findByCode("AED")).thenReturn(Optional.of(dirham));
-        when(currencyRepository.findByCode("AFN")).thenReturn(Optional.of(afghani));
-        when(currencyRepository.findByCode("ALL")).thenReturn(Optional.of(lek));
         when(currencyRepository.findAll()).thenReturn(existingCurrencies);
 
         // Call the method under test
         currencyService.fetchSupportedCurrencies();
 
-        // Verify that the repository's saveAll method was called
-        verify(currencyRepository, never()).saveAll(anyList());
+        // Verify that the repository wasn't written, since the list of supported currencies is unchanged
+        verify(currencyRepository, times(1)).findAll();
+        verifyNoMoreInteractions(currencyRepository);
+        verifyNoInteractions(transactionTemplate);
+        verify(currencyRegistry).rebuild(existingCurrencies);
     }
 
     @Test
@@ -119,9 +176,6 @@ class CurrencyService_unitTest {
         List<Currency> existingCurrencies = List.of(dirham, afghani, euro, lek);
 
         when(externalApiService.getAvailableCurrencies()).thenReturn(fetchedSymbols);
-        when(currencyRepository.findByCode("AED")).thenReturn(Optional.of(dirham));
-        when(currencyRepository.findByCode("AFN")).thenReturn(Optional.of(afghani));
-        when(currencyRepository.findByCode("ALL")).thenReturn(Optional.of(lek));
         when(currencyRepository.findAll()).thenReturn(existingCurrencies);
 
         // Call the method under test
@@ -129,31 +183,72 @@ class CurrencyService_unitTest {
 
         // Verify that the repository's saveAll method was never called, and that the delete method was called for no longer supported "EUR"
         verify(currencyRepository, never()).saveAll(anyList());
-        verify(currencyRepository).deleteAll(List.of(euro));
+        verify(currencyRepository).deleteAllInBatch(List.of(euro));
+        verify(currencyRegistry).rebuild(List.of(dirham, afghani, lek));
+    }
+
+    @Test
+    void testFetchSupportedCurrencies_repositoryNotEmpty_addAndDeleteInSingleTransaction() {
+        // Setting up Expectations
+        TreeMap<String, CurrencyDTO> fetchedCurrencies = new TreeMap<>();
+
+        fetchedCurrencies.put("AED", new CurrencyDTO("United Arab Emirates Dirham", "AED"));
+        fetchedCurrencies.put("ALL", new CurrencyDTO("Albanian Lek", "ALL"));
+
+        FetchedSymbolsDTO fetchedSymbols = new FetchedSymbolsDTO();
+        fetchedSymbols.setSymbols(fetchedCurrencies);
+
+        when(externalApiService.getAvailableCurrencies()).thenReturn(fetchedSymbols);
+        when(currencyRepository.findAll()).thenReturn(List.of(dirham, euro));
+        when(currencyRepository.saveAll(List.of(lek))).thenReturn(List.of(lek));
+
+        // Call the method under test
+        currencyService.fetchSupportedCurrencies();
+
+        // Verify that the diff was applied in a single transaction, and that the registry holds the reconciled currencies
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        verify(currencyRepository).deleteAllInBatch(List.of(euro));
+        verify(currencyRepository).saveAll(List.of(lek));
+        verify(currencyRegistry).rebuild(List.of(dirham, lek));
+    }
+
+    @Test
+    void testFetchSupportedCurrencies_externalAPIFailure_thenKeepRegistry() {
+        // Setting up Expectations
+        when(externalApiService.getAvailableCurrencies()).thenThrow(new ExternalApiConnectionError("External API request failed"));
+
+        // Call the method under test
+        currencyService.fetchSupportedCurrencies();
+
+        // Verify that neither the repository nor the registry were changed
+        verify(currencyRepository, never()).saveAll(anyList());
+        verifyNoInteractions(currencyRegistry);
     }
 
     @Test
     void getSupportedCurrencies_withRepositoryEmpty(){
         // Setting up Expectations
-        when(currencyRepository.findAll()).thenReturn(Collections.emptyList());
+        when(currencyRegistry.getAll()).thenReturn(Collections.emptyList());
 
         // Call the method under test
         assertThat(currencyService.getSupportedCurrencies()).isEmpty();
 
-        // Verify that the repository's saveAll method was called
-        verify(currencyRepository).findAll();
+        // Verify that the currencies were read from the registry, and not from the repository
+        verify(currencyRegistry).getAll();
+        verifyNoInteractions(currencyRepository);
     }
 
     @Test
     void getSupportedCurrencies_withRepositoryFull(){
         // Setting up Expectations
         List<Currency> currenciesOnRepo = Arrays.asList(dirham, afghani, lek, euro);
-        when(currencyRepository.findAll()).thenReturn(currenciesOnRepo);
+        when(currencyRegistry.getAll()).thenReturn(currenciesOnRepo);
 
         // Call the method under test
         assertThat(currencyService.getSupportedCurrencies()).isEqualTo(currenciesOnRepo);
 
-        // Verify that the repository's saveAll method was called
-        verify(currencyRepository).findAll();
+        // Verify that the currencies were read from the registry, and not from the repository
+        verify(currencyRegistry).getAll();
+        verifyNoInteractions(currencyRepository);
     }
 }
@@ -0,0 +1,83 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.models.Currency;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
+import com.dfc.exchange_api.backend.services.DemandTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DemandTracker_unitTest {
+    @Mock(lenient = true)
+    private CurrencyRegistry currencyRegistry;
+
+    private DemandTracker demandTracker;
+
+    @BeforeEach
+    void setUp() {
+        when(currencyRegistry.getAll()).thenReturn(List.of(
+                new Currency("Euro", "EUR"),
+                new Currency("United States Dollar", "USD"),
+                new Currency("British Pound Sterling", "GBP"),
+                new Currency("Japanese Yen", "JPY")));
+
+        demandTracker = new DemandTracker(currencyRegistry);
+        ReflectionTestUtils.setField(demandTracker, "SKETCH_WIDTH", 256);
+        ReflectionTestUtils.setField(demandTracker, "HOT_SIZE", 2);
+        demandTracker.buildSketch();
+    }
+
+    @Test
+    void whenRecordingLookups_thenRankBaseCurrenciesByFrequency() {
+        // Set up Expectations
+        this.record("GBP", 3);
+        this.record("USD", 10);
+        this.record("EUR", 1);
+
+        // Verify the result is as expected - currencies never looked up aren't ranked
+        assertThat(demandTracker.getRanking()).containsExactly(
+                Map.entry("USD", 10L),
+                Map.entry("GBP", 3L),
+                Map.entry("EUR", 1L));
+        assertThat(demandTracker.getHottestCodes()).containsExactly("USD", "GBP");
+    }
+
+    @Test
+    void whenDecaying_thenHalveFrequencies() {
+        // Set up Expectations
+        this.record("USD", 10);
+        this.record("EUR", 1);
+
+        demandTracker.decay();
+
+        // Verify the result is as expected - lookups no longer recent enough drop out of the ranking
+        assertThat(demandTracker.getRanking()).containsExactly(Map.entry("USD", 5L));
+    }
+
+    @Test
+    void whenSeeding_thenRankSeededFrequencies() {
+        // Set up Expectations
+        demandTracker.seed(Map.of("JPY", 8L, "USD", 4L));
+        this.record("USD", 1);
+
+        // Verify the result is as expected
+        assertThat(demandTracker.getRanking()).containsExactly(
+                Map.entry("JPY", 8L),
+                Map.entry("USD", 5L));
+    }
+
+    private void record(String code, int lookups) {
+        IntStream.range(0, lookups).forEach(i -> demandTracker.record(code));
+    }
+}
@@ -3,26 +3,28 @@ package com.dfc.exchange_api.backend.unitTests;
 import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
 import com.dfc.exchange_api.backend.exceptions.InvalidCurrencyException;
 import com.dfc.exchange_api.backend.models.Currency;
-import com.dfc.exchange_api.backend.models.ExchangeRateDTO;
-import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
-import com.dfc.exchange_api.backend.services.CurrencyService;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateResult;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
+import com.dfc.exchange_api.backend.services.DemandTracker;
 import com.dfc.exchange_api.backend.services.ExchangeService;
-import com.dfc.exchange_api.backend.services.ExternalApiService;
+import com.dfc.exchange_api.backend.services.RateStore;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,281 +32,379 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ExchangeService_unitTest {
-    @Mock
-    private ExternalApiService externalApiService;
     @Mock(lenient = true)
-    private CurrencyRepository currencyRepository;
-    @Mock
-    private CurrencyService currencyService;
+    private CurrencyRegistry currencyRegistry;
     @Mock
-    private CacheManager cacheManager;
+    private RateStore rateStore;
     @Mock
-    private Cache exchangeRateCache;
+    private DemandTracker demandTracker;
 
     @InjectMocks
     private ExchangeService exchangeService;
 
-    Currency euro;
-    Currency dollar;
-    Currency dram;
-    Currency guilder;
-    List<Currency> testCurrencies;
+    Map<String, Double> anchorRates;
+    RateSnapshot snapshot;
+    RateSnapshot reloadedSnapshot;
 
     @BeforeEach
     void setUp() {
-        euro = new Currency("Euro", "EUR");
-        dollar = new Currency("United States Dollar", "USD");
-        dram = new Currency("Armenian Dram", "AMD");
-        guilder = new Currency("Netherlands Antillean Guilder", "ANG");
-        testCurrencies = List.of(euro, dollar, dram, guilder);
+        anchorRates = new HashMap<>();
+        anchorRates.put("EUR", 1.0);
+        anchorRates.put("USD", 1.25);
+        anchorRates.put("AMD", 500.0);
+        anchorRates.put("ANG", 2.5);
+
+        snapshot = new RateSnapshot(1L, Instant.now(), RateMatrix.fromAnchorRates("EUR", anchorRates));
+        reloadedSnapshot = new RateSnapshot(2L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of(
+                "EUR", 1.0,
+                "USD", 1.088186,
+                "AMD", 422.228721,
+                "ANG", 1.965639,
+                "GBP", 0.86)));
+
+        ReflectionTestUtils.setField(exchangeService, "DEFAULT_DEADLINE_MILLIS", 3000L);
+        ReflectionTestUtils.setField(exchangeService, "MAX_DEADLINE_MILLIS", 30000L);
     }
 
     @AfterEach
     void tearDown() {
-        euro = null;
-        dollar = null;
-        dram = null;
-        guilder = null;
-        testCurrencies = null;
+        anchorRates = null;
+        snapshot = null;
+        reloadedSnapshot = null;
     }
 
     @Test
-    void whenGettingExchangeRateForAll_withValidInput_NotInCache_thenContactExternalAPI() {
+    void whenGettingExchangeRateForAll_withValidInput_InSnapshot_thenReadFromSnapshot() {
         // Set up Expectations
-        // External API Call
-        HashMap<String, Double> returnedRates = new HashMap<>();
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
 
-        returnedRates.put("USD", 1.088186);
-        returnedRates.put("AMD", 422.228721);
-        returnedRates.put("ANG", 1.965639);
-
-        ExchangeRateDTO ratesDTO = new ExchangeRateDTO();
-        ratesDTO.setRates(returnedRates);
+        // Verify the result is as expected
+        Map<String, Double> exchangeRate = exchangeService.getExchangeRateForAll("EUR").block().getValue();
 
-        when(externalApiService.getLatestExchanges("EUR", Optional.of("EUR,USD,AMD,ANG,"))).thenReturn(ratesDTO);
+        assertThat(exchangeRate).containsOnlyKeys("AMD", "ANG", "USD", "EUR")
+                .containsEntry("USD",1.25)
+                .containsEntry("EUR", 1.0);
 
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.findByCode("AMD")).thenReturn(Optional.of(dram));
-        when(currencyRepository.findByCode("ANG")).thenReturn(Optional.of(guilder));
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
-        when(currencyRepository.findAll()).thenReturn(testCurrencies);
+        // Method invocation verifications
+        verify(currencyRegistry, times(1)).contains("EUR");
+        verify(demandTracker, times(1)).record("EUR");
+        verify(rateStore, times(1)).getSnapshotReactive();
+        verify(rateStore, never()).reloadSnapshotReactive();
+    }
 
-        // Cache calls
-        when(cacheManager.getCache(Mockito.any())).thenReturn(exchangeRateCache);
-        when(exchangeRateCache.get("EUR_AMD")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_ANG")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_USD")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_EUR")).thenReturn(null);
+    @Test
+    void whenGettingExchangeRateForAll_withNonAnchorInput_InSnapshot_thenDeriveCrossRates() {
+        // Set up Expectations
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
 
         // Verify the result is as expected
-        Map<String, Double> exchangeRate = exchangeService.getExchangeRateForAll("EUR");
+        Map<String, Double> exchangeRate = exchangeService.getExchangeRateForAll("USD").block().getValue();
 
-        assertThat(exchangeRate).containsOnlyKeys("AMD", "ANG", "USD").containsEntry("USD",1.088186);
+        assertThat(exchangeRate).containsOnlyKeys("AMD", "ANG", "USD", "EUR")
+                .containsEntry("EUR", 0.8)
+                .containsEntry("USD", 1.0)
+                .containsEntry("AMD", 400.0)
+                .containsEntry("ANG", 2.0);
 
         // Method invocation verifications
-        verify(externalApiService, times(1)).getLatestExchanges("EUR", Optional.of("EUR,USD,AMD,ANG,"));
+        verify(rateStore, never()).reloadSnapshotReactive();
+    }
 
-        verify(currencyRepository, times(1)).existsByCode("EUR");
-        verify(currencyRepository, times(3)).findByCode(Mockito.any());
-        verify(currencyRepository, times(1)).findAll();
+    @Test
+    void whenGettingExchangeRateForAll_withValidInput_NotInSnapshot_thenReloadSnapshot() {
+        // Set up Expectations
+        when(currencyRegistry.contains("GBP")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.just(reloadedSnapshot));
 
-        verify(exchangeRateCache, times(4)).get(Mockito.any());
+        // Verify the result is as expected
+        Map<String, Double> exchangeRate = exchangeService.getExchangeRateForAll("GBP").block().getValue();
 
-        verify(exchangeRateCache, times(1)).put("EUR_AMD", 422.228721);
-        verify(exchangeRateCache, times(1)).put("EUR_ANG", 1.965639);
-        verify(exchangeRateCache, times(1)).put("EUR_USD", 1.088186);
+        assertThat(exchangeRate).containsOnlyKeys("AMD", "ANG", "USD", "EUR", "GBP")
+                .containsEntry("GBP", 1.0)
+                .containsEntry("EUR", 1 / 0.86);
+
+        // Method invocation verifications
+        verify(rateStore, times(1)).reloadSnapshotReactive();
     }
 
     @Test
-    void whenGettingExchangeRateForAll_withValidInput_AllInCache_thenSearchInCache() {
+    void whenGettingExchangeRateForAll_withValidInput_NotReturnedByExternalAPI_thenThrowException() {
         // Set up Expectations
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.findAll()).thenReturn(testCurrencies);
+        when(currencyRegistry.contains("SEK")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.just(reloadedSnapshot));
 
-        // Cache Calls
-        when(cacheManager.getCache(Mockito.any())).thenReturn(exchangeRateCache);
-        Cache.ValueWrapper cachedValue = mock(Cache.ValueWrapper.class);
-        when(cachedValue.get()).thenReturn(422.228721);
-
-        when(exchangeRateCache.get("EUR_AMD")).thenReturn(cachedValue);
-        when(exchangeRateCache.get("EUR_ANG")).thenReturn(cachedValue);
-        when(exchangeRateCache.get("EUR_USD")).thenReturn(cachedValue);
-        when(exchangeRateCache.get("EUR_EUR")).thenReturn(cachedValue);
+        // Verify the result is as expected
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForAll("SEK").block())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API did not return a rate for SEK");
+    }
 
+    @Test
+    void whenGettingExchangeRateForAll_withValidInput_externalAPIFailure_thenThrowException() {
+        // Set up Expectations
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
         // Verify the result is as expected
-        Map<String, Double> exchangeRate = exchangeService.getExchangeRateForAll("EUR");
-
-        assertThat(exchangeRate).containsOnlyKeys("AMD", "ANG", "USD", "EUR").containsEntry("USD",422.228721);
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForAll("EUR").block())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API request failed");
 
         // Method invocation verifications
-        verify(currencyRepository, times(1)).existsByCode("EUR");
-        verify(currencyRepository, times(1)).findAll();
-
-        verify(exchangeRateCache, times(4)).get(Mockito.any());
+        verify(currencyRegistry, times(1)).contains("EUR");
+        verify(rateStore, never()).reloadSnapshotReactive();
     }
 
     @Test
-    void whenGettingExchangeRateForAll_withValidInput_SomeInCache_thenSearchInCache() {
+    void whenGettingExchangeRateForAll_withInvalidInput_thenThrowException() {
         // Set up Expectations
-        HashMap<String, Double> returnedRates = new HashMap<>();
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
 
-        returnedRates.put("AMD", 422.228721);
-        returnedRates.put("ANG", 1.965639);
-
-        ExchangeRateDTO ratesDTO = new ExchangeRateDTO();
-        ratesDTO.setRates(returnedRates);
+        // Verify the result is as expected
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForAll("ZZZ").block())
+                .isInstanceOf(InvalidCurrencyException.class)
+                .hasMessage("Invalid currency code provided!");
 
-        when(externalApiService.getLatestExchanges("EUR", Optional.of("AMD,ANG,"))).thenReturn(ratesDTO);
+        // Method invocation verifications
+        verifyNoInteractions(rateStore);
+    }
 
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.findByCode("AMD")).thenReturn(Optional.of(dram));
-        when(currencyRepository.findByCode("ANG")).thenReturn(Optional.of(guilder));
-        when(currencyRepository.findAll()).thenReturn(testCurrencies);
+    @Test
+    void whenGettingExchangeRateForSpecificCurrency_withValidInput_InSnapshot_thenReadFromSnapshot() {
+        // Set up Expectations
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
 
-        // Cache calls
-        when(cacheManager.getCache(Mockito.any())).thenReturn(exchangeRateCache);
-        Cache.ValueWrapper cachedValue = mock(Cache.ValueWrapper.class);
-        when(cachedValue.get()).thenReturn(422.228721);
+        // Verify the result is as expected
+        assertThat(exchangeService.getExchangeRateForSpecificCurrency("USD", "AMD").block().getValue()).isEqualTo(400.0);
 
-        when(exchangeRateCache.get("EUR_AMD")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_ANG")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_USD")).thenReturn(cachedValue);
-        when(exchangeRateCache.get("EUR_EUR")).thenReturn(cachedValue);
+        // Method invocation verifications
+        verify(rateStore, never()).reloadSnapshotReactive();
+    }
 
+    @Test
+    void whenGettingExchangeRateForSpecificCurrency_withValidInput_NotInSnapshot_thenReloadSnapshot() {
+        // Set up Expectations
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("GBP")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.just(reloadedSnapshot));
 
         // Verify the result is as expected
-        Map<String, Double> exchangeRate = exchangeService.getExchangeRateForAll("EUR");
+        RateResult<Double> exchangeRate = exchangeService.getExchangeRateForSpecificCurrency("EUR", "GBP").block();
 
-        assertThat(exchangeRate).containsOnlyKeys("AMD", "ANG", "USD", "EUR")
-                .containsEntry("USD",422.228721)
-                .containsEntry("ANG", 1.965639);
+        assertThat(exchangeRate.getValue()).isEqualTo(0.86);
+        assertThat(exchangeRate.getSnapshot()).isSameAs(reloadedSnapshot);
 
         // Method invocation verifications
-        verify(externalApiService, times(1)).getLatestExchanges("EUR", Optional.of("AMD,ANG,"));
+        verify(rateStore, times(1)).reloadSnapshotReactive();
+    }
 
-        verify(currencyRepository, times(1)).existsByCode("EUR");
-        verify(currencyRepository, times(2)).findByCode(Mockito.any());
-        verify(currencyRepository, times(1)).findAll();
+    @Test
+    void whenGettingExchangeRateForSpecificCurrency_withValidInput_externalAPIFailure_thenThrowException() {
+        // Set up Expectations
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("GBP")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
 
-        verify(exchangeRateCache, times(4)).get(Mockito.any());
+        // Verify the result is as expected
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForSpecificCurrency("EUR", "GBP").block())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API request failed");
+    }
+
+    @Test
+    void whenGettingExchangeRateForSpecificCurrency_withInvalidFromInput_thenThrowException() {
+        // Set up Expectations
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
 
-        verify(exchangeRateCache, times(1)).put("EUR_AMD", 422.228721);
-        verify(exchangeRateCache, times(1)).put("EUR_ANG", 1.965639);
+        // Verify the result is as expected
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForSpecificCurrency("ZZZ","EUR").block())
+                .isInstanceOf(InvalidCurrencyException.class)
+                .hasMessage("Invalid currency code(s) provided!");
     }
 
     @Test
-    void whenGettingExchangeRateForAll_withValidInput_NotInCache_externalAPIFailure_thenThrowException() {
+    void whenGettingExchangeRateForSpecificCurrency_withInvalidToInput_thenThrowException() {
         // Set up Expectations
-        when(externalApiService.getLatestExchanges("EUR", Optional.of("EUR,USD,AMD,ANG,"))).thenThrow(new ExternalApiConnectionError("External API request failed"));
-
-        // Repository calls
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.findByCode("AMD")).thenReturn(Optional.of(dram));
-        when(currencyRepository.findByCode("ANG")).thenReturn(Optional.of(guilder));
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
-        when(currencyRepository.findAll()).thenReturn(testCurrencies);
-
-        // Cache calls
-        when(cacheManager.getCache(Mockito.any())).thenReturn(exchangeRateCache);
-        when(exchangeRateCache.get("EUR_AMD")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_ANG")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_USD")).thenReturn(null);
-        when(exchangeRateCache.get("EUR_EUR")).thenReturn(null);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> exchangeService.getExchangeRateForAll("EUR"))
-                .isInstanceOf(ExternalApiConnectionError.class)
-                .hasMessage("External API request failed");
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForSpecificCurrency("EUR","ZZZ").block())
+                .isInstanceOf(InvalidCurrencyException.class)
+                .hasMessage("Invalid currency code(s) provided!");
+    }
+
+    @Test
+    void whenGettingRateSnapshot_allInSnapshot_thenReturnCurrentSnapshot() {
+        // Set up Expectations
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+
+        // Verify the result is as expected
+        assertThat(exchangeService.getRateSnapshot("USD", List.of("AMD", "ANG")).block()).isSameAs(snapshot);
 
         // Method invocation verifications
-        verify(currencyRepository, times(1)).existsByCode("EUR");
-        verify(currencyRepository, times(1)).findAll();
+        verify(rateStore, never()).reloadSnapshotReactive();
+    }
+
+    @Test
+    void whenGettingRateSnapshot_someNotInSnapshot_thenReturnReloadedSnapshot() {
+        // Set up Expectations
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.just(reloadedSnapshot));
 
-        verify(exchangeRateCache, times(4)).get(Mockito.any());
-        verify(externalApiService, times(1)).getLatestExchanges("EUR", Optional.of("EUR,USD,AMD,ANG,"));
+        // Verify the result is as expected - every rate is read from the same, newly published, snapshot
+        RateSnapshot pinnedSnapshot = exchangeService.getRateSnapshot("USD", List.of("AMD", "GBP")).block();
+
+        assertThat(pinnedSnapshot).isSameAs(reloadedSnapshot);
+        assertThat(pinnedSnapshot.getRate("USD", "AMD")).isEqualTo(422.228721 / 1.088186);
+        assertThat(pinnedSnapshot.getRate("USD", "GBP")).isEqualTo(0.86 / 1.088186);
+
+        // Method invocation verifications
+        verify(rateStore, times(1)).reloadSnapshotReactive();
     }
 
     @Test
-    void whenGettingExchangeRateForAll_withInvalidInput_thenThrowException() {
+    void whenGettingExchangeRateForSpecificCurrency_deadlineExceeded_thenServePublishedSnapshotWithMissingCurrency() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("GBP")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.never());
+        when(rateStore.getPublishedSnapshot()).thenReturn(snapshot);
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> exchangeService.getExchangeRateForAll("ZZZ"))
-                .isInstanceOf(InvalidCurrencyException.class)
-                .hasMessage("Invalid currency code provided!");
+        RateResult<Double> exchangeRate = exchangeService.getExchangeRateForSpecificCurrency("EUR", "GBP", 50L).block();
 
+        assertThat(exchangeRate.getValue()).isNull();
+        assertThat(exchangeRate.getSnapshot()).isSameAs(snapshot);
+        assertThat(exchangeRate.getMissingCodes()).containsExactly("GBP");
     }
 
     @Test
-    void whenGettingExchangeRateForSpecificCurrency_withValidInput_NotInCache_thenContactExternalAPI() {
+    void whenGettingExchangeRateForAll_deadlineExceeded_thenServePublishedSnapshotWithMissingCurrencies() {
         // Set up Expectations
-        HashMap<String, Double> returnedRates = new HashMap<>();
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.getAll()).thenReturn(List.of(
+                new Currency("Euro", "EUR"),
+                new Currency("United States Dollar", "USD"),
+                new Currency("British Pound Sterling", "GBP")));
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.never());
+        when(rateStore.getPublishedSnapshot()).thenReturn(snapshot);
 
-        returnedRates.put("USD", 1.088186);
+        // Verify the result is as expected
+        RateResult<Map<String, Double>> exchangeRates = exchangeService.getExchangeRateForAll("USD", 50L).block();
+
+        assertThat(exchangeRates.getValue()).containsEntry("EUR", 0.8).doesNotContainKey("GBP");
+        assertThat(exchangeRates.getMissingCodes()).containsExactly("GBP");
+    }
 
-        ExchangeRateDTO ratesDTO = new ExchangeRateDTO();
-        ratesDTO.setRates(returnedRates);
+    @Test
+    void whenGettingRateSnapshot_deadlineExceeded_noPublishedSnapshot_thenThrowException() {
+        // Set up Expectations - the requested deadline is capped by the maximum one
+        ReflectionTestUtils.setField(exchangeService, "MAX_DEADLINE_MILLIS", 50L);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.never());
+        when(rateStore.getPublishedSnapshot()).thenReturn(null);
 
-        when(externalApiService.getLatestExchanges("EUR", Optional.of("USD"))).thenReturn(ratesDTO);
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-        when(currencyRepository.findByCode("USD")).thenReturn(Optional.of(dollar));
+        // Verify the result is as expected
+        assertThatThrownBy(() -> exchangeService.getRateSnapshot("EUR", List.of("USD"), 60000L).block(Duration.ofSeconds(5)))
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("The exchange rates from EUR could not be loaded within the request deadline");
+    }
 
-        // Cache calls
-        when(cacheManager.getCache(Mockito.any())).thenReturn(exchangeRateCache);
+    @Test
+    void whenGettingBatchRateSnapshot_someNotInSnapshot_thenReloadOnceForEveryBase() {
+        // Set up Expectations
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.just(reloadedSnapshot));
 
         // Verify the result is as expected
-        Double exchangeRate = exchangeService.getExchangeRateForSpecificCurrency("EUR", "USD");
+        RateSnapshot pinnedSnapshot = exchangeService.getBatchRateSnapshot(List.of("EUR", "USD", "GBP"), List.of("AMD"), null).block();
 
-        assertThat(exchangeRate).isEqualTo(1.088186);
+        assertThat(pinnedSnapshot).isSameAs(reloadedSnapshot);
 
         // Method invocation verifications
-        verify(externalApiService, times(1)).getLatestExchanges("EUR", Optional.of("USD"));
-        verify(exchangeRateCache, times(1)).put("EUR_USD", 1.088186);
+        verify(rateStore, times(1)).reloadSnapshotReactive();
+        verify(demandTracker, times(1)).record("GBP");
     }
 
     @Test
-    void whenGettingExchangeRateForSpecificCurrency_withValidInput_NotInCache_externalAPIFailure_thenThrowException() {
+    void whenGettingExchangeRateForCurrencies_withValidInput_InSnapshot_thenReadListInOrder() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("USD")).thenReturn(true);
-        when(externalApiService.getLatestExchanges("EUR", Optional.of("USD"))).thenThrow(new ExternalApiConnectionError("External API request failed"));
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> exchangeService.getExchangeRateForSpecificCurrency("EUR", "USD"))
-                .isInstanceOf(ExternalApiConnectionError.class)
-                .hasMessage("External API request failed");
+        RateResult<Map<String, Double>> exchangeRates = exchangeService.getExchangeRateForCurrencies("USD", List.of("AMD", "EUR"), null).block();
+
+        assertThat(exchangeRates.getValue()).containsExactly(Map.entry("AMD", 400.0), Map.entry("EUR", 0.8));
+        assertThat(exchangeRates.isPartial()).isFalse();
 
         // Method invocation verifications
-        verify(externalApiService, times(1)).getLatestExchanges("EUR", Optional.of("USD"));
+        verify(rateStore, never()).reloadSnapshotReactive();
     }
 
     @Test
-    void whenGettingExchangeRateForSpecificCurrency_withInvalidFromInput_thenThrowException() {
+    void whenGettingExchangeRateForCurrencies_withInvalidInputs_thenThrowExceptionNamingThem() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.contains("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(currencyRegistry.contains("YYY")).thenReturn(false);
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> exchangeService.getExchangeRateForSpecificCurrency("ZZZ","EUR"))
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForCurrencies("USD", List.of("ZZZ", "EUR", "YYY", "ZZZ"), null).block())
                 .isInstanceOf(InvalidCurrencyException.class)
-                .hasMessage("Invalid currency code(s) provided!");
+                .hasMessage("Invalid currency code(s) ZZZ, YYY provided!");
+
+        // Method invocation verifications
+        verifyNoInteractions(rateStore);
     }
 
     @Test
-    void whenGettingExchangeRateForSpecificCurrency_withInvalidToInput_thenThrowException() {
+    void whenGettingExchangeRateForPairs_withManyBases_NotInSnapshot_thenReloadSnapshotOnce() {
         // Set up Expectations
-        when(currencyRepository.existsByCode("EUR")).thenReturn(true);
-        when(currencyRepository.existsByCode("ZZZ")).thenReturn(false);
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("GBP")).thenReturn(true);
+        when(currencyRegistry.contains("EUR")).thenReturn(true);
+        when(rateStore.getSnapshotReactive()).thenReturn(Mono.just(snapshot));
+        when(rateStore.reloadSnapshotReactive()).thenReturn(Mono.just(reloadedSnapshot));
 
         // Verify the result is as expected
-        assertThatThrownBy(() -> exchangeService.getExchangeRateForSpecificCurrency("EUR","ZZZ"))
+        RateResult<Map<String, Double>> exchangeRates = exchangeService.getExchangeRateForPairs(List.of("USDAMD", "GBPEUR", "EURUSD"), null).block();
+
+        assertThat(exchangeRates.getValue()).containsExactly(
+                Map.entry("USDAMD", reloadedSnapshot.getRate("USD", "AMD")),
+                Map.entry("GBPEUR", reloadedSnapshot.getRate("GBP", "EUR")),
+                Map.entry("EURUSD", 1.088186));
+        assertThat(exchangeRates.getSnapshot()).isSameAs(reloadedSnapshot);
+
+        // Method invocation verifications
+        verify(rateStore, times(1)).reloadSnapshotReactive();
+    }
+
+    @Test
+    void whenGettingExchangeRateForPairs_withMalformedPair_thenThrowException() {
+        // Set up Expectations
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> exchangeService.getExchangeRateForPairs(List.of("USDEU"), null).block())
                 .isInstanceOf(InvalidCurrencyException.class)
-                .hasMessage("Invalid currency code(s) provided!");
+                .hasMessage("Invalid currency pair USDEU provided!");
+
+        // Method invocation verifications
+        verifyNoInteractions(rateStore);
     }
 }
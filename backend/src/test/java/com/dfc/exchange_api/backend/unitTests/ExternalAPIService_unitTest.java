@@ -2,33 +2,60 @@ package com.dfc.exchange_api.backend.unitTests;
 
 import com.dfc.exchange_api.backend.models.ExchangeRateDTO;
 import com.dfc.exchange_api.backend.models.FetchedSymbolsDTO;
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.exceptions.ExternalApiQuotaExceededError;
+import com.dfc.exchange_api.backend.services.ExternalApiCircuitBreaker;
+import com.dfc.exchange_api.backend.services.ExternalApiQuota;
 import com.dfc.exchange_api.backend.services.ExternalApiService;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(MockitoExtension.class)
 class ExternalAPIService_unitTest {
     private MockWebServer mockWebServer;
 
-    @InjectMocks
+    ExternalApiCircuitBreaker circuitBreaker;
+    ExternalApiQuota quota;
     ExternalApiService externalApiService;
 
     @BeforeEach
     void setup() throws IOException {
         mockWebServer = new MockWebServer();
         mockWebServer.start();
+        circuitBreaker = new ExternalApiCircuitBreaker(4, 2, 50, 100, 2000, 60000, 1, Clock.systemUTC());
+        quota = new ExternalApiQuota(100, 100, 100000, 0.25, Clock.systemUTC());
+        externalApiService = new ExternalApiService(circuitBreaker, quota, WebClient.create());
         externalApiService.setBASE_URL( mockWebServer.url("/").toString());
+        ReflectionTestUtils.setField(externalApiService, "MAX_ATTEMPTS", 3);
+        ReflectionTestUtils.setField(externalApiService, "INITIAL_BACKOFF_MILLIS", 10L);
+        ReflectionTestUtils.setField(externalApiService, "MAX_BACKOFF_MILLIS", 50L);
+        ReflectionTestUtils.setField(externalApiService, "BACKOFF_JITTER", 0.5);
+        ReflectionTestUtils.setField(externalApiService, "TIME_BUDGET_MILLIS", 5000L);
+        ReflectionTestUtils.setField(externalApiService, "HEDGE_ENABLED", false);
+        ReflectionTestUtils.setField(externalApiService, "HEDGE_DELAY_MILLIS", 200L);
     }
 
     @AfterEach
@@ -100,6 +127,77 @@ class ExternalAPIService_unitTest {
         assertThat(response.getRates()).containsOnlyKeys("GBP", "USD");
     }
 
+    @Test
+    void whenGetLatestExchanges_unexpectedFields_thenDecodeOnlyRates() {
+        // Set up Expectations
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"motd\": {\"msg\": \"rates\"}, \"tags\": [{\"rates\": 1}], " +
+                        "\"rates\": {\"USD\": 1.086628, \"JPY\": 158, \"XXX\": null}, \"base\": \"EUR\"}"));
+
+        // Verify the result is as expected
+        ExchangeRateDTO response = externalApiService.getLatestExchanges("EUR", Optional.empty());
+
+        assertThat(response.size()).isEqualTo(2);
+        assertThat(response.getCode(0)).isEqualTo("USD");
+        assertThat(response.getRate(0)).isEqualTo(1.086628);
+        assertThat(response.getCode(1)).isEqualTo("JPY");
+        assertThat(response.getRate(1)).isEqualTo(158.0);
+    }
+
+    @Test
+    void whenGetLatestExchanges_invalidRates_thenSkipThem() {
+        // Set up Expectations
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"AAA\": \"n/a\", \"USD\": 1.086628, \"BBB\": true, \"CCC\": 0, " +
+                        "\"DDD\": -1.5, \"EEE\": 1e400, \"JPY\": 158}, \"base\": \"EUR\"}"));
+
+        // Verify the result is as expected
+        ExchangeRateDTO response = externalApiService.getLatestExchanges("EUR", Optional.empty());
+
+        assertThat(response.getRates()).containsExactly(Map.entry("USD", 1.086628), Map.entry("JPY", 158.0));
+    }
+
+    @Test
+    void whenGetLatestExchanges_nestedRates_thenSkipThemAndReadFollowingRates() {
+        // Set up Expectations
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"AAA\": {\"USD\": 2.0, \"bid\": [1.0, {\"GBP\": 3.0}]}, \"USD\": 1.086628, " +
+                        "\"BBB\": [4.0, 5.0], \"GBP\": 0.854976}, \"base\": \"EUR\"}"));
+
+        // Verify the result is as expected
+        ExchangeRateDTO response = externalApiService.getLatestExchanges("EUR", Optional.empty());
+
+        assertThat(response.getRates()).containsExactly(Map.entry("USD", 1.086628), Map.entry("GBP", 0.854976));
+    }
+
+    @Test
+    void whenGetLatestExchanges_notModified_thenSendValidatorsAndReuseLastResponse() throws Exception {
+        // Set up Expectations
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setHeader("ETag", "\"v1\"")
+                .setHeader("Last-Modified", "Thu, 17 Aug 2023 00:00:00 GMT")
+                .setBody("{\"rates\": {\"USD\": 1.086628}}"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+
+        // Verify the result is as expected
+        ExchangeRateDTO response = externalApiService.getLatestExchanges("EUR", Optional.empty());
+
+        assertThat(externalApiService.getLatestExchanges("EUR", Optional.empty())).isSameAs(response);
+        assertThat(mockWebServer.takeRequest().getHeader("If-None-Match")).isNull();
+
+        RecordedRequest conditionalRequest = mockWebServer.takeRequest();
+        assertThat(conditionalRequest.getHeader("If-None-Match")).isEqualTo("\"v1\"");
+        assertThat(conditionalRequest.getHeader("If-Modified-Since")).isEqualTo("Thu, 17 Aug 2023 00:00:00 GMT");
+    }
+
     @Test
     void whenGetAvailableCurrencies_returnsSuccess() {
         // Set up Expectations
@@ -144,4 +242,219 @@ class ExternalAPIService_unitTest {
         assertThat(response.getSymbols()).containsOnlyKeys("AED", "AFN", "ZAR", "ZMW", "ZWL");
     }
 
-}
\ No newline at end of file
+    @Test
+    void whenGetLatestExchanges_concurrentCalls_thenContactExternalAPIOnce() throws Exception {
+        // Set up Expectations - the response is delayed, so that every call is made while the first one is in flight
+        MockResponse mockResponse = new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"GBP\": 0.853548, \"USD\": 1.086628}}")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS);
+        mockWebServer.enqueue(mockResponse);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<ExchangeRateDTO>> responses = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            responses.add(executor.submit(() -> {
+                startSignal.await();
+                return externalApiService.getLatestExchanges("EUR", Optional.of("USD,GBP"));
+            }));
+        }
+        startSignal.countDown();
+
+        // Verify the result is as expected
+        ExchangeRateDTO firstResponse = responses.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<ExchangeRateDTO> response : responses) {
+            assertThat(response.get(5, TimeUnit.SECONDS)).isSameAs(firstResponse);
+        }
+
+        assertThat(firstResponse.getRates()).containsOnlyKeys("GBP", "USD");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(mockWebServer.takeRequest().getPath()).isEqualTo("/latest?base=EUR&symbols=GBP,USD");
+
+        executor.shutdown();
+    }
+
+    @Test
+    void whenGetLatestExchanges_sequentialCalls_thenContactExternalAPIEachTime() {
+        // Set up Expectations
+        MockResponse mockResponse = new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"USD\": 1.086628}}");
+        mockWebServer.enqueue(mockResponse);
+        mockWebServer.enqueue(mockResponse);
+
+        // Verify the result is as expected
+        externalApiService.getLatestExchanges("EUR", Optional.empty());
+        externalApiService.getLatestExchanges("EUR", Optional.empty());
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void whenGetLatestExchanges_serverError_thenRetryAndThrowException() {
+        // Set up Expectations
+        for (int i = 0; i < 3; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> externalApiService.getLatestExchanges("EUR", Optional.empty()))
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API server error");
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void whenGetLatestExchanges_transientError_thenRetryAndReturnSuccess() {
+        // Set up Expectations
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429));
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"USD\": 1.086628}}"));
+
+        // Verify the result is as expected
+        ExchangeRateDTO response = externalApiService.getLatestExchanges("EUR", Optional.empty());
+
+        assertThat(response.getRates()).containsOnlyKeys("USD");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void whenGetLatestExchanges_clientError_thenThrowExceptionWithoutRetrying() {
+        // Set up Expectations
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> externalApiService.getAvailableCurrencies())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API client error");
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenGetLatestExchanges_timeBudgetExhausted_thenThrowException() {
+        // Set up Expectations
+        ReflectionTestUtils.setField(externalApiService, "TIME_BUDGET_MILLIS", 200L);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"USD\": 1.086628}}")
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> externalApiService.getLatestExchanges("EUR", Optional.empty()))
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API request timed out");
+    }
+
+    @Test
+    void whenGetLatestExchanges_slowResponse_thenHedgedRequestAnswers() {
+        // Set up Expectations
+        ReflectionTestUtils.setField(externalApiService, "HEDGE_ENABLED", true);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"GBP\": 0.853548}}")
+                .setHeadersDelay(3, TimeUnit.SECONDS));
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"USD\": 1.086628}}"));
+
+        // Verify the result is as expected
+        long startedAt = System.nanoTime();
+        ExchangeRateDTO response = externalApiService.getLatestExchanges("EUR", Optional.empty());
+
+        assertThat(response.getRates()).containsOnlyKeys("USD");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(3000);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void whenGetLatestExchanges_circuitOpen_thenFailWithoutContactingExternalAPI() {
+        // Set up Expectations
+        ReflectionTestUtils.setField(externalApiService, "MAX_ATTEMPTS", 1);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> externalApiService.getLatestExchanges("EUR", Optional.empty()))
+                    .hasMessage("External API server error");
+        }
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.getState()).isEqualTo(ExternalApiCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> externalApiService.getLatestExchanges("EUR", Optional.empty()))
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API circuit breaker is open");
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void whenGetLatestExchanges_quotaExhausted_thenFailWithoutContactingExternalAPI() {
+        // Set up Expectations
+        quota = new ExternalApiQuota(1, 0, 100000, 0.25, Clock.systemUTC());
+        externalApiService = new ExternalApiService(circuitBreaker, quota, WebClient.create());
+        externalApiService.setBASE_URL(mockWebServer.url("/").toString());
+        ReflectionTestUtils.setField(externalApiService, "MAX_ATTEMPTS", 3);
+        ReflectionTestUtils.setField(externalApiService, "INITIAL_BACKOFF_MILLIS", 10L);
+        ReflectionTestUtils.setField(externalApiService, "MAX_BACKOFF_MILLIS", 50L);
+        ReflectionTestUtils.setField(externalApiService, "TIME_BUDGET_MILLIS", 5000L);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        // Verify the result is as expected - the retry is over budget, but the call still failed on the External API
+        assertThatThrownBy(() -> externalApiService.getLatestExchanges("EUR", Optional.empty()))
+                .isInstanceOf(ExternalApiQuotaExceededError.class)
+                .hasMessage("External API quota is exhausted");
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(circuitBreaker.getStatistics())
+                .containsEntry("bufferedCalls", 1)
+                .containsEntry("failureRate", 100.0);
+        assertThat(quota.getStatistics()).containsEntry("rejectedCalls", Map.of("HIGH", 1L, "LOW", 0L));
+    }
+
+    @Test
+    void whenGetAvailableCurrencies_quotaTight_thenFailWithoutContactingExternalAPI() {
+        // Set up Expectations - 2 tokens left of 4, which are reserved to loading the exchange rates
+        quota = new ExternalApiQuota(4, 0, 100000, 0.5, Clock.systemUTC());
+        externalApiService = new ExternalApiService(circuitBreaker, quota, WebClient.create());
+        externalApiService.setBASE_URL(mockWebServer.url("/").toString());
+        ReflectionTestUtils.setField(externalApiService, "MAX_ATTEMPTS", 1);
+        ReflectionTestUtils.setField(externalApiService, "TIME_BUDGET_MILLIS", 5000L);
+        quota.tryAcquire(ExternalApiQuota.Priority.HIGH);
+        quota.tryAcquire(ExternalApiQuota.Priority.HIGH);
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> externalApiService.getAvailableCurrencies())
+                .isInstanceOf(ExternalApiQuotaExceededError.class);
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(0);
+        assertThat(circuitBreaker.getStatistics()).containsEntry("bufferedCalls", 0);
+    }
+
+    @Test
+    void whenPrewarmingConnections_thenOpenConnectionsToExternalAPI() throws Exception {
+        // Set up Expectations
+        ReflectionTestUtils.setField(externalApiService, "PREWARM_CONNECTIONS", 2);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+        externalApiService.prewarmConnections();
+
+        // Verify the result is as expected
+        assertThat(mockWebServer.takeRequest(2, TimeUnit.SECONDS).getMethod()).isEqualTo("HEAD");
+        assertThat(mockWebServer.takeRequest(2, TimeUnit.SECONDS).getMethod()).isEqualTo("HEAD");
+        assertThat(circuitBreaker.getStatistics()).containsEntry("bufferedCalls", 0);
+    }
+}
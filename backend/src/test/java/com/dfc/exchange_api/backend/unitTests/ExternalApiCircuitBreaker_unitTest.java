@@ -0,0 +1,180 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.services.ExternalApiCircuitBreaker;
+import com.dfc.exchange_api.backend.services.ExternalApiCircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExternalApiCircuitBreaker_unitTest {
+    private static final long FAST_CALL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW_CALL = TimeUnit.MILLISECONDS.toNanos(3000);
+
+    private final AtomicLong currentMillis = new AtomicLong();
+    private ExternalApiCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        // Window of 4 calls, evaluated after 2; opens at 50% failures or 75% slow calls, for 10 seconds
+        circuitBreaker = new ExternalApiCircuitBreaker(4, 2, 50, 75, 2000, 10000, 2, new ControlledClock());
+    }
+
+    @Test
+    void whenCallsSucceed_thenStayClosed() {
+        // Set up Expectations
+        for (int i = 0; i < 10; i++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+            circuitBreaker.record(FAST_CALL, false);
+        }
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void whenFailureRateReachesThreshold_thenOpenAndRejectCalls() {
+        // Set up Expectations
+        circuitBreaker.record(FAST_CALL, false);
+        circuitBreaker.record(FAST_CALL, false);
+        circuitBreaker.record(FAST_CALL, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+        circuitBreaker.record(FAST_CALL, true);
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.getStatistics()).containsEntry("rejectedCalls", 1L);
+    }
+
+    @Test
+    void whenOldFailuresLeaveWindow_thenStayClosed() {
+        // Set up Expectations - a single failure within every window of 4 calls
+        for (int i = 0; i < 12; i++) {
+            circuitBreaker.record(FAST_CALL, i % 4 == 3);
+        }
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void whenSlowCallRateReachesThreshold_thenOpen() {
+        // Set up Expectations
+        circuitBreaker.record(SLOW_CALL, false);
+        circuitBreaker.record(SLOW_CALL, false);
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void whenWaitPeriodElapsed_trialCallsSucceed_thenClose() {
+        // Set up Expectations
+        this.openCircuit();
+        currentMillis.addAndGet(10000);
+
+        // Verify the result is as expected - only the configured number of trial calls is permitted
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+        circuitBreaker.record(FAST_CALL, false);
+        circuitBreaker.record(FAST_CALL, false);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void whenWaitPeriodElapsed_trialCallFails_thenOpenAgain() {
+        // Set up Expectations
+        this.openCircuit();
+        currentMillis.addAndGet(10000);
+
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.record(FAST_CALL, false);
+        circuitBreaker.record(FAST_CALL, true);
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void whenWaitPeriodElapsed_trialCallReleased_thenPermitAnotherTrialCall() {
+        // Set up Expectations
+        this.openCircuit();
+        currentMillis.addAndGet(10000);
+
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.releasePermission();
+
+        // Verify the result is as expected - the released call is neither recorded nor closes the circuit
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(circuitBreaker.getStatistics()).containsEntry("bufferedCalls", 0);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void whenWaitPeriodNotElapsed_thenStayOpen() {
+        // Set up Expectations
+        this.openCircuit();
+        currentMillis.addAndGet(9999);
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void whenGettingStatistics_thenCountTransitions() {
+        // Set up Expectations
+        this.openCircuit();
+        currentMillis.addAndGet(10000);
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.record(FAST_CALL, false);
+        circuitBreaker.record(FAST_CALL, false);
+
+        // Verify the result is as expected
+        assertThat(circuitBreaker.getStatistics())
+                .containsEntry("state", "CLOSED")
+                .containsEntry("transitions", Map.of("CLOSED", 1L, "OPEN", 1L, "HALF_OPEN", 1L));
+    }
+
+    private void openCircuit() {
+        circuitBreaker.record(FAST_CALL, true);
+        circuitBreaker.record(FAST_CALL, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    private class ControlledClock extends Clock {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(currentMillis.get());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.config.ExternalApiClientConfig;
+import com.dfc.exchange_api.backend.models.ExchangeRateDTO;
+import io.netty.handler.timeout.ReadTimeoutException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExternalApiClientConfig_unitTest {
+    private MockWebServer mockWebServer;
+    private ExternalApiClientConfig clientConfig;
+
+    @BeforeEach
+    void setup() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+        clientConfig = new ExternalApiClientConfig();
+        ReflectionTestUtils.setField(clientConfig, "MAX_CONNECTIONS", 4);
+        ReflectionTestUtils.setField(clientConfig, "PENDING_ACQUIRE_MAX", 16);
+        ReflectionTestUtils.setField(clientConfig, "PENDING_ACQUIRE_TIMEOUT_MILLIS", 1000L);
+        ReflectionTestUtils.setField(clientConfig, "MAX_IDLE_MILLIS", 30000L);
+        ReflectionTestUtils.setField(clientConfig, "CONNECT_TIMEOUT_MILLIS", 1000L);
+        ReflectionTestUtils.setField(clientConfig, "WRITE_TIMEOUT_MILLIS", 1000L);
+        ReflectionTestUtils.setField(clientConfig, "RESPONSE_TIMEOUT_MILLIS", 500L);
+        ReflectionTestUtils.setField(clientConfig, "COMPRESSION_ENABLED", true);
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        clientConfig.closeConnections();
+        mockWebServer.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {ExternalApiClientConfig.REACTOR_NETTY_ENGINE, ExternalApiClientConfig.JDK_ENGINE})
+    void whenCallingExternalAPI_gzipResponse_thenRequestAndDecompressIt(String engine) throws Exception {
+        // Set up Expectations
+        ReflectionTestUtils.setField(clientConfig, "ENGINE", engine);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(this.gzip("{\"base\": \"EUR\", \"rates\": {\"USD\": 1.086628}}")));
+
+        ExchangeRateDTO response = clientConfig.externalApiWebClient().get()
+                .uri(mockWebServer.url("/latest").uri())
+                .retrieve()
+                .bodyToMono(ExchangeRateDTO.class)
+                .block();
+
+        // Verify the result is as expected
+        assertThat(response.getRates()).containsEntry("USD", 1.086628);
+
+        RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        assertThat(request.getHeader("Accept-Encoding")).contains("gzip");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {ExternalApiClientConfig.REACTOR_NETTY_ENGINE, ExternalApiClientConfig.JDK_ENGINE})
+    void whenCallingExternalAPI_slowResponse_thenTimeOut(String engine) {
+        // Set up Expectations
+        ReflectionTestUtils.setField(clientConfig, "ENGINE", engine);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"rates\": {\"USD\": 1.086628}}")
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+
+        WebClient webClient = clientConfig.externalApiWebClient();
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> webClient.get()
+                .uri(mockWebServer.url("/latest").uri())
+                .retrieve()
+                .bodyToMono(ExchangeRateDTO.class)
+                .block())
+                .satisfiesAnyOf(
+                        ex -> assertThat(ex).hasRootCauseInstanceOf(ReadTimeoutException.class),
+                        ex -> assertThat(ex).hasCauseInstanceOf(TimeoutException.class));
+    }
+
+    @Test
+    void whenBuildingClient_unknownEngine_thenThrowException() {
+        // Set up Expectations
+        ReflectionTestUtils.setField(clientConfig, "ENGINE", "okhttp");
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> clientConfig.externalApiWebClient())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("okhttp");
+    }
+
+    private Buffer gzip(String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try(GZIPOutputStream outputStream = new GZIPOutputStream(compressed)){
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new Buffer().write(compressed.toByteArray());
+    }
+}
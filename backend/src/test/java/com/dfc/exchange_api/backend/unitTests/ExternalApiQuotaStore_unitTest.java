@@ -0,0 +1,79 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.models.QuotaUsage;
+import com.dfc.exchange_api.backend.repositories.QuotaUsageRepository;
+import com.dfc.exchange_api.backend.services.ExternalApiQuota;
+import com.dfc.exchange_api.backend.services.ExternalApiQuota.Priority;
+import com.dfc.exchange_api.backend.services.ExternalApiQuotaStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExternalApiQuotaStore_unitTest {
+    @Mock
+    private QuotaUsageRepository quotaUsageRepository;
+
+    private ExternalApiQuota quota;
+    private ExternalApiQuotaStore quotaStore;
+
+    @BeforeEach
+    void setUp() {
+        // Bucket of 4 tokens, 10 calls per month
+        quota = new ExternalApiQuota(4, 2, 10, 0.5, Clock.fixed(Instant.parse("2023-08-17T10:00:00Z"), ZoneOffset.UTC));
+        quotaStore = new ExternalApiQuotaStore(quota, quotaUsageRepository);
+    }
+
+    @Test
+    void whenRestoring_callsPersistedThisMonth_thenCountThemAgainstMonthlyLimit() {
+        // Set up Expectations
+        when(quotaUsageRepository.findById("2023-08")).thenReturn(Optional.of(new QuotaUsage("2023-08", 10)));
+
+        quotaStore.restore();
+
+        // Verify the result is as expected
+        assertThat(quota.tryAcquire(Priority.HIGH)).isFalse();
+        assertThat(quota.getStatistics()).containsEntry("callsThisMonth", 10L);
+    }
+
+    @Test
+    void whenRestoring_noCallsPersistedThisMonth_thenStartFromZero() {
+        // Set up Expectations
+        when(quotaUsageRepository.findById("2023-08")).thenReturn(Optional.empty());
+
+        quotaStore.restore();
+
+        // Verify the result is as expected
+        assertThat(quota.getStatistics()).containsEntry("callsThisMonth", 0L);
+    }
+
+    @Test
+    void whenFlushing_callsChanged_thenPersistThemOnce() {
+        // Set up Expectations
+        quota.tryAcquire(Priority.HIGH);
+        quota.tryAcquire(Priority.HIGH);
+
+        quotaStore.flush();
+        quotaStore.flush();
+
+        // Method invocation verifications
+        verify(quotaUsageRepository, times(1)).save(new QuotaUsage("2023-08", 2));
+
+        quota.tryAcquire(Priority.HIGH);
+        quotaStore.flush();
+
+        verify(quotaUsageRepository, times(1)).save(new QuotaUsage("2023-08", 3));
+        verify(quotaUsageRepository, times(2)).save(any());
+    }
+}
@@ -0,0 +1,111 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.services.ExternalApiQuota;
+import com.dfc.exchange_api.backend.services.ExternalApiQuota.MonthlyUsage;
+import com.dfc.exchange_api.backend.services.ExternalApiQuota.Priority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExternalApiQuota_unitTest {
+    private final AtomicLong currentMillis = new AtomicLong(Instant.parse("2023-08-17T10:00:00Z").toEpochMilli());
+    private ExternalApiQuota quota;
+
+    @BeforeEach
+    void setUp() {
+        // Bucket of 4 tokens, refilled at 2 tokens per minute, 10 calls per month, half of them reserved once tight
+        quota = new ExternalApiQuota(4, 2, 10, 0.5, new ControlledClock());
+    }
+
+    @Test
+    void whenBucketEmpty_thenRejectCallsUntilRefilled() {
+        // Set up Expectations
+        for (int i = 0; i < 4; i++) {
+            assertThat(quota.tryAcquire(Priority.HIGH)).isTrue();
+        }
+
+        // Verify the result is as expected
+        assertThat(quota.tryAcquire(Priority.HIGH)).isFalse();
+
+        currentMillis.addAndGet(TimeUnit.SECONDS.toMillis(30));
+
+        assertThat(quota.tryAcquire(Priority.HIGH)).isTrue();
+        assertThat(quota.tryAcquire(Priority.HIGH)).isFalse();
+        assertThat(quota.getStatistics())
+                .containsEntry("callsThisMinute", 5L)
+                .containsEntry("rejectedCalls", Map.of("HIGH", 2L, "LOW", 0L));
+    }
+
+    @Test
+    void whenBudgetTight_thenOnlyLetHighPriorityCallsThrough() {
+        // Set up Expectations - 2 of the 4 tokens are reserved, so a low-priority call needs 3 of them
+        assertThat(quota.tryAcquire(Priority.LOW)).isTrue();
+        assertThat(quota.tryAcquire(Priority.LOW)).isTrue();
+
+        // Verify the result is as expected
+        assertThat(quota.tryAcquire(Priority.LOW)).isFalse();
+        assertThat(quota.tryAcquire(Priority.HIGH)).isTrue();
+        assertThat(quota.tryAcquire(Priority.HIGH)).isTrue();
+        assertThat(quota.getStatistics()).containsEntry("rejectedCalls", Map.of("HIGH", 0L, "LOW", 1L));
+    }
+
+    @Test
+    void whenMonthlyLimitReached_thenRejectCallsUntilNextMonth() {
+        // Set up Expectations
+        for (int i = 0; i < 10; i++) {
+            assertThat(quota.tryAcquire(Priority.HIGH)).isTrue();
+            currentMillis.addAndGet(TimeUnit.MINUTES.toMillis(2));
+        }
+
+        // Verify the result is as expected
+        assertThat(quota.tryAcquire(Priority.HIGH)).isFalse();
+        assertThat(quota.getStatistics())
+                .containsEntry("availableTokens", 4L)
+                .containsEntry("callsThisMonth", 10L)
+                .containsEntry("remainingThisMonth", 0L);
+
+        currentMillis.set(Instant.parse("2023-09-01T00:00:00Z").toEpochMilli());
+
+        assertThat(quota.tryAcquire(Priority.HIGH)).isTrue();
+        assertThat(quota.getStatistics()).containsEntry("callsThisMonth", 1L);
+    }
+
+    @Test
+    void whenMonthlyUsageRestored_thenCountItAgainstMonthlyLimit() {
+        // Set up Expectations
+        quota.restoreMonthlyUsage(new MonthlyUsage(YearMonth.of(2023, 7), 3));
+        quota.restoreMonthlyUsage(new MonthlyUsage(YearMonth.of(2023, 8), 9));
+
+        // Verify the result is as expected - only the calls of the current month are restored
+        assertThat(quota.tryAcquire(Priority.HIGH)).isTrue();
+        assertThat(quota.tryAcquire(Priority.HIGH)).isFalse();
+        assertThat(quota.getMonthlyUsage()).isEqualTo(new MonthlyUsage(YearMonth.of(2023, 8), 10));
+    }
+
+    private class ControlledClock extends Clock {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(currentMillis.get());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.models.ExchangeRateDTO;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
+import com.dfc.exchange_api.backend.services.CurrencyService;
+import com.dfc.exchange_api.backend.services.ExternalApiService;
+import com.dfc.exchange_api.backend.services.RateLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLoader_unitTest {
+    @Mock
+    private ExternalApiService externalApiService;
+    @Mock(lenient = true)
+    private CurrencyRegistry currencyRegistry;
+    @Mock
+    private CurrencyService currencyService;
+
+    @InjectMocks
+    private RateLoader rateLoader;
+
+    @BeforeEach
+    void setUp() {
+        when(currencyRegistry.contains("USD")).thenReturn(true);
+        when(currencyRegistry.contains("AMD")).thenReturn(true);
+        when(currencyRegistry.contains("ANG")).thenReturn(true);
+    }
+
+    @Test
+    void whenFetchingAnchorRates_withValidResponse_thenReturnAnchorRates() {
+        // Set up Expectations
+        HashMap<String, Double> returnedRates = new HashMap<>();
+
+        returnedRates.put("USD", 1.088186);
+        returnedRates.put("AMD", 422.228721);
+        returnedRates.put("ANG", 1.965639);
+
+        when(externalApiService.getLatestExchangesReactive("EUR", Optional.empty())).thenReturn(Mono.just(new ExchangeRateDTO(returnedRates)));
+
+        // Verify the result is as expected
+        RateMatrix rateMatrix = rateLoader.fetchAnchorRates("EUR").block();
+
+        assertThat(rateMatrix.getRates("EUR")).containsOnlyKeys("EUR", "USD", "AMD", "ANG")
+                .containsEntry("EUR", 1.0)
+                .containsEntry("USD", 1.088186);
+        assertThat(rateMatrix.getRates("EUR").keySet()).containsExactly("AMD", "ANG", "EUR", "USD");
+
+        // Method invocation verifications
+        verify(externalApiService, times(1)).getLatestExchangesReactive("EUR", Optional.empty());
+        verify(currencyRegistry, times(3)).contains(Mockito.any());
+        verify(currencyService, never()).fetchSupportedCurrencies();
+    }
+
+    @Test
+    void whenFetchingAnchorRates_unchangedRates_thenReuseRateMatrix() {
+        // Set up Expectations
+        when(externalApiService.getLatestExchangesReactive("EUR", Optional.empty()))
+                .thenReturn(Mono.just(new ExchangeRateDTO(new String[]{"USD", "AMD"}, new double[]{1.088186, 422.228721})))
+                .thenReturn(Mono.just(new ExchangeRateDTO(new String[]{"USD", "AMD"}, new double[]{1.088186, 422.228721})))
+                .thenReturn(Mono.just(new ExchangeRateDTO(new String[]{"USD", "AMD"}, new double[]{1.09, 422.228721})));
+
+        // Verify the result is as expected
+        RateMatrix rateMatrix = rateLoader.fetchAnchorRates("EUR").block();
+
+        assertThat(rateLoader.fetchAnchorRates("EUR").block()).isSameAs(rateMatrix);
+        assertThat(rateLoader.fetchAnchorRates("EUR").block()).isNotSameAs(rateMatrix);
+
+        // Method invocation verifications
+        verify(currencyRegistry, times(4)).contains(Mockito.any());
+    }
+
+    @Test
+    void whenFetchingAnchorRates_unchangedRates_registryRebuilt_thenRebuildRateMatrix() {
+        // Set up Expectations
+        when(externalApiService.getLatestExchangesReactive("EUR", Optional.empty()))
+                .thenReturn(Mono.just(new ExchangeRateDTO(new String[]{"USD", "AMD"}, new double[]{1.088186, 422.228721})));
+        when(currencyRegistry.getVersion()).thenReturn(1L, 2L);
+
+        // Verify the result is as expected
+        RateMatrix rateMatrix = rateLoader.fetchAnchorRates("EUR").block();
+
+        // The supported currencies are reconciled between the two loads, and AMD is no longer supported
+        when(currencyRegistry.contains("AMD")).thenReturn(false);
+        RateMatrix rebuiltRateMatrix = rateLoader.fetchAnchorRates("EUR").block();
+
+        assertThat(rebuiltRateMatrix).isNotSameAs(rateMatrix);
+        assertThat(rebuiltRateMatrix.getRates("EUR")).containsOnlyKeys("EUR", "USD");
+    }
+
+    @Test
+    void whenFetchingAnchorRates_unknownCurrencyFetched_thenFetchSupportedCurrencies() {
+        // Set up Expectations
+        HashMap<String, Double> returnedRates = new HashMap<>();
+
+        returnedRates.put("USD", 1.088186);
+        returnedRates.put("XXX", 2.0);
+        returnedRates.put("YYY", 3.0);
+
+        when(externalApiService.getLatestExchangesReactive("EUR", Optional.empty())).thenReturn(Mono.just(new ExchangeRateDTO(returnedRates)));
+        when(currencyRegistry.contains("XXX")).thenReturn(false);
+        when(currencyRegistry.contains("YYY")).thenReturn(false);
+
+        // Verify the result is as expected
+        assertThat(rateLoader.fetchAnchorRates("EUR").block().getRates("EUR")).containsOnlyKeys("EUR", "USD");
+
+        // Method invocation verifications
+        verify(currencyService, times(1)).fetchSupportedCurrencies();
+    }
+
+    @Test
+    void whenFetchingAnchorRates_externalAPIFailure_thenThrowException() {
+        // Set up Expectations
+        when(externalApiService.getLatestExchangesReactive("EUR", Optional.empty())).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> rateLoader.fetchAnchorRates("EUR").block())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API request failed");
+
+        // Method invocation verifications
+        verify(currencyService, never()).fetchSupportedCurrencies();
+    }
+
+    @Test
+    void whenFetchingAnchorRates_noRatesFetched_thenThrowException() {
+        // Set up Expectations
+        when(externalApiService.getLatestExchangesReactive("EUR", Optional.empty())).thenReturn(Mono.just(new ExchangeRateDTO(null, null)));
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> rateLoader.fetchAnchorRates("EUR").block())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API returned no exchange rates");
+    }
+}
@@ -0,0 +1,43 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.services.RatePoller;
+import com.dfc.exchange_api.backend.services.RateStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatePoller_unitTest {
+    @Mock
+    private RateStore rateStore;
+
+    @InjectMocks
+    private RatePoller ratePoller;
+
+    @Test
+    void whenPolling_thenReloadSnapshot() {
+        // Call the method under test
+        ratePoller.poll();
+
+        // Method invocation verifications
+        verify(rateStore, times(1)).pollSnapshot();
+    }
+
+    @Test
+    void whenPolling_externalAPIFailure_thenKeepServingLastSnapshot() {
+        // Set up Expectations
+        when(rateStore.pollSnapshot()).thenThrow(new ExternalApiConnectionError("External API request failed"));
+
+        // Verify the result is as expected - the failure is only logged, until the next poll
+        assertThatCode(() -> ratePoller.poll()).doesNotThrowAnyException();
+
+        // Method invocation verifications
+        verify(rateStore, never()).clear();
+    }
+}
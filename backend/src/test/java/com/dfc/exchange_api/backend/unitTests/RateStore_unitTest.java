@@ -0,0 +1,464 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.config.JitteredExpiry;
+import com.dfc.exchange_api.backend.exceptions.ExternalApiConnectionError;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.services.DemandTracker;
+import com.dfc.exchange_api.backend.services.RateLoader;
+import com.dfc.exchange_api.backend.services.RateStore;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateStore_unitTest {
+    @Mock
+    private RateLoader rateLoader;
+    @Mock(lenient = true)
+    private DemandTracker demandTracker;
+
+    private CaffeineCacheManager cacheManager;
+    private RateStore rateStore;
+    private final AtomicLong ticker = new AtomicLong();
+    private final Queue<Runnable> backgroundTasks = new ArrayDeque<>();
+    private boolean deferBackgroundTasks = false;
+
+    @BeforeEach
+    void setUp() {
+        // Queueing the background loads, and controlling the passage of time, to keep the tests deterministic
+        Caffeine<Object, Object> caffeineConfig = Caffeine.newBuilder()
+                .executor(task -> {
+                    backgroundTasks.add(task);
+                    this.runBackgroundTasks();
+                })
+                .ticker(ticker::get)
+                .refreshAfterWrite(45, TimeUnit.SECONDS)
+                .expireAfter(new JitteredExpiry(60, 10))
+                .recordStats();
+
+        cacheManager = new CaffeineCacheManager();
+        rateStore = new RateStore(cacheManager, caffeineConfig, rateLoader, demandTracker);
+        ReflectionTestUtils.setField(rateStore, "CACHE_NAME", "exchangeRates");
+        ReflectionTestUtils.setField(rateStore, "ANCHOR_CODE", "EUR");
+        ReflectionTestUtils.setField(rateStore, "RELOAD_WINDOW_MILLIS", 100L);
+        ReflectionTestUtils.setField(rateStore, "STALE_MAX_AGE_SECONDS", 3600L);
+        ReflectionTestUtils.setField(rateStore, "EXPIRY_SECONDS", 60L);
+        ReflectionTestUtils.setField(rateStore, "PULL_MODE", false);
+        rateStore.buildCache();
+    }
+
+    @Test
+    void whenGettingSnapshot_cacheEmpty_thenLoadOnce() {
+        // Set up Expectations
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.25))));
+
+        // Verify the result is as expected
+        RateSnapshot snapshot = rateStore.getSnapshot();
+
+        assertThat(snapshot.getVersion()).isEqualTo(1L);
+        assertThat(snapshot.getRate("USD", "EUR")).isEqualTo(0.8);
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+        assertThat(rateStore.getVersion()).isEqualTo(1L);
+
+        // Method invocation verifications
+        verify(rateLoader, times(1)).fetchAnchorRates("EUR");
+    }
+
+    @Test
+    void whenGettingSnapshot_afterRefreshPeriod_thenServeCurrentAndReloadInBackground() {
+        // Set up Expectations
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5))));
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(50));
+        deferBackgroundTasks = true;
+
+        // Verify the result is as expected - the current snapshot is served while the next one is loaded
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+        assertThat(backgroundTasks).isNotEmpty();
+
+        deferBackgroundTasks = false;
+        this.runBackgroundTasks();
+
+        assertThat(rateStore.getSnapshot().getVersion()).isEqualTo(2L);
+        assertThat(rateStore.getSnapshot().getRate("EUR", "USD")).isEqualTo(1.5);
+
+        // Method invocation verifications
+        verify(rateLoader, times(1)).fetchAnchorRates("EUR");
+    }
+
+    @Test
+    void whenGettingSnapshot_afterExpiry_thenLoadAgain() {
+        // Set up Expectations
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5))));
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(71));
+
+        // Verify the result is as expected
+        assertThat(rateStore.getSnapshot().getRate("EUR", "USD")).isEqualTo(1.5);
+
+        // Method invocation verifications
+        verify(rateLoader, times(1)).fetchAnchorRates("EUR");
+    }
+
+    @Test
+    void whenGettingSnapshot_afterExpiry_thenServeStaleWhileRevalidating() {
+        // Set up Expectations
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5))));
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(71));
+        deferBackgroundTasks = true;
+
+        // Verify the result is as expected - the expired snapshot is served while the next one is loaded
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+        assertThat(backgroundTasks).isNotEmpty();
+
+        deferBackgroundTasks = false;
+        this.runBackgroundTasks();
+
+        assertThat(rateStore.getSnapshot().getRate("EUR", "USD")).isEqualTo(1.5);
+
+        // Method invocation verifications
+        verify(rateLoader, times(1)).fetchAnchorRates("EUR");
+    }
+
+    @Test
+    void whenGettingSnapshot_afterExpiry_externalAPIFailure_thenServeStale() {
+        // Set up Expectations
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(71));
+
+        // Verify the result is as expected
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+    }
+
+    @Test
+    void whenGettingSnapshot_afterMaximumStaleAge_externalAPIFailure_thenThrowException() {
+        // Set up Expectations
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+        rateStore.restoreAnchorRates(Map.of("EUR", 1.0, "USD", 1.25), Instant.now().minusSeconds(7200));
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(71));
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> rateStore.getSnapshot())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API request failed");
+    }
+
+    @Test
+    void whenGettingSnapshot_cacheEmpty_externalAPIFailure_thenThrowException() {
+        // Set up Expectations
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> rateStore.getSnapshot())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API request failed");
+    }
+
+    @Test
+    void whenReloadingSnapshot_thenPublishNewVersion() {
+        // Set up Expectations
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5, "GBP", 0.86))));
+
+        // Verify the result is as expected
+        RateSnapshot snapshot = rateStore.reloadSnapshot();
+
+        assertThat(snapshot.getVersion()).isEqualTo(2L);
+        assertThat(snapshot.contains("GBP")).isTrue();
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+    }
+
+    @Test
+    void whenReloadingSnapshot_unchangedRates_thenRevalidateWithoutNewVersion() {
+        // Set up Expectations
+        RateMatrix rateMatrix = RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(rateMatrix));
+
+        RateSnapshot snapshot = rateStore.reloadSnapshot();
+
+        // Verify the result is as expected - the same RateMatrix is loaded again, so the version isn't bumped
+        RateSnapshot revalidatedSnapshot = rateStore.reloadSnapshot();
+
+        assertThat(revalidatedSnapshot.getVersion()).isEqualTo(snapshot.getVersion());
+        assertThat(revalidatedSnapshot.getRateMatrix()).isSameAs(rateMatrix);
+        assertThat(revalidatedSnapshot.getFetchedAt()).isAfterOrEqualTo(snapshot.getFetchedAt());
+        assertThat(rateStore.getPublishedSnapshot()).isSameAs(revalidatedSnapshot);
+    }
+
+    @Test
+    void whenReloadingSnapshot_concurrentRequests_thenMergeIntoOneLoad() throws Exception {
+        // Set up Expectations
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5, "GBP", 0.86))));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<RateSnapshot>> snapshots = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            snapshots.add(executor.submit(() -> rateStore.reloadSnapshot()));
+        }
+
+        // Verify the result is as expected - every request shares the snapshot of a single load
+        RateSnapshot snapshot = snapshots.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<RateSnapshot> reloadedSnapshot : snapshots) {
+            assertThat(reloadedSnapshot.get(5, TimeUnit.SECONDS)).isSameAs(snapshot);
+        }
+
+        assertThat(snapshot.getVersion()).isEqualTo(2L);
+
+        // Method invocation verifications
+        verify(rateLoader, times(1)).fetchAnchorRates("EUR");
+        executor.shutdown();
+    }
+
+    @Test
+    void whenReloadingSnapshot_loadInProgress_thenReloadAfterIt() throws Exception {
+        // Set up Expectations - a load fetching the old exchange rates is in progress when the reload is requested
+        CompletableFuture<RateMatrix> loadInProgress = new CompletableFuture<>();
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(
+                Mono.fromFuture(loadInProgress),
+                Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5, "GBP", 0.86))));
+
+        CompletableFuture<RateSnapshot> loadedSnapshot = rateStore.getSnapshotReactive().toFuture();
+        CompletableFuture<RateSnapshot> reloadedSnapshot = rateStore.reloadSnapshotReactive().toFuture();
+
+        Thread.sleep(200);
+        loadInProgress.complete(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.25)));
+
+        // Verify the result is as expected - the reload doesn't share the older load, and publishes the newer rates
+        assertThat(loadedSnapshot.get(5, TimeUnit.SECONDS).contains("GBP")).isFalse();
+        assertThat(reloadedSnapshot.get(5, TimeUnit.SECONDS).contains("GBP")).isTrue();
+        assertThat(reloadedSnapshot.get().getVersion()).isEqualTo(2L);
+
+        // Method invocation verifications
+        verify(rateLoader, times(2)).fetchAnchorRates("EUR");
+    }
+
+    @Test
+    void whenReloadingSnapshot_externalAPIFailure_thenKeepCurrentSnapshot() {
+        // Set up Expectations
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> rateStore.reloadSnapshot())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("External API request failed");
+
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+    }
+
+    @Test
+    void whenGettingSnapshot_pullMode_notPolledYet_thenThrowExceptionWithoutLoading() {
+        // Set up Expectations
+        ReflectionTestUtils.setField(rateStore, "PULL_MODE", true);
+
+        // Verify the result is as expected
+        assertThatThrownBy(() -> rateStore.getSnapshot())
+                .isInstanceOf(ExternalApiConnectionError.class)
+                .hasMessage("The exchange rates were not polled yet");
+
+        // Method invocation verifications
+        verifyNoInteractions(rateLoader);
+    }
+
+    @Test
+    void whenGettingSnapshot_pullMode_afterExpiry_thenServePolledSnapshotWithoutLoading() {
+        // Set up Expectations
+        ReflectionTestUtils.setField(rateStore, "PULL_MODE", true);
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.25))));
+
+        RateSnapshot snapshot = rateStore.pollSnapshot();
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(3600));
+
+        // Verify the result is as expected - neither the expiry nor a missing currency trigger a load
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+        assertThat(rateStore.reloadSnapshot()).isSameAs(snapshot);
+
+        // Method invocation verifications
+        verify(rateLoader, times(1)).fetchAnchorRates("EUR");
+    }
+
+    @Test
+    void whenPollingSnapshot_thenPublishNewVersion() {
+        // Set up Expectations
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5))));
+
+        // Verify the result is as expected - the fresh snapshot is reloaded all the same
+        RateSnapshot polledSnapshot = rateStore.pollSnapshot();
+
+        assertThat(polledSnapshot.getVersion()).isEqualTo(snapshot.getVersion() + 1);
+        assertThat(rateStore.getSnapshot()).isSameAs(polledSnapshot);
+    }
+
+    @Test
+    void whenRestoringAnchorRates_pastExpiry_thenMarkSnapshotStale() {
+        // Set up Expectations
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+
+        // Verify the result is as expected
+        assertThat(rateStore.restoreAnchorRates(Map.of("EUR", 1.0, "USD", 1.25), Instant.now().minusSeconds(120)).isStale()).isTrue();
+        assertThat(rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25)).isStale()).isFalse();
+    }
+
+    @Test
+    void whenPublishingSnapshot_thenMaterializeRatesOfHottestBaseCurrencies() {
+        // Set up Expectations
+        when(demandTracker.getHottestCodes()).thenReturn(List.of("USD", "GBP"));
+
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+
+        // Verify the result is as expected - the hot row is shared by every request, and the cold one derived on each
+        assertThat(snapshot.getRates("USD")).isSameAs(snapshot.getRates("USD")).containsEntry("EUR", 0.8).isUnmodifiable();
+        assertThat(snapshot.getRates("EUR")).isNotSameAs(snapshot.getRates("EUR")).containsEntry("USD", 1.25).isUnmodifiable();
+        assertThat(snapshot.getRates("GBP")).isNull();
+    }
+
+    @Test
+    void whenPublishingSnapshot_fetchedBeforePublishedOne_thenKeepPublishedOne() {
+        // Set up Expectations
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.error(new ExternalApiConnectionError("External API request failed")));
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+
+        // Verify the result is as expected - exchange rates fetched earlier, but published later, don't overwrite it
+        assertThat(rateStore.restoreAnchorRates(Map.of("EUR", 1.0, "USD", 1.5), Instant.now().minusSeconds(120))).isSameAs(snapshot);
+        assertThat(rateStore.getPublishedSnapshot()).isSameAs(snapshot);
+        assertThat(rateStore.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void whenPublishingSnapshots_concurrently_thenAssignEachOneItsOwnVersion() throws Exception {
+        // Set up Expectations
+        int publishers = 8;
+        int snapshotsPerPublisher = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(publishers);
+        List<Future<List<RateSnapshot>>> publishedSnapshots = new ArrayList<>();
+
+        for(int i = 0; i < publishers; i++){
+            publishedSnapshots.add(executor.submit(() -> {
+                List<RateSnapshot> snapshots = new ArrayList<>();
+
+                for(int j = 0; j < snapshotsPerPublisher; j++){
+                    snapshots.add(rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.0 + j)));
+                }
+
+                return snapshots;
+            }));
+        }
+
+        Map<Long, RateSnapshot> snapshotsByVersion = new HashMap<>();
+
+        for(Future<List<RateSnapshot>> publisherSnapshots: publishedSnapshots){
+            for(RateSnapshot snapshot: publisherSnapshots.get(10, TimeUnit.SECONDS)){
+                // A publisher whose exchange rates were fetched before the published ones gets those back, instead
+                assertThat(snapshotsByVersion.computeIfAbsent(snapshot.getVersion(), version -> snapshot)).isSameAs(snapshot);
+            }
+        }
+
+        executor.shutdown();
+
+        // Verify the result is as expected - every version is published once, and they keep increasing once cleared
+        assertThat(rateStore.getVersion()).isEqualTo(snapshotsByVersion.size());
+        assertThat(snapshotsByVersion.keySet()).allMatch(version -> version >= 1 && version <= snapshotsByVersion.size());
+
+        rateStore.clear();
+        assertThat(rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25)).getVersion()).isEqualTo(snapshotsByVersion.size() + 1);
+    }
+
+    @Test
+    void whenGettingRate_currencyNotInSnapshot_thenReturnNaN() {
+        // Verify the result is as expected
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+
+        assertThat(snapshot.getRate("EUR", "USD")).isEqualTo(1.25);
+        assertThat(snapshot.getRate("EUR", "GBP")).isNaN();
+        assertThat(snapshot.getRate("GBP", "USD")).isNaN();
+    }
+
+    @Test
+    void whenStoringAnchorRates_thenServeWithoutLoading() {
+        // Verify the result is as expected
+        RateSnapshot snapshot = rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+        assertThat(((CaffeineCache) cacheManager.getCache("exchangeRates")).getNativeCache().getIfPresent("EUR")).isSameAs(snapshot);
+
+        // Method invocation verifications
+        verifyNoInteractions(rateLoader);
+    }
+
+    @Test
+    void whenRestoringAnchorRates_thenServeRestoredAndReloadInBackground() {
+        // Set up Expectations
+        Instant fetchedAt = Instant.now().minusSeconds(600);
+        when(rateLoader.fetchAnchorRates("EUR")).thenReturn(Mono.just(RateMatrix.fromAnchorRates("EUR", Map.of("EUR", 1.0, "USD", 1.5))));
+        deferBackgroundTasks = true;
+
+        // Verify the result is as expected - the restored snapshot is served while the next one is loaded
+        RateSnapshot snapshot = rateStore.restoreAnchorRates(Map.of("EUR", 1.0, "USD", 1.25), fetchedAt);
+
+        assertThat(snapshot.getFetchedAt()).isEqualTo(fetchedAt);
+        assertThat(rateStore.getSnapshot()).isSameAs(snapshot);
+        assertThat(rateStore.getPublishedSnapshot()).isSameAs(snapshot);
+
+        deferBackgroundTasks = false;
+        this.runBackgroundTasks();
+
+        assertThat(rateStore.getSnapshot().getRate("EUR", "USD")).isEqualTo(1.5);
+
+        // Method invocation verifications
+        verify(rateLoader, times(1)).fetchAnchorRates("EUR");
+    }
+
+    @Test
+    void whenClearing_thenDiscardSnapshot() {
+        // Set up Expectations
+        rateStore.storeAnchorRates(Map.of("EUR", 1.0, "USD", 1.25));
+
+        rateStore.clear();
+
+        // Verify the result is as expected
+        assertThat(rateStore.getVersion()).isZero();
+        assertThat(((CaffeineCache) cacheManager.getCache("exchangeRates")).getNativeCache().getIfPresent("EUR")).isNull();
+    }
+
+    private void runBackgroundTasks() {
+        while(!deferBackgroundTasks && !backgroundTasks.isEmpty()){
+            backgroundTasks.poll().run();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.models.Currency;
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.repositories.CurrencyRepository;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
+import com.dfc.exchange_api.backend.services.DemandTracker;
+import com.dfc.exchange_api.backend.services.RateStore;
+import com.dfc.exchange_api.backend.services.SnapshotFileStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SnapshotFileStore_unitTest {
+    @Mock(lenient = true)
+    private RateStore rateStore;
+    @Mock(lenient = true)
+    private CurrencyRegistry currencyRegistry;
+    @Mock(lenient = true)
+    private CurrencyRepository currencyRepository;
+    @Mock(lenient = true)
+    private DemandTracker demandTracker;
+
+    @TempDir
+    Path directory;
+
+    Path snapshotFile;
+    Currency euro;
+    Currency dollar;
+    Map<String, Double> anchorRates;
+
+    @BeforeEach
+    void setUp() {
+        snapshotFile = directory.resolve("exchange-rates.snapshot");
+        euro = new Currency("Euro", "EUR");
+        dollar = new Currency("United States Dollar", "USD");
+        anchorRates = Map.of("EUR", 1.0, "USD", 1.25);
+
+        when(rateStore.getAnchorCode()).thenReturn("EUR");
+        when(currencyRegistry.getAll()).thenReturn(List.of(euro, dollar));
+        when(currencyRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(demandTracker.getRanking()).thenReturn(Map.of("USD", 12L, "EUR", 3L));
+    }
+
+    @Test
+    void whenFlushedSnapshotRestored_thenPublishStoredRatesAndCurrencies() {
+        // Set up Expectations
+        Instant fetchedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        this.flushSnapshot(1L, fetchedAt);
+
+        // Verify the result is as expected
+        assertThat(snapshotFile).exists();
+
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, times(1)).restoreAnchorRates(anchorRates, fetchedAt);
+        verify(demandTracker, times(1)).seed(Map.of("USD", 12L, "EUR", 3L));
+        verify(currencyRepository, times(1)).saveAll(List.of(euro, dollar));
+        verify(currencyRegistry, times(1)).rebuild(List.of(euro, dollar));
+    }
+
+    @Test
+    void whenRestoring_repositoryNotEmpty_thenOnlyPublishStoredRates() {
+        // Set up Expectations
+        this.flushSnapshot(1L, Instant.now());
+        when(currencyRepository.count()).thenReturn(2L);
+
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, times(1)).restoreAnchorRates(anyMap(), any());
+        verify(currencyRepository, never()).saveAll(anyList());
+        verify(currencyRegistry, never()).rebuild(anyList());
+    }
+
+    @Test
+    void whenRestoring_noSnapshotFile_thenIgnore() {
+        // Set up Expectations
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, never()).restoreAnchorRates(anyMap(), any());
+    }
+
+    @Test
+    void whenRestoring_corruptSnapshotFile_thenIgnore() throws Exception {
+        // Set up Expectations
+        this.flushSnapshot(1L, Instant.now());
+
+        byte[] contents = Files.readAllBytes(snapshotFile);
+        contents[contents.length - 1] ^= 0x01;
+        Files.write(snapshotFile, contents);
+
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, never()).restoreAnchorRates(anyMap(), any());
+        verifyNoInteractions(currencyRepository);
+    }
+
+    @Test
+    void whenRestoring_unknownFormatVersion_thenIgnore() throws Exception {
+        // Set up Expectations
+        this.flushSnapshot(1L, Instant.now());
+
+        byte[] contents = Files.readAllBytes(snapshotFile);
+        contents[7] = 99;
+        Files.write(snapshotFile, contents);
+
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, never()).restoreAnchorRates(anyMap(), any());
+    }
+
+    @Test
+    void whenRestoring_staleSnapshotFile_thenIgnore() {
+        // Set up Expectations
+        this.flushSnapshot(1L, Instant.now().minus(Duration.ofDays(2)));
+
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, never()).restoreAnchorRates(anyMap(), any());
+    }
+
+    @Test
+    void whenRestoring_anotherAnchorCurrency_thenIgnore() {
+        // Set up Expectations
+        this.flushSnapshot(1L, Instant.now());
+        when(rateStore.getAnchorCode()).thenReturn("USD");
+
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, never()).restoreAnchorRates(anyMap(), any());
+    }
+
+    @Test
+    void whenFlushing_versionAlreadyFlushed_thenSkipWrite() throws Exception {
+        // Set up Expectations
+        SnapshotFileStore snapshotFileStore = this.flushSnapshot(1L, Instant.now());
+        Files.delete(snapshotFile);
+
+        snapshotFileStore.flush();
+
+        // Verify the result is as expected
+        assertThat(snapshotFile).doesNotExist();
+    }
+
+    @Test
+    void whenFlushing_versionRevalidated_thenWriteAndRestoreRevalidationInstant() {
+        // Set up Expectations
+        Instant revalidatedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        SnapshotFileStore snapshotFileStore = this.flushSnapshot(1L, revalidatedAt.minus(Duration.ofDays(2)));
+
+        when(rateStore.getPublishedSnapshot()).thenReturn(this.snapshot(1L, revalidatedAt));
+        snapshotFileStore.flush();
+
+        this.newSnapshotFileStore().restore();
+
+        // Method invocation verifications
+        verify(rateStore, times(1)).restoreAnchorRates(anchorRates, revalidatedAt);
+    }
+
+    @Test
+    void whenFlushing_disabled_thenSkipWrite() {
+        // Set up Expectations
+        SnapshotFileStore snapshotFileStore = this.newSnapshotFileStore();
+        ReflectionTestUtils.setField(snapshotFileStore, "ENABLED", false);
+        when(rateStore.getPublishedSnapshot()).thenReturn(this.snapshot(1L, Instant.now()));
+
+        snapshotFileStore.flush();
+
+        // Verify the result is as expected
+        assertThat(snapshotFile).doesNotExist();
+    }
+
+    private SnapshotFileStore flushSnapshot(long version, Instant fetchedAt) {
+        SnapshotFileStore snapshotFileStore = this.newSnapshotFileStore();
+
+        when(rateStore.getPublishedSnapshot()).thenReturn(this.snapshot(version, fetchedAt));
+        snapshotFileStore.flush();
+
+        return snapshotFileStore;
+    }
+
+    private RateSnapshot snapshot(long version, Instant fetchedAt) {
+        return new RateSnapshot(version, fetchedAt, RateMatrix.fromAnchorRates("EUR", anchorRates));
+    }
+
+    private SnapshotFileStore newSnapshotFileStore() {
+        SnapshotFileStore snapshotFileStore = new SnapshotFileStore(rateStore, currencyRegistry, currencyRepository, demandTracker);
+
+        ReflectionTestUtils.setField(snapshotFileStore, "ENABLED", true);
+        ReflectionTestUtils.setField(snapshotFileStore, "FILE_PATH", snapshotFile.toString());
+        ReflectionTestUtils.setField(snapshotFileStore, "MAX_AGE_SECONDS", 86400L);
+
+        return snapshotFileStore;
+    }
+}
@@ -0,0 +1,115 @@
+package com.dfc.exchange_api.backend.unitTests;
+
+import com.dfc.exchange_api.backend.models.RateMatrix;
+import com.dfc.exchange_api.backend.models.RateSnapshot;
+import com.dfc.exchange_api.backend.services.ConversionService;
+import com.dfc.exchange_api.backend.services.CurrencyRegistry;
+import com.dfc.exchange_api.backend.services.ExchangeService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService;
+import com.dfc.exchange_api.backend.services.StreamingConversionService.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StreamingConversionService_unitTest {
+    @Mock(lenient = true)
+    private CurrencyRegistry currencyRegistry;
+    @Mock
+    private ExchangeService exchangeService;
+
+    private StreamingConversionService streamingConversionService;
+    private RateSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        when(currencyRegistry.contains(anyString())).thenAnswer(invocation -> Set.of("EUR", "USD", "AMD").contains(invocation.<String>getArgument(0)));
+
+        snapshot = new RateSnapshot(4L, Instant.now(), RateMatrix.fromAnchorRates("EUR", Map.of(
+                "EUR", 1.0,
+                "USD", 1.25)));
+        streamingConversionService = new StreamingConversionService(new ConversionService(currencyRegistry, exchangeService), exchangeService, new ObjectMapper());
+        ReflectionTestUtils.setField(streamingConversionService, "MAX_RECORD_LENGTH", 64);
+        ReflectionTestUtils.setField(streamingConversionService, "FLUSH_RECORDS", 2);
+    }
+
+    @Test
+    void whenConvertingNdjsonStream_thenWriteResultOfEachRecordInOrder() throws IOException {
+        // Set up Expectations
+        String input = "{\"from\":\"EUR\",\"to\":\"USD\",\"amount\":10.0}\n"
+                + "\n"
+                + "{\"from\":\"usd\",\"to\":\"EUR\",\"amount\":5.0}\r\n"
+                + "not json\n"
+                + "{\"from\":\"EUR\",\"to\":\"AMD\",\"amount\":1.0}\n"
+                + "{\"from\":\"XYZ\",\"to\":\"EUR\",\"amount\":1.0}";
+
+        // Verify the result is as expected - blank lines are skipped, and the last line needs no line break
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long records = streamingConversionService.convert(this.inputOf(input), output, Format.NDJSON, snapshot);
+
+        assertThat(records).isEqualTo(5);
+        assertThat(output.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "{\"from\":\"EUR\",\"to\":\"USD\",\"amount\":10.0,\"value\":12.5}",
+                "{\"from\":\"USD\",\"to\":\"EUR\",\"amount\":5.0,\"value\":4.0}",
+                "{\"error\":\"Malformed record at line 4\"}",
+                "{\"from\":\"EUR\",\"to\":\"AMD\",\"amount\":1.0,\"error\":\"The exchange rate from EUR to AMD is not available\"}",
+                "{\"from\":\"XYZ\",\"to\":\"EUR\",\"amount\":1.0,\"error\":\"Invalid currency code XYZ provided!\"}");
+    }
+
+    @Test
+    void whenConvertingCsvStream_thenSkipHeaderAndQuoteFields() throws IOException {
+        // Set up Expectations
+        String input = "from,to,amount\n"
+                + "EUR,USD,2\n"
+                + "\"E,UR\",USD,2\n"
+                + "EUR,USD,-1\n"
+                + "EUR,USD\n";
+
+        // Verify the result is as expected
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long records = streamingConversionService.convert(this.inputOf(input), output, Format.CSV, snapshot);
+
+        assertThat(records).isEqualTo(4);
+        assertThat(output.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "from,to,amount,value,error",
+                "EUR,USD,2.0,2.5,",
+                ",,,,Malformed record at line 3",
+                "EUR,USD,-1.0,,Amount must be non-negative!",
+                ",,,,Malformed record at line 5");
+    }
+
+    @Test
+    void whenConvertingStream_withOverlongRecord_thenReportItWithoutBufferingIt() throws IOException {
+        // Set up Expectations
+        String input = "EUR,USD," + "1".repeat(200) + "\nEUR,USD,4\n";
+
+        // Verify the result is as expected
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        streamingConversionService.convert(this.inputOf(input), output, Format.CSV, snapshot);
+
+        assertThat(output.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "from,to,amount,value,error",
+                ",,,,Record at line 1 exceeds 64 characters",
+                "EUR,USD,4.0,5.0,");
+    }
+
+    private ByteArrayInputStream inputOf(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+}